@@ -0,0 +1,49 @@
+package com.upec.factoryscheduling.aps.benchmark;
+
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import org.optaplanner.persistence.common.api.domain.solution.SolutionFileIO;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * 基准数据集文件：Java序列化的{@link FactorySchedulingSolution}
+ * <p>保存完整的对象图(工序前后序、取值范围、规划时钟)，读入后不需要再初始化问题事实。</p>
+ */
+public class SerializedSolutionFileIO implements SolutionFileIO<FactorySchedulingSolution> {
+
+    public static final String FILE_EXTENSION = "ser";
+
+    @Override
+    public String getInputFileExtension() {
+        return FILE_EXTENSION;
+    }
+
+    @Override
+    public FactorySchedulingSolution read(File inputSolutionFile) {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+                Files.newInputStream(inputSolutionFile.toPath())))) {
+            return (FactorySchedulingSolution) in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read dataset " + inputSolutionFile, e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Incompatible dataset " + inputSolutionFile, e);
+        }
+    }
+
+    @Override
+    public void write(FactorySchedulingSolution solution, File outputSolutionFile) {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(outputSolutionFile.toPath())))) {
+            out.writeObject(solution);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write dataset " + outputSolutionFile, e);
+        }
+    }
+}
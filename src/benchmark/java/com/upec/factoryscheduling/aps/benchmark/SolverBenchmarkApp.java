@@ -0,0 +1,193 @@
+package com.upec.factoryscheduling.aps.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.upec.factoryscheduling.aps.resquest.SyntheticDataRequest;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solver.SyntheticProblemGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.optaplanner.benchmark.api.PlannerBenchmark;
+import org.optaplanner.benchmark.api.PlannerBenchmarkException;
+import org.optaplanner.benchmark.api.PlannerBenchmarkFactory;
+import org.optaplanner.benchmark.impl.DefaultPlannerBenchmark;
+import org.optaplanner.benchmark.impl.result.PlannerBenchmarkResult;
+import org.optaplanner.benchmark.impl.result.SingleBenchmarkResult;
+import org.optaplanner.benchmark.impl.result.SolverBenchmarkResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 求解器基准
+ * <p>在数据集目录中的全部数据集上运行solverBenchmarkConfig.xml.ftl中的各个局部搜索配置，
+ * 在基准目录下生成OptaPlanner的HTML报告(index.html)和机器可读的summary.json(每个配置的排名、平均分数、
+ * 评分速度及每个数据集的结果)。数据集目录为空时按--sizes用{@link SyntheticProblemGenerator}生成合成数据集；
+ * 生产问题导出为.ser文件(见{@link SerializedSolutionFileIO})放入同一目录即参与对比。
+ * --generate-only true时只生成数据集不运行基准，用于准备50万时间槽级别的规模测试输入。</p>
+ * <p>用法: mvn -Pbenchmark test-compile exec:exec [-Dbenchmark.args="--seconds 120 --sizes 2000,10000"]</p>
+ * <p>参数: --data-dir 数据集目录(target/benchmark/data)、--benchmark-dir 报告目录(target/benchmark/report)、
+ * --sizes 生成的数据集时间槽数(1000,5000,20000)、--seconds 每次求解时长(60)、
+ * --parallel 并行求解数(1)、--sub-single-count 每个组合重复次数(1)、
+ * --temperature 模拟退火初始温度(0hard/1000medium/100soft)、--seed 合成数据随机种子(42)、
+ * --generate-only 只生成数据集(false)。有求解失败时退出码为1。</p>
+ */
+@Slf4j
+public final class SolverBenchmarkApp {
+
+    private static final String CONFIG_TEMPLATE = "benchmark/solverBenchmarkConfig.xml.ftl";
+
+    private static final String SUMMARY_FILE = "summary.json";
+
+    private static final LocalDate DATASET_START_DATE = LocalDate.of(2025, 1, 6);
+
+    private SolverBenchmarkApp() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        File dataDir = new File(options.get("data-dir"));
+        List<File> datasets = ensureDatasets(dataDir, options.get("sizes"), Long.parseLong(options.get("seed")));
+        if (Boolean.parseBoolean(options.get("generate-only"))) {
+            log.info("Datasets in {}: {}", dataDir, datasets.stream().map(File::getName).collect(Collectors.toList()));
+            return;
+        }
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("benchmarkDirectory", new File(options.get("benchmark-dir")).getAbsolutePath());
+        model.put("inputSolutionFiles", datasets.stream().map(File::getAbsolutePath).collect(Collectors.toList()));
+        model.put("secondsSpentLimit", options.get("seconds"));
+        model.put("parallelBenchmarkCount", options.get("parallel"));
+        model.put("subSingleCount", options.get("sub-single-count"));
+        model.put("simulatedAnnealingStartingTemperature", options.get("temperature"));
+        PlannerBenchmark benchmark = PlannerBenchmarkFactory.createFromFreemarkerXmlResource(CONFIG_TEMPLATE, model)
+                .buildPlannerBenchmark();
+        try {
+            benchmark.benchmark();
+        } catch (PlannerBenchmarkException e) {
+            // 部分求解失败时报告照常生成，失败记录在摘要的failureCount中
+            log.error("Benchmark finished with failures", e);
+        }
+
+        PlannerBenchmarkResult result = ((DefaultPlannerBenchmark) benchmark).getPlannerBenchmarkResult();
+        File benchmarkDirectory = result.getBenchmarkReportDirectory();
+        File summaryFile = new File(benchmarkDirectory, SUMMARY_FILE);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(summaryFile, summary(result));
+        for (SolverBenchmarkResult solverResult : result.getSolverBenchmarkResultList()) {
+            log.info("#{} {}: average score {}, {} score calculations/s, {} failures", solverResult.getRanking(),
+                    solverResult.getName(), solverResult.getAverageScore(),
+                    solverResult.getAverageScoreCalculationSpeed(), solverResult.getFailureCount());
+        }
+        log.info("Report {}, summary {}", new File(benchmarkDirectory, "index.html"), summaryFile);
+        if (result.getFailureCount() != null && result.getFailureCount() > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 列出数据集目录中的数据集，目录中没有数据集时按时间槽数生成
+     */
+    private static List<File> ensureDatasets(File dataDir, String sizes, long seed) {
+        SerializedSolutionFileIO solutionFileIO = new SerializedSolutionFileIO();
+        if (listDatasets(dataDir).isEmpty()) {
+            if (!dataDir.isDirectory() && !dataDir.mkdirs()) {
+                throw new IllegalStateException("Cannot create dataset directory " + dataDir);
+            }
+            for (String size : sizes.split(",")) {
+                int timeslotCount = Integer.parseInt(size.trim());
+                SyntheticDataRequest request = new SyntheticDataRequest();
+                request.setSeed(seed);
+                request.setTimeslotCount(timeslotCount);
+                // 固定开始日期，同一参数在不同日期生成的数据集相同
+                request.setStartDate(DATASET_START_DATE);
+                long start = System.currentTimeMillis();
+                // 与不保留上次分配的生产求解一样，所有时间槽从未分配开始
+                FactorySchedulingSolution solution = SyntheticProblemGenerator.generate(request).toSolution();
+                File file = new File(dataDir, "generated-" + timeslotCount + "." + SerializedSolutionFileIO.FILE_EXTENSION);
+                solutionFileIO.write(solution, file);
+                log.info("Generated dataset {} with {} timeslots and {} maintenances in {}ms", file,
+                        solution.getTimeslots().size(), solution.getMaintenances().size(),
+                        System.currentTimeMillis() - start);
+            }
+        }
+        return listDatasets(dataDir);
+    }
+
+    private static List<File> listDatasets(File dataDir) {
+        File[] files = dataDir.listFiles((dir, name) -> name.endsWith("." + SerializedSolutionFileIO.FILE_EXTENSION));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    private static Map<String, Object> summary(PlannerBenchmarkResult result) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("name", result.getName());
+        summary.put("startingTimestamp", String.valueOf(result.getStartingTimestamp()));
+        summary.put("benchmarkTimeMillisSpent", result.getBenchmarkTimeMillisSpent());
+        summary.put("optaPlannerVersion", result.getOptaPlannerVersion());
+        summary.put("availableProcessors", result.getAvailableProcessors());
+        summary.put("failureCount", result.getFailureCount());
+        SolverBenchmarkResult favorite = result.getFavoriteSolverBenchmarkResult();
+        summary.put("favorite", favorite == null ? null : favorite.getName());
+        List<Map<String, Object>> solvers = new ArrayList<>();
+        for (SolverBenchmarkResult solverResult : result.getSolverBenchmarkResultList()) {
+            Map<String, Object> solver = new LinkedHashMap<>();
+            solver.put("name", solverResult.getName());
+            solver.put("ranking", solverResult.getRanking());
+            solver.put("averageScore", String.valueOf(solverResult.getAverageScore()));
+            solver.put("totalScore", String.valueOf(solverResult.getTotalScore()));
+            solver.put("averageScoreCalculationSpeed", solverResult.getAverageScoreCalculationSpeed());
+            solver.put("averageTimeMillisSpent", solverResult.getAverageTimeMillisSpent());
+            solver.put("failureCount", solverResult.getFailureCount());
+            solver.put("infeasibleScoreCount", solverResult.getInfeasibleScoreCount());
+            List<Map<String, Object>> problems = new ArrayList<>();
+            for (SingleBenchmarkResult singleResult : solverResult.getSingleBenchmarkResultList()) {
+                Map<String, Object> problem = new LinkedHashMap<>();
+                problem.put("problem", singleResult.getProblemBenchmarkResult().getName());
+                problem.put("entityCount", singleResult.getProblemBenchmarkResult().getEntityCount());
+                problem.put("ranking", singleResult.getRanking());
+                problem.put("averageScore", String.valueOf(singleResult.getAverageScore()));
+                problem.put("feasible", singleResult.isScoreFeasible());
+                problem.put("winner", singleResult.isWinner());
+                problem.put("scoreCalculationSpeed", singleResult.getScoreCalculationSpeed());
+                problem.put("failureCount", singleResult.getFailureCount());
+                problems.add(problem);
+            }
+            solver.put("problems", problems);
+            solvers.add(solver);
+        }
+        summary.put("solvers", solvers);
+        return summary;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        options.put("data-dir", "target/benchmark/data");
+        options.put("benchmark-dir", "target/benchmark/report");
+        options.put("sizes", "1000,5000,20000");
+        options.put("seconds", "60");
+        options.put("parallel", "1");
+        options.put("sub-single-count", "1");
+        options.put("temperature", "0hard/1000medium/100soft");
+        options.put("seed", "42");
+        options.put("generate-only", "false");
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || !options.containsKey(args[i].substring(2)) || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Unknown or incomplete option: " + args[i]
+                        + ", supported: " + options.keySet());
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,103 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<!--
+  求解器基准配置：局部搜索算法(延迟接受、禁忌搜索、模拟退火)各自在使用和不使用自定义移动时的对比。
+  构造阶段与生产配置相同(拓扑构造)，评分引擎为约束流。数据模型由SolverBenchmarkApp提供。
+-->
+<plannerBenchmark xmlns="https://www.optaplanner.org/xsd/benchmark" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+                  xsi:schemaLocation="https://www.optaplanner.org/xsd/benchmark https://www.optaplanner.org/xsd/benchmark/benchmark.xsd">
+  <benchmarkDirectory>${benchmarkDirectory}</benchmarkDirectory>
+  <parallelBenchmarkCount>${parallelBenchmarkCount}</parallelBenchmarkCount>
+
+  <inheritedSolverBenchmark>
+    <solver>
+      <solutionClass>com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution</solutionClass>
+      <entityClass>com.upec.factoryscheduling.aps.entity.Timeslot</entityClass>
+      <scoreDirectorFactory>
+        <constraintProviderClass>com.upec.factoryscheduling.aps.solver.FactorySchedulingConstraintProvider</constraintProviderClass>
+      </scoreDirectorFactory>
+      <termination>
+        <secondsSpentLimit>${secondsSpentLimit}</secondsSpentLimit>
+      </termination>
+    </solver>
+    <problemBenchmarks>
+      <solutionFileIOClass>com.upec.factoryscheduling.aps.benchmark.SerializedSolutionFileIO</solutionFileIOClass>
+<#list inputSolutionFiles as inputSolutionFile>
+      <inputSolutionFile>${inputSolutionFile}</inputSolutionFile>
+</#list>
+      <problemStatisticType>BEST_SCORE</problemStatisticType>
+      <problemStatisticType>STEP_SCORE</problemStatisticType>
+      <problemStatisticType>SCORE_CALCULATION_SPEED</problemStatisticType>
+    </problemBenchmarks>
+    <subSingleCount>${subSingleCount}</subSingleCount>
+  </inheritedSolverBenchmark>
+
+<#macro construction>
+      <customPhase>
+        <customPhaseCommandClass>com.upec.factoryscheduling.aps.solver.TopologicalConstructionPhaseCommand</customPhaseCommandClass>
+      </customPhase>
+</#macro>
+<#macro customMoves>
+        <unionMoveSelector>
+          <changeMoveSelector/>
+          <moveIteratorFactory>
+            <moveIteratorFactoryClass>com.upec.factoryscheduling.aps.solver.SameWorkCenterSwapMoveIteratorFactory</moveIteratorFactoryClass>
+          </moveIteratorFactory>
+          <moveIteratorFactory>
+            <moveIteratorFactoryClass>com.upec.factoryscheduling.aps.solver.ProcedureShiftMoveIteratorFactory</moveIteratorFactoryClass>
+          </moveIteratorFactory>
+        </unionMoveSelector>
+</#macro>
+<#macro genericMoves>
+        <unionMoveSelector>
+          <changeMoveSelector/>
+          <swapMoveSelector/>
+        </unionMoveSelector>
+</#macro>
+<#list ["custom", "generic"] as moves>
+  <solverBenchmark>
+    <name>Late Acceptance (${moves} moves)</name>
+    <solver>
+<@construction/>
+      <localSearch>
+<#if moves == "custom"><@customMoves/><#else><@genericMoves/></#if>
+        <acceptor>
+          <lateAcceptanceSize>400</lateAcceptanceSize>
+        </acceptor>
+        <forager>
+          <acceptedCountLimit>1</acceptedCountLimit>
+        </forager>
+      </localSearch>
+    </solver>
+  </solverBenchmark>
+  <solverBenchmark>
+    <name>Tabu Search (${moves} moves)</name>
+    <solver>
+<@construction/>
+      <localSearch>
+<#if moves == "custom"><@customMoves/><#else><@genericMoves/></#if>
+        <acceptor>
+          <entityTabuRatio>0.02</entityTabuRatio>
+        </acceptor>
+        <forager>
+          <acceptedCountLimit>1000</acceptedCountLimit>
+        </forager>
+      </localSearch>
+    </solver>
+  </solverBenchmark>
+  <solverBenchmark>
+    <name>Simulated Annealing (${moves} moves)</name>
+    <solver>
+<@construction/>
+      <localSearch>
+<#if moves == "custom"><@customMoves/><#else><@genericMoves/></#if>
+        <acceptor>
+          <simulatedAnnealingStartingTemperature>${simulatedAnnealingStartingTemperature}</simulatedAnnealingStartingTemperature>
+        </acceptor>
+        <forager>
+          <acceptedCountLimit>4</acceptedCountLimit>
+        </forager>
+      </localSearch>
+    </solver>
+  </solverBenchmark>
+</#list>
+</plannerBenchmark>
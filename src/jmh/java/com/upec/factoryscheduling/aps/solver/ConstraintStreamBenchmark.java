@@ -0,0 +1,46 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+
+/**
+ * 逐个约束方法的评分速度
+ * <p>修改约束后运行该基准，与修改前的结果对比即可发现评分速度回退。例如只测量工序顺序约束：
+ * {@code -p constraint=mediumProcedureSequence}</p>
+ */
+@State(Scope.Benchmark)
+public class ConstraintStreamBenchmark extends ScoreCalculationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int timeslotCount;
+
+    @Param({IsolatedConstraintProvider.ALL,
+            "hardWorkCenterMatch",
+            "hardCapacityExceeded",
+            "hardOutsourcingProcedurePreviousTimeConstraint",
+            "hardOutsourcingProcedureNextTimeConstraint",
+            "mediumProcedureSequence",
+            "mediumProcedureSliceSequence",
+            "mediumOrderDateConstraint",
+            "softEarlyCompletion",
+            "softOnTimeStart",
+            "softHighPriorityFirst",
+            "softBalancedLoad",
+            "softContinuousSlices",
+            "softCapacityUtilization"})
+    private String constraint;
+
+    @Override
+    protected int timeslotCount() {
+        return timeslotCount;
+    }
+
+    @Override
+    protected ScoreDirectorFactoryConfig scoreDirectorFactoryConfig() {
+        IsolatedConstraintProvider.select(constraint);
+        return new ScoreDirectorFactoryConfig()
+                .withConstraintProviderClass(IsolatedConstraintProvider.class);
+    }
+}
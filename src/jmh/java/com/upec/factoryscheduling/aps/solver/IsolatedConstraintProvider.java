@@ -0,0 +1,63 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import org.optaplanner.core.api.score.stream.Constraint;
+import org.optaplanner.core.api.score.stream.ConstraintFactory;
+
+/**
+ * 单约束评分提供者
+ * <p>求解器按类名实例化约束提供者，无法传参，因此通过静态字段选择要隔离测量的约束方法，
+ * {@link #ALL}表示全部约束。JMH每个参数组合都在独立的JVM中运行，静态字段不会相互影响。</p>
+ */
+public class IsolatedConstraintProvider extends FactorySchedulingConstraintProvider {
+    private static final long serialVersionUID = 1L;
+
+    public static final String ALL = "all";
+
+    private static volatile String selectedConstraint = ALL;
+
+    public static void select(String constraint) {
+        selectedConstraint = constraint;
+    }
+
+    @Override
+    public Constraint[] defineConstraints(ConstraintFactory constraintFactory) {
+        String constraint = selectedConstraint;
+        if (ALL.equals(constraint)) {
+            return super.defineConstraints(constraintFactory);
+        }
+        return new Constraint[]{isolate(constraintFactory, constraint)};
+    }
+
+    private Constraint isolate(ConstraintFactory constraintFactory, String constraint) {
+        switch (constraint) {
+            case "hardWorkCenterMatch":
+                return hardWorkCenterMatch(constraintFactory);
+            case "hardCapacityExceeded":
+                return hardCapacityExceeded(capacityBuckets(constraintFactory));
+            case "hardOutsourcingProcedurePreviousTimeConstraint":
+                return hardOutsourcingProcedurePreviousTimeConstraint(constraintFactory);
+            case "hardOutsourcingProcedureNextTimeConstraint":
+                return hardOutsourcingProcedureNextTimeConstraint(constraintFactory);
+            case "mediumProcedureSequence":
+                return mediumProcedureSequence(constraintFactory);
+            case "mediumProcedureSliceSequence":
+                return mediumProcedureSliceSequence(constraintFactory);
+            case "mediumOrderDateConstraint":
+                return mediumOrderDateConstraint(constraintFactory);
+            case "softEarlyCompletion":
+                return softEarlyCompletion(constraintFactory);
+            case "softOnTimeStart":
+                return softOnTimeStart(constraintFactory);
+            case "softHighPriorityFirst":
+                return softHighPriorityFirst(constraintFactory);
+            case "softBalancedLoad":
+                return softBalancedLoad(constraintFactory);
+            case "softContinuousSlices":
+                return softContinuousSlices(constraintFactory);
+            case "softCapacityUtilization":
+                return softCapacityUtilization(capacityBuckets(constraintFactory));
+            default:
+                throw new IllegalArgumentException("Unknown constraint method: " + constraint);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.EnvironmentMode;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 移动线程数与局部搜索速度的关系
+ * <p>每次调用在已初始化的解决方案上运行固定时长的局部搜索，辅助计数器moveEvaluations累计
+ * 评估的移动数(含各移动线程)，按吞吐量模式输出即为每秒评估的移动数。
+ * 在目标服务器上用{@code -p moveThreadCount=NONE,1,2,4,8,16}对比不同核数下的扩展情况，
+ * 据此调整生产配置的move-thread-count。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class MoveThreadBenchmark {
+
+    private static final long SEED = 37L;
+    private static final long SOLVE_SECONDS = 5L;
+
+    @Param({"10000"})
+    private int timeslotCount;
+
+    @Param({"constraint-streams", "incremental"})
+    private String engine;
+
+    @Param({"NONE", "1", "2", "4", "8", "16"})
+    private String moveThreadCount;
+
+    private SolverFactory<FactorySchedulingSolution> solverFactory;
+
+    /**
+     * 每秒评估的移动数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class MoveCounters {
+        public long moveEvaluations;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ScoreDirectorFactoryConfig scoreDirectorFactoryConfig = "incremental".equals(engine)
+                ? new ScoreDirectorFactoryConfig()
+                        .withIncrementalScoreCalculatorClass(FactorySchedulingIncrementalScoreCalculator.class)
+                : new ScoreDirectorFactoryConfig()
+                        .withConstraintProviderClass(FactorySchedulingConstraintProvider.class);
+        SolverConfig solverConfig = new SolverConfig()
+                .withSolutionClass(FactorySchedulingSolution.class)
+                .withEntityClasses(Timeslot.class)
+                .withScoreDirectorFactory(scoreDirectorFactoryConfig)
+                .withEnvironmentMode(EnvironmentMode.REPRODUCIBLE)
+                .withRandomSeed(SEED)
+                .withMoveThreadCount(moveThreadCount)
+                .withPhases(new LocalSearchPhaseConfig())
+                .withTerminationConfig(new TerminationConfig().withSecondsSpentLimit(SOLVE_SECONDS));
+        solverFactory = SolverFactory.create(solverConfig);
+    }
+
+    @Benchmark
+    public FactorySchedulingSolution localSearch(MoveCounters counters) {
+        Solver<FactorySchedulingSolution> solver = solverFactory.buildSolver();
+        FactorySchedulingSolution solution = solver.solve(BenchmarkSolutions.generate(timeslotCount, SEED));
+        // 局部搜索中每评估一个移动计算一次分数，多线程时已汇总各移动线程的计数
+        counters.moveEvaluations += ((DefaultSolver<FactorySchedulingSolution>) solver).getSolverScope()
+                .getScoreCalculationCount();
+        return solution;
+    }
+}
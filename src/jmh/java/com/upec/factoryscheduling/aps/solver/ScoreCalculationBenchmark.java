@@ -0,0 +1,101 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+import org.optaplanner.core.api.solver.SolutionManager;
+import org.optaplanner.core.api.solver.SolutionUpdatePolicy;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.solver.DefaultSolverFactory;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 评分计算基准测试基类
+ * <p>fullCalculation：每次从头计算整个解决方案的分数，对应加载问题、分数解释等场景；
+ * incrementalCalculation：在同一个评分器上不断把随机时间槽换到本工作中心的另一天，
+ * 对应求解过程中每一步移动的评分代价。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class ScoreCalculationBenchmark {
+
+    private static final long SEED = 37L;
+    private static final String MAINTENANCE = "maintenance";
+
+    private SolutionManager<FactorySchedulingSolution, HardMediumSoftScore> solutionManager;
+    private FactorySchedulingSolution fullSolution;
+
+    private InnerScoreDirector<FactorySchedulingSolution, HardMediumSoftScore> scoreDirector;
+    private Timeslot[] timeslots;
+    private Random random;
+
+    protected abstract int timeslotCount();
+
+    protected abstract ScoreDirectorFactoryConfig scoreDirectorFactoryConfig();
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        SolverConfig solverConfig = new SolverConfig()
+                .withSolutionClass(FactorySchedulingSolution.class)
+                .withEntityClasses(Timeslot.class)
+                .withScoreDirectorFactory(scoreDirectorFactoryConfig());
+        SolverFactory<FactorySchedulingSolution> solverFactory = SolverFactory.create(solverConfig);
+        solutionManager = SolutionManager.create(solverFactory);
+        fullSolution = BenchmarkSolutions.generate(timeslotCount(), SEED);
+
+        FactorySchedulingSolution workingSolution = BenchmarkSolutions.generate(timeslotCount(), SEED);
+        scoreDirector = (InnerScoreDirector<FactorySchedulingSolution, HardMediumSoftScore>)
+                ((DefaultSolverFactory<FactorySchedulingSolution>) solverFactory).getScoreDirectorFactory()
+                        .buildScoreDirector(false, false);
+        scoreDirector.setWorkingSolution(workingSolution);
+        scoreDirector.calculateScore();
+        timeslots = workingSolution.getTimeslots().toArray(new Timeslot[0]);
+        random = new Random(SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scoreDirector.close();
+    }
+
+    @Benchmark
+    public HardMediumSoftScore fullCalculation() {
+        return solutionManager.update(fullSolution, SolutionUpdatePolicy.UPDATE_SCORE_ONLY);
+    }
+
+    @Benchmark
+    public HardMediumSoftScore incrementalCalculation() {
+        Timeslot timeslot = timeslots[random.nextInt(timeslots.length)];
+        List<WorkCenterMaintenance> range = timeslot.getMaintenanceRange();
+        WorkCenterMaintenance maintenance = range.get(random.nextInt(range.size()));
+        scoreDirector.beforeVariableChanged(timeslot, MAINTENANCE);
+        timeslot.setMaintenance(maintenance);
+        scoreDirector.afterVariableChanged(timeslot, MAINTENANCE);
+        scoreDirector.triggerVariableListeners();
+        return scoreDirector.calculateScore();
+    }
+}
@@ -0,0 +1,34 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+
+/**
+ * 约束流与增量评分计算器两种评分引擎在全部约束下的评分速度对比
+ */
+@State(Scope.Benchmark)
+public class ScoreEngineBenchmark extends ScoreCalculationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int timeslotCount;
+
+    @Param({"constraint-streams", "incremental"})
+    private String engine;
+
+    @Override
+    protected int timeslotCount() {
+        return timeslotCount;
+    }
+
+    @Override
+    protected ScoreDirectorFactoryConfig scoreDirectorFactoryConfig() {
+        if ("incremental".equals(engine)) {
+            return new ScoreDirectorFactoryConfig()
+                    .withIncrementalScoreCalculatorClass(FactorySchedulingIncrementalScoreCalculator.class);
+        }
+        return new ScoreDirectorFactoryConfig()
+                .withConstraintProviderClass(FactorySchedulingConstraintProvider.class);
+    }
+}
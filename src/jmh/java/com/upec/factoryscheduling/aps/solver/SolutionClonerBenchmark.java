@@ -0,0 +1,62 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolutionCloner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.core.api.domain.solution.cloner.SolutionCloner;
+import org.optaplanner.core.impl.domain.solution.cloner.FieldAccessingSolutionCloner;
+import org.optaplanner.core.impl.domain.solution.descriptor.SolutionDescriptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 规划克隆吞吐量：OptaPlanner默认的反射克隆与{@link FactorySchedulingSolutionCloner}对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolutionClonerBenchmark {
+
+    private static final long SEED = 37L;
+
+    @Param({"1000", "10000", "100000"})
+    private int timeslotCount;
+
+    @Param({"reflection", "custom"})
+    private String cloner;
+
+    private SolutionCloner<FactorySchedulingSolution> solutionCloner;
+    private FactorySchedulingSolution solution;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("reflection".equals(cloner)) {
+            SolutionDescriptor<FactorySchedulingSolution> solutionDescriptor =
+                    SolutionDescriptor.buildSolutionDescriptor(FactorySchedulingSolution.class, Timeslot.class);
+            solutionCloner = new FieldAccessingSolutionCloner<>(solutionDescriptor);
+        } else {
+            solutionCloner = new FactorySchedulingSolutionCloner();
+        }
+        solution = BenchmarkSolutions.generate(timeslotCount, SEED);
+    }
+
+    @Benchmark
+    public FactorySchedulingSolution cloneSolution() {
+        return solutionCloner.cloneSolution(solution);
+    }
+}
@@ -1,8 +1,18 @@
 package com.upec.factoryscheduling.aps.controller;
 
 import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.response.BestSolutionSnapshot;
+import com.upec.factoryscheduling.aps.response.ConstraintIndictment;
+import com.upec.factoryscheduling.aps.response.SolveReport;
+import com.upec.factoryscheduling.aps.response.SolverQueueStatus;
+import com.upec.factoryscheduling.aps.response.SyntheticDataResult;
 import com.upec.factoryscheduling.aps.resquest.ProcedureRequest;
+import com.upec.factoryscheduling.aps.resquest.SyntheticDataRequest;
+import com.upec.factoryscheduling.aps.service.BestSolutionPublisher;
+import com.upec.factoryscheduling.aps.service.ConstraintIndictmentService;
 import com.upec.factoryscheduling.aps.service.SchedulingService;
+import com.upec.factoryscheduling.aps.service.SolverJobScheduler;
+import com.upec.factoryscheduling.aps.service.SyntheticDataService;
 import com.upec.factoryscheduling.aps.service.TimeslotService;
 import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
 import com.upec.factoryscheduling.common.utils.ApiResponse;
@@ -11,6 +21,7 @@ import org.optaplanner.core.api.score.ScoreExplanation;
 import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
 import org.optaplanner.core.api.solver.SolverStatus;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.ArrayList;
@@ -51,33 +62,213 @@ public class SchedulingController {
         this.timeslotService = timeslotService;
     }
 
+    /** 求解作业调度器 - 控制并发求解数并对求解请求排队 */
+    private SolverJobScheduler solverJobScheduler;
+
+    /**
+     * 设置求解作业调度器
+     * @param solverJobScheduler 求解作业调度器，所有求解请求经由它排队启动
+     */
+    @Autowired
+    public void setSolverJobScheduler(SolverJobScheduler solverJobScheduler) {
+        this.solverJobScheduler = solverJobScheduler;
+    }
+
+    /** 最佳解事件管道 - 按间隔发布求解进度快照 */
+    private BestSolutionPublisher bestSolutionPublisher;
+
+    /**
+     * 设置最佳解事件管道
+     * @param bestSolutionPublisher 最佳解事件管道，提供最近发布的求解进度快照
+     */
+    @Autowired
+    public void setBestSolutionPublisher(BestSolutionPublisher bestSolutionPublisher) {
+        this.bestSolutionPublisher = bestSolutionPublisher;
+    }
+
+    /** 约束匹配查询 - 缓存每个解版本的约束匹配明细 */
+    private ConstraintIndictmentService constraintIndictmentService;
+
+    /**
+     * 设置约束匹配查询服务
+     * @param constraintIndictmentService 约束匹配查询服务，提供分页的约束匹配明细和约束汇总
+     */
+    @Autowired
+    public void setConstraintIndictmentService(ConstraintIndictmentService constraintIndictmentService) {
+        this.constraintIndictmentService = constraintIndictmentService;
+    }
+
+    /** 合成数据服务 - 生成大规模测试数据 */
+    private SyntheticDataService syntheticDataService;
+
+    /**
+     * 设置合成数据服务
+     * @param syntheticDataService 合成数据服务，按分布参数生成并保存规模测试数据
+     */
+    @Autowired
+    public void setSyntheticDataService(SyntheticDataService syntheticDataService) {
+        this.syntheticDataService = syntheticDataService;
+    }
+
     /**
      * 启动调度求解
      * <p>根据指定的问题ID和订单编号列表开始调度优化过程，触发OptaPlanner求解器进行排程计算。</p>
      * 
+     * <p>可通过profile参数为本次求解指定求解配置(如debug)，不影响其他问题的求解。</p>
+     * <p>求解请求先进入求解队列，有空闲名额时立即开始，否则按优先级排队；
+     * 队列已满或问题正在求解时返回错误，同一问题重复排队时按配置合并或拒绝。</p>
+     *
      * @param problemId 问题ID，用于唯一标识本次调度任务
      * @param orderNos 需要参与调度的订单编号列表
-     * @return 操作结果，包含成功消息
+     * @param profile 求解配置名称，可选，默认使用aps.solver.profile
+     * @param priority 优先级，可选，越大越先求解，默认0
+     * @return 操作结果，包含受理结果消息
      */
     @PostMapping("/solve/{problemId}")
-    public ApiResponse<String> startScheduling(@PathVariable Long problemId, @RequestBody List<String> orderNos) {
-        schedulingService.startScheduling(problemId, orderNos);
-        return ApiResponse.success("Scheduling started for problem " + problemId);
+    public ApiResponse<String> startScheduling(@PathVariable Long problemId, @RequestBody List<String> orderNos,
+                                               @RequestParam(value = "profile", required = false) String profile,
+                                               @RequestParam(value = "priority", defaultValue = "0") int priority) {
+        SolverJobScheduler.Admission admission;
+        try {
+            admission = solverJobScheduler.submit(problemId, orderNos, profile, priority);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+        switch (admission) {
+            case STARTED:
+                return ApiResponse.success("Scheduling started for problem " + problemId);
+            case COALESCED:
+                return ApiResponse.success("Scheduling request merged into queued job for problem " + problemId);
+            default:
+                return ApiResponse.success("Scheduling queued for problem " + problemId);
+        }
+    }
+
+    /**
+     * 从检查点恢复调度求解
+     * <p>求解过程中会定期保存最佳解的日历分配检查点，JVM重启等原因中断后调用此接口，
+     * 以最近的检查点热启动继续求解，任务编号沿用中断前的求解。与启动求解一样经由求解队列。</p>
+     *
+     * @param problemId 问题ID
+     * @param profile   求解配置名称，可选，不传时沿用中断前的求解配置
+     * @param priority  优先级，越大越先求解，默认0
+     * @return HTTP响应，包含操作结果消息；没有检查点时返回错误
+     */
+    @PostMapping("/resume/{problemId}")
+    public ApiResponse<String> resumeScheduling(@PathVariable Long problemId,
+                                                @RequestParam(value = "profile", required = false) String profile,
+                                                @RequestParam(value = "priority", defaultValue = "0") int priority) {
+        SolverJobScheduler.Admission admission;
+        try {
+            admission = solverJobScheduler.resume(problemId, profile, priority);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+        if (admission == SolverJobScheduler.Admission.STARTED) {
+            return ApiResponse.success("Scheduling resumed from checkpoint for problem " + problemId);
+        }
+        return ApiResponse.success("Scheduling resume queued for problem " + problemId);
+    }
+
+    /**
+     * 获取求解队列状态
+     * <p>返回并发求解数、队列容量、正在求解的问题ID以及排队中的作业(按出队顺序)和已等待时间。</p>
+     *
+     * @return 求解队列快照
+     */
+    @GetMapping("/queue")
+    public ApiResponse<SolverQueueStatus> getQueueStatus() {
+        return ApiResponse.success(solverJobScheduler.getQueueStatus());
     }
 
     /**
      * 停止调度求解
-     * <p>停止指定问题ID的调度求解过程，释放计算资源。</p>
+     * <p>停止指定问题ID的调度求解过程，释放计算资源；作业仍在排队时直接从队列移除。</p>
      * 
      * @param problemId 问题ID，指定要停止的调度任务
      * @return HTTP响应，包含操作结果消息
      */
     @PostMapping("/stop/{problemId}")
     public ApiResponse<String> stopScheduling(@PathVariable Long problemId) {
-        schedulingService.stopScheduling(problemId);
+        solverJobScheduler.cancel(problemId);
         return ApiResponse.success("Scheduling stopped for problem " + problemId);
     }
 
+    /**
+     * 求解期间加入任务(插单)
+     * <p>任务的时间槽以问题变更加入正在运行的求解，由求解器从当前排程继续求解，不需要重新开始。</p>
+     *
+     * @param problemId 问题ID
+     * @param taskNos   任务编号列表
+     * @return 操作结果消息，问题不在求解中时返回错误
+     */
+    @PostMapping("/changes/{problemId}/tasks")
+    public ApiResponse<String> addTasks(@PathVariable Long problemId, @RequestBody List<String> taskNos) {
+        try {
+            schedulingService.addTasks(problemId, taskNos);
+        } catch (IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+        return ApiResponse.success("Tasks submitted to running solve of problem " + problemId);
+    }
+
+    /**
+     * 求解期间移除时间槽
+     *
+     * @param problemId   问题ID
+     * @param timeslotIds 时间槽ID列表
+     * @return 操作结果消息，问题不在求解中时返回错误
+     */
+    @PostMapping("/changes/{problemId}/timeslots/remove")
+    public ApiResponse<String> removeTimeslots(@PathVariable Long problemId, @RequestBody List<String> timeslotIds) {
+        try {
+            schedulingService.removeTimeslots(problemId, timeslotIds);
+        } catch (IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+        return ApiResponse.success("Timeslot removal submitted to running solve of problem " + problemId);
+    }
+
+    /**
+     * 求解期间修改工作中心日历的容量或状态
+     *
+     * @param problemId     问题ID
+     * @param maintenanceId 日历ID
+     * @param capacity      容量(分钟)，可选
+     * @param status        状态，可选
+     * @return 操作结果消息，问题不在求解中时返回错误
+     */
+    @PutMapping("/changes/{problemId}/maintenances/{maintenanceId}")
+    public ApiResponse<String> changeMaintenance(@PathVariable Long problemId, @PathVariable String maintenanceId,
+                                                 @RequestParam(value = "capacity", required = false) Integer capacity,
+                                                 @RequestParam(value = "status", required = false) String status) {
+        try {
+            schedulingService.changeMaintenance(problemId, maintenanceId, capacity, status);
+        } catch (IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+        return ApiResponse.success("Maintenance change submitted to running solve of problem " + problemId);
+    }
+
+    /**
+     * 求解期间固定时间槽
+     *
+     * @param problemId     问题ID
+     * @param timeslotId    时间槽ID
+     * @param maintenanceId 固定到的日历ID，可选，不传时固定在当前日历
+     * @return 操作结果消息，问题不在求解中时返回错误
+     */
+    @PostMapping("/changes/{problemId}/timeslots/{timeslotId}/pin")
+    public ApiResponse<String> pinTimeslot(@PathVariable Long problemId, @PathVariable String timeslotId,
+                                           @RequestParam(value = "maintenanceId", required = false) String maintenanceId) {
+        try {
+            schedulingService.pinTimeslot(problemId, timeslotId, maintenanceId);
+        } catch (IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+        return ApiResponse.success("Pin submitted to running solve of problem " + problemId);
+    }
+
     /**
      * 获取最佳解决方案
      * <p>获取指定问题ID的当前最佳调度解决方案，包含所有已优化的时间槽安排。</p>
@@ -87,12 +278,7 @@ public class SchedulingController {
      */
     @GetMapping("/solution/{problemId}")
     public ApiResponse<FactorySchedulingSolution> getBestSolution(@PathVariable Long problemId) {
-        FactorySchedulingSolution solution = schedulingService.getBestSolution(problemId);
-        // 注意：此处有一段无实际作用的循环代码，在实际优化中应移除
-        for (Timeslot timeslot : solution.getTimeslots()) {
-            int i = 1;
-        }
-        return ApiResponse.success(solution);
+        return ApiResponse.success(schedulingService.getBestSolution(problemId));
     }
 
     /**
@@ -108,6 +294,30 @@ public class SchedulingController {
         return ApiResponse.success(hardSoftScore);
     }
 
+    /**
+     * 获取求解进度
+     * <p>返回最近发布的最佳解快照(分数、自上次发布以来变化的时间槽ID)，不复制完整的解决方案，适合界面轮询。</p>
+     *
+     * @param problemId 问题ID
+     * @return 最近的快照，尚未发布过时为空
+     */
+    @GetMapping("/progress/{problemId}")
+    public ApiResponse<BestSolutionSnapshot> getProgress(@PathVariable Long problemId) {
+        return ApiResponse.success(bestSolutionPublisher.getLatestSnapshot(problemId));
+    }
+
+    /**
+     * 获取求解报告
+     * <p>返回问题最近一次求解结束时的报告：问题规模、时间预算、结束原因以及各阶段的预算、耗时、步数和分数。</p>
+     *
+     * @param problemId 问题ID
+     * @return 求解报告，本次启动后该问题还没有求解结束时为空
+     */
+    @GetMapping("/report/{problemId}")
+    public ApiResponse<SolveReport> getSolveReport(@PathVariable Long problemId) {
+        return ApiResponse.success(schedulingService.getSolveReport(problemId));
+    }
+
     /**
      * 获取求解状态
      * <p>获取指定问题ID的当前调度任务的求解状态，如正在求解、已完成、未开始等。</p>
@@ -117,7 +327,7 @@ public class SchedulingController {
      */
     @GetMapping("/status/{problemId}")
     public ApiResponse<String> getStatus(@PathVariable Long problemId) {
-        SolverStatus isSolving = schedulingService.isSolving(problemId);
+        SolverStatus isSolving = solverJobScheduler.getSolverStatus(problemId);
         return ApiResponse.success(isSolving.name());
     }
 
@@ -153,6 +363,7 @@ public class SchedulingController {
     /**
      * 获取解决方案详细解释
      * <p>获取指定问题ID的当前最佳解决方案的详细评分解释，包括各约束条件的贡献和违反情况。</p>
+     * <p>返回全部约束匹配，问题较大时响应很大，界面展示违反情况请使用/indictments接口分页查询。</p>
      * 
      * @param problemId 问题ID，指定要获取解释的调度任务
      * @return 包含评分解释的HTTP响应，可用于分析调度结果的质量
@@ -162,6 +373,62 @@ public class SchedulingController {
         return ApiResponse.success(schedulingService.explainSolution(problemId));
     }
 
+    /**
+     * 分页查询约束匹配明细
+     * <p>按分数影响从差到好排序，可按约束名称、工作中心编码、任务编号过滤，默认只返回惩罚。
+     * 同一个最佳解只做一次分数解释，翻页和换过滤条件不重复计算。</p>
+     *
+     * @param problemId      问题ID
+     * @param constraintName 约束名称
+     * @param workCenterCode 工作中心编码
+     * @param taskNo         任务编号
+     * @param penaltyOnly    是否只返回惩罚，默认true
+     * @param pageNum        页码(从1开始)
+     * @param pageSize       每页数量
+     * @return 约束匹配明细分页结果
+     */
+    @GetMapping("/indictments/{problemId}")
+    public ApiResponse<Page<ConstraintIndictment>> getIndictments(@PathVariable Long problemId,
+                                                                  @RequestParam(required = false) String constraintName,
+                                                                  @RequestParam(required = false) String workCenterCode,
+                                                                  @RequestParam(required = false) String taskNo,
+                                                                  @RequestParam(defaultValue = "true") boolean penaltyOnly,
+                                                                  @RequestParam(defaultValue = "1") Integer pageNum,
+                                                                  @RequestParam(defaultValue = "20") Integer pageSize) {
+        Page<ConstraintIndictment> page = constraintIndictmentService.queryIndictments(problemId, constraintName,
+                workCenterCode, taskNo, penaltyOnly, pageNum, pageSize);
+        return ApiResponse.success(page);
+    }
+
+    /**
+     * 获取各约束的汇总
+     * <p>返回每个约束的匹配数和总分数影响，按总分数影响从差到好排序，可作为/indictments的约束过滤选项。</p>
+     *
+     * @param problemId 问题ID
+     * @return 约束汇总列表
+     */
+    @GetMapping("/indictments/{problemId}/constraints")
+    public ApiResponse<List<ConstraintIndictment.ConstraintTotal>> getConstraintTotals(@PathVariable Long problemId) {
+        return ApiResponse.success(constraintIndictmentService.getConstraintTotals(problemId));
+    }
+
+    /**
+     * 生成合成数据
+     * <p>按分布参数生成订单、任务、工序网络、分片时间槽和工作中心日历并保存，用于规模测试。
+     * 返回的任务编号可直接提交到/solve。需开启aps.synthetic-data.enabled。</p>
+     *
+     * @param request 生成参数，未设置的字段使用默认值
+     * @return 数据规模、各实体保存耗时和任务编号
+     */
+    @PostMapping("/synthetic")
+    public ApiResponse<SyntheticDataResult> generateSyntheticData(@RequestBody SyntheticDataRequest request) {
+        try {
+            return ApiResponse.success(syntheticDataService.generate(request));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
 
     /**
      * 更新时间槽
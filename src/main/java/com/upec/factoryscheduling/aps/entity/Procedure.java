@@ -1,6 +1,7 @@
 package com.upec.factoryscheduling.aps.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.upec.factoryscheduling.common.utils.DateUtils;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -72,6 +73,11 @@ public class Procedure implements Serializable {
     @Column(name = "plan_end_date")
     private LocalDate planEndDate;
 
+    //计划结束日期23:59相对规划基准时间的分钟数,加载问题时计算
+    @Transient
+    @JsonIgnore
+    private int planEndMinute = DateUtils.NO_MINUTE;
+
     private String status;
 
     private boolean parallel;
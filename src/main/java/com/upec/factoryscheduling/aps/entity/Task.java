@@ -1,5 +1,7 @@
 package com.upec.factoryscheduling.aps.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.upec.factoryscheduling.common.utils.DateUtils;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -7,6 +9,7 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -45,6 +48,16 @@ public class Task implements Serializable {
     @Column(name = "plan_end_date")
     private LocalDate planEndDate;
 
+    //实际开始时间相对规划基准时间的分钟数,加载问题时计算
+    @Transient
+    @JsonIgnore
+    private int factStartMinute = DateUtils.NO_MINUTE;
+
+    //计划开始日期0点相对规划基准时间的分钟数,加载问题时计算
+    @Transient
+    @JsonIgnore
+    private int planStartMinute = DateUtils.NO_MINUTE;
+
     private int priority;
 
     private String routeId;
@@ -1,29 +1,40 @@
 package com.upec.factoryscheduling.aps.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.upec.factoryscheduling.aps.solution.TimeslotPinningFilter;
 import com.upec.factoryscheduling.aps.solution.TimeslotVariableListener;
+import com.upec.factoryscheduling.common.utils.DateUtils;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.ToString;
 import org.optaplanner.core.api.domain.entity.PlanningEntity;
 import org.optaplanner.core.api.domain.lookup.PlanningId;
+import org.optaplanner.core.api.domain.variable.PiggybackShadowVariable;
+import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
 import org.optaplanner.core.api.domain.variable.PlanningVariable;
 import org.optaplanner.core.api.domain.variable.ShadowVariable;
 
 import javax.persistence.*;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Entity
-@PlanningEntity
+@PlanningEntity(pinningFilter = TimeslotPinningFilter.class)
 @Getter
 @Setter
 @Data
+// 只按ID比较：规划变量和影子变量在求解中不断变化，禁忌搜索等把实体放入哈希集合的算法要求哈希值稳定
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Table(name = "aps_timeslot")
 public class Timeslot implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
     @PlanningId
+    @EqualsAndHashCode.Include
     private String id;
 
     @Column(name = "problem_id")
@@ -43,18 +54,37 @@ public class Timeslot implements Serializable {
     @Column(name = "start_time")
     private LocalDateTime startTime;
 
+    //规划结束时间 = 开始时间 + 当天分配时间
+    @PiggybackShadowVariable(shadowVariableName = "startTime")
     @Column(name = "end_time")
     private LocalDateTime endTime;
 
+    //规划开始时间相对规划基准时间的分钟数,供约束计算使用,随startTime一起由变量监听器更新
+    @Transient
+    @JsonIgnore
+    private int startMinute = DateUtils.NO_MINUTE;
+
+    //规划结束时间相对规划基准时间的分钟数,供约束计算使用,随endTime一起由变量监听器更新
+    @Transient
+    @JsonIgnore
+    private int endMinute = DateUtils.NO_MINUTE;
+
     //绑定的工作中心日历
     @PlanningVariable(valueRangeProviderRefs = "maintenanceRange")
     @OneToOne(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH})
     private WorkCenterMaintenance maintenance;
 
+    //可选的工作中心日历 - 仅包含本工序工作中心的日历,加载问题时由FactorySchedulingSolution绑定
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    @ValueRangeProvider(id = "maintenanceRange")
+    private List<WorkCenterMaintenance> maintenanceRange;
+
     //当前工序是否为并行工序
     private boolean parallel;
 
-    //当天工序已完成或者手动排序,该时间槽不可动
+    //当天工序已完成或者手动排序,该时间槽不可动,绑定日历后由TimeslotPinningFilter固定
     private boolean manual;
 
     //当前工序的时间槽索引
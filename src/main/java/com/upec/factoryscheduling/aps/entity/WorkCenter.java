@@ -8,12 +8,14 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import java.io.Serializable;
 
 @Entity
 @Table(name = "aps_work_center")
 @Getter
 @Setter
-public class WorkCenter {
+public class WorkCenter implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     @Id
     @PlanningId
@@ -1,7 +1,10 @@
 package com.upec.factoryscheduling.aps.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.upec.factoryscheduling.common.utils.DateUtils;
 import lombok.Getter;
 import lombok.Setter;
+import org.optaplanner.core.api.domain.lookup.PlanningId;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -15,7 +18,9 @@ import java.time.LocalTime;
 public class WorkCenterMaintenance implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    //多线程求解时按ID在各移动线程的规划克隆之间定位日历
     @Id
+    @PlanningId
     private String id;
 
     @OneToOne(fetch = FetchType.EAGER)
@@ -44,6 +49,11 @@ public class WorkCenterMaintenance implements Serializable {
     @Column(name = "usage_time")
     private int usageTime;
 
+    //当天开始时间相对规划基准时间的分钟数,加载问题时计算
+    @Transient
+    @JsonIgnore
+    private int startMinute = DateUtils.NO_MINUTE;
+
     /**
      * 检查是否还有可用容量
      */
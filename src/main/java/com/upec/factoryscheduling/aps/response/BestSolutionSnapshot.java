@@ -0,0 +1,42 @@
+package com.upec.factoryscheduling.aps.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 最佳解快照，由求解事件管道按固定间隔发布
+ * <p>只包含分数和自上次发布以来日历分配发生变化的时间槽ID，不包含完整的解决方案。</p>
+ */
+@Data
+public class BestSolutionSnapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long problemId;
+    private String score;
+    private boolean feasible;
+    /**
+     * 是否为求解结束时的最终解
+     */
+    private boolean finished;
+    private int timeslotCount;
+    private int assignedCount;
+    /**
+     * 自上次发布以来日历分配变化的时间槽ID
+     */
+    private List<String> changedTimeslotIds;
+    /**
+     * 两次发布之间合并掉的最佳解个数
+     */
+    private long coalescedCount;
+    private LocalDateTime publishedAt;
+    /**
+     * 全部已分配时间槽的日历(时间槽ID→日历ID)，只供进程内的监听器(如检查点)使用，不随接口返回
+     */
+    @JsonIgnore
+    private transient Map<String, String> assignments;
+}
@@ -0,0 +1,40 @@
+package com.upec.factoryscheduling.aps.response;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 约束匹配明细：一次约束匹配的分数影响及涉及的时间槽、任务、工作中心和日期
+ */
+@Data
+public class ConstraintIndictment implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String constraintName;
+    /**
+     * 分数影响，负数为惩罚、正数为奖励
+     */
+    private String score;
+    private int hardScore;
+    private int mediumScore;
+    private int softScore;
+    private List<String> timeslotIds;
+    private List<String> taskNos;
+    private List<String> workCenterCodes;
+    private List<LocalDate> dates;
+
+    /**
+     * 单个约束的汇总
+     */
+    @Data
+    public static class ConstraintTotal implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String constraintName;
+        private int matchCount;
+        private String score;
+    }
+}
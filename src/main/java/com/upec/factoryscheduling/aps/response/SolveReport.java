@@ -0,0 +1,63 @@
+package com.upec.factoryscheduling.aps.response;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 求解报告：问题规模、时间预算、结束原因及各阶段的耗时和分数
+ */
+@Data
+public class SolveReport implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 时间预算用完
+     */
+    public static final String REASON_BUDGET = "BUDGET";
+    /**
+     * 局部搜索进入平台期
+     */
+    public static final String REASON_PLATEAU = "PLATEAU";
+    /**
+     * 手动停止
+     */
+    public static final String REASON_TERMINATED_EARLY = "TERMINATED_EARLY";
+    /**
+     * 求解配置的固定终止条件(spent-limit、unimproved-spent-limit、best-score-limit)或阶段全部完成
+     */
+    public static final String REASON_LIMIT = "LIMIT";
+
+    private Long problemId;
+    private int timeslotCount;
+    private int maintenanceCount;
+    /**
+     * 按问题规模计算的时间预算，未启用自适应终止时为空
+     */
+    private Long budgetMillis;
+    private long spentMillis;
+    private String terminationReason;
+    private String bestScore;
+    private List<PhaseReport> phases;
+
+    @Data
+    public static class PhaseReport implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private int phaseIndex;
+        /**
+         * 阶段类型，例如CustomPhase、LocalSearchPhase、PartitionedSearchPhase
+         */
+        private String phaseType;
+        /**
+         * 阶段开始时剩余的时间预算，未启用自适应终止时为空
+         */
+        private Long budgetMillis;
+        private long spentMillis;
+        private int stepCount;
+        private String startingScore;
+        private String bestScore;
+        private long scoreCalculationSpeed;
+    }
+}
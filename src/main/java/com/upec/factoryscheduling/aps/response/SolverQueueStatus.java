@@ -0,0 +1,26 @@
+package com.upec.factoryscheduling.aps.response;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+public class SolverQueueStatus implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int parallelSolverCount;
+    private int capacity;
+    private List<Long> running;
+    private List<QueuedJob> queued;
+
+    @Data
+    public static class QueuedJob implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long problemId;
+        private String profile;
+        private int priority;
+        private long waitMillis;
+    }
+}
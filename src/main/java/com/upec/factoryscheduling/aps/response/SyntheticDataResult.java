@@ -0,0 +1,26 @@
+package com.upec.factoryscheduling.aps.response;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class SyntheticDataResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String prefix;
+    private int workCenterCount;
+    private int maintenanceCount;
+    private int orderCount;
+    private int taskCount;
+    private int procedureCount;
+    private int timeslotCount;
+    private long generateMillis;
+    // 各实体保存耗时(毫秒)，按保存顺序
+    private Map<String, Long> saveMillis = new LinkedHashMap<>();
+    // 生成的任务编号，可直接作为求解请求的任务列表
+    private List<String> taskNos;
+}
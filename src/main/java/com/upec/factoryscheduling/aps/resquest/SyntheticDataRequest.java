@@ -0,0 +1,83 @@
+package com.upec.factoryscheduling.aps.resquest;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * 合成调度数据参数
+ * <p>由少量分布参数描述订单、任务、工序网络、分片和工作中心日历的形态，
+ * 未设置的字段使用默认值。相同参数(含随机种子)生成的数据完全相同。</p>
+ */
+@Data
+public class SyntheticDataRequest {
+
+    /** 随机种子 */
+    private long seed = 42L;
+
+    /** 目标时间槽数量，按完整任务生成，实际数量不少于该值，超出部分不超过一个任务的时间槽数 */
+    private int timeslotCount = 10000;
+
+    /** 编号前缀，订单、任务、工作中心编号均以此开头，便于与生产数据区分和清理 */
+    private String prefix = "SYN";
+
+    /** 工作中心数量(含一个外协工作中心PM10W200)，不大于0时按目标负荷率推算 */
+    private int workCenterCount;
+
+    /** 目标负荷率：未指定工作中心数量时，按全部自制工序机时与日历容量之比推算工作中心数量 */
+    private double targetUtilization = 0.8;
+
+    /** 规划开始日期，为空时取当天 */
+    private LocalDate startDate;
+
+    /** 日历天数 */
+    private int horizonDays = 60;
+
+    /** 每个订单的任务数 */
+    private int tasksPerOrder = 20;
+
+    /** 每个任务的最少工序级数 */
+    private int minLevels = 4;
+
+    /** 每个任务的最多工序级数 */
+    private int maxLevels = 8;
+
+    /** 某一级分叉为两道并行工序的概率，并行工序在下一级汇合 */
+    private double branchProbability = 0.2;
+
+    /** 某一级开始一段外协工序链(PM10W200)的概率 */
+    private double outsourcingProbability = 0.1;
+
+    /** 外协工序链的最大长度 */
+    private int maxOutsourcingChainLength = 3;
+
+    /** 工序机时(分钟)对数正态分布的中位数 */
+    private int medianMachineMinutes = 240;
+
+    /** 工序机时对数正态分布的对数标准差 */
+    private double machineMinutesSigma = 0.8;
+
+    /** 单个分片的最大时长(分钟)，工序机时超过时按该时长切分 */
+    private int maxSliceMinutes = 480;
+
+    /** 单道工序的最大分片数 */
+    private int maxSlices = 6;
+
+    /** 工作中心每天的容量(分钟) */
+    private int dailyCapacityMinutes = 480;
+
+    /** 周末是否不排班(不生成日历) */
+    private boolean closedWeekends = true;
+
+    /** 某天日历已被占用部分容量的概率 */
+    private double usedCapacityProbability = 0.2;
+
+    /** 任务已实际开工的概率 */
+    private double factStartProbability = 0.3;
+
+    /** 工序已手工排定(带开始时间，时间槽固定)的概率 */
+    private double manualProbability = 0.01;
+
+    /** 任务优先级上限，优先级在1到该值之间均匀分布 */
+    private int maxPriority = 5;
+}
@@ -0,0 +1,214 @@
+package com.upec.factoryscheduling.aps.service;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.response.BestSolutionSnapshot;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.common.configuration.SolverProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 最佳解事件管道
+ * <p>求解过程中找到更好的解时只把解放入该问题的最新值槽位，旧的未发布的解直接被覆盖；
+ * 单独的发布线程按aps.solver.events.publish-interval取出槽位中的解，生成{@link BestSolutionSnapshot}
+ * (分数、自上次发布以来日历分配变化的时间槽ID)，作为Spring事件发布并保留最新快照供查询，
+ * 求解检查点也从快照保存(见ApsSchedulingWorkService)。
+ * 日志、界面推送、持久化等监听器都在发布线程上执行，不会拖慢求解。</p>
+ * <p>求解结束时的最终解立即发布，不等待发布间隔。</p>
+ * <p>指标：aps.solver.events.published(发布的快照数)、aps.solver.events.coalesced(合并掉的最佳解数)。</p>
+ */
+@Service
+@Slf4j
+public class BestSolutionPublisher {
+
+    private SolverProperties solverProperties;
+
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 正在求解的问题的槽位
+     */
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    private final Map<Long, BestSolutionSnapshot> latestSnapshots = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "best-solution-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Counter publishedCounter;
+
+    private Counter coalescedCounter;
+
+    @Autowired
+    public void setSolverProperties(SolverProperties solverProperties) {
+        this.solverProperties = solverProperties;
+    }
+
+    @Autowired
+    public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    @Autowired
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        publishedCounter = Counter.builder("aps.solver.events.published")
+                .description("发布的最佳解快照数")
+                .register(meterRegistry);
+        coalescedCounter = Counter.builder("aps.solver.events.coalesced")
+                .description("发布前被更新的最佳解覆盖的最佳解数")
+                .register(meterRegistry);
+        long interval = Math.max(1, solverProperties.getEvents().getPublishInterval().toMillis());
+        publisher.scheduleWithFixedDelay(this::drain, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publisher.shutdownNow();
+    }
+
+    /**
+     * 登记新的最佳解，在求解器的最佳解回调中调用，只做一次写入
+     *
+     * @param problemId 问题ID
+     * @param solution  最佳解
+     */
+    public void offer(Long problemId, FactorySchedulingSolution solution) {
+        Slot slot = slots.computeIfAbsent(problemId, id -> new Slot());
+        slot.offeredCount.incrementAndGet();
+        slot.pending.set(solution);
+    }
+
+    /**
+     * 求解结束，立即发布最终解并释放该问题的槽位
+     *
+     * @param problemId     问题ID
+     * @param finalSolution 最终解
+     */
+    public void complete(Long problemId, FactorySchedulingSolution finalSolution) {
+        // 在调用线程上移除槽位，同一问题随后开始的新求解使用新的槽位
+        Slot removed = slots.remove(problemId);
+        Slot slot = removed == null ? new Slot() : removed;
+        publisher.execute(() -> {
+            slot.pending.set(null);
+            publish(problemId, slot, finalSolution, true);
+        });
+    }
+
+    /**
+     * 求解出错，丢弃该问题未发布的最佳解
+     *
+     * @param problemId 问题ID
+     */
+    public void discard(Long problemId) {
+        slots.remove(problemId);
+    }
+
+    /**
+     * 获取问题最近发布的快照
+     *
+     * @param problemId 问题ID
+     * @return 最近的快照，尚未发布过时为null
+     */
+    public BestSolutionSnapshot getLatestSnapshot(Long problemId) {
+        return latestSnapshots.get(problemId);
+    }
+
+    private void drain() {
+        for (Map.Entry<Long, Slot> entry : slots.entrySet()) {
+            FactorySchedulingSolution solution = entry.getValue().pending.getAndSet(null);
+            if (solution != null) {
+                publish(entry.getKey(), entry.getValue(), solution, false);
+            }
+        }
+    }
+
+    private void publish(Long problemId, Slot slot, FactorySchedulingSolution solution, boolean finished) {
+        // 异常不能抛出发布线程，否则定时任务会被取消
+        try {
+            long coalesced = Math.max(0, slot.offeredCount.getAndSet(0) - 1);
+            BestSolutionSnapshot snapshot = snapshot(problemId, slot, solution, finished);
+            snapshot.setCoalescedCount(coalesced);
+            latestSnapshots.put(problemId, snapshot);
+            publishedCounter.increment();
+            coalescedCounter.increment(coalesced);
+            log.info("Problem {} {} best solution {}: {} timeslots changed, {} coalesced", problemId,
+                    finished ? "final" : "new", snapshot.getScore(), snapshot.getChangedTimeslotIds().size(), coalesced);
+            applicationEventPublisher.publishEvent(snapshot);
+        } catch (RuntimeException e) {
+            log.error("Failed to publish best solution of problem {}", problemId, e);
+        }
+    }
+
+    private static BestSolutionSnapshot snapshot(Long problemId, Slot slot, FactorySchedulingSolution solution,
+                                                 boolean finished) {
+        List<String> changed = new ArrayList<>();
+        Map<String, String> assignments = new HashMap<>();
+        Map<String, String> assignedMaintenances = new HashMap<>();
+        for (Timeslot timeslot : solution.getTimeslots()) {
+            String maintenanceId = timeslot.getMaintenance() == null ? null : timeslot.getMaintenance().getId();
+            if (maintenanceId != null) {
+                assignedMaintenances.put(timeslot.getId(), maintenanceId);
+            }
+            assignments.put(timeslot.getId(), maintenanceId);
+            if (!Objects.equals(slot.lastAssignments.get(timeslot.getId()), maintenanceId)) {
+                changed.add(timeslot.getId());
+            }
+        }
+        slot.lastAssignments = assignments;
+        BestSolutionSnapshot snapshot = new BestSolutionSnapshot();
+        snapshot.setProblemId(problemId);
+        snapshot.setScore(solution.getScore() == null ? null : solution.getScore().toString());
+        snapshot.setFeasible(solution.getScore() != null && solution.getScore().isFeasible());
+        snapshot.setFinished(finished);
+        snapshot.setTimeslotCount(solution.getTimeslots().size());
+        snapshot.setAssignedCount(assignedMaintenances.size());
+        snapshot.setAssignments(assignedMaintenances);
+        snapshot.setChangedTimeslotIds(changed);
+        snapshot.setPublishedAt(LocalDateTime.now());
+        return snapshot;
+    }
+
+    /**
+     * 单个问题的最新值槽位
+     */
+    private static class Slot {
+
+        private final AtomicReference<FactorySchedulingSolution> pending = new AtomicReference<>();
+
+        private final AtomicLong offeredCount = new AtomicLong();
+
+        /**
+         * 上次发布时各时间槽的日历ID，只在发布线程上读写
+         */
+        private Map<String, String> lastAssignments = new HashMap<>();
+    }
+}
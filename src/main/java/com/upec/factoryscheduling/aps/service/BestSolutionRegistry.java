@@ -0,0 +1,48 @@
+package com.upec.factoryscheduling.aps.service;
+
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 每个问题最新最佳解的内存登记
+ * <p>求解器每找到更好的解(以及求解结束时的最终解)就替换该问题的引用，查询接口直接读取，
+ * 不再为每次轮询从数据库加载全部时间槽和日历。登记的解是求解器交出的副本，求解器不会再修改它，
+ * 读取方也不得修改其中的规划实体。求解结束后保留最终解，直到下一次求解或清空数据。</p>
+ */
+@Service
+public class BestSolutionRegistry {
+
+    private final Map<Long, AtomicReference<FactorySchedulingSolution>> solutions = new ConcurrentHashMap<>();
+
+    /**
+     * 登记问题的最新最佳解
+     *
+     * @param problemId 问题ID
+     * @param solution  最佳解
+     */
+    public void put(Long problemId, FactorySchedulingSolution solution) {
+        solutions.computeIfAbsent(problemId, id -> new AtomicReference<>()).set(solution);
+    }
+
+    /**
+     * 获取问题的最新最佳解
+     *
+     * @param problemId 问题ID
+     * @return 最新最佳解，该问题在本进程中没有求解过时为null
+     */
+    public FactorySchedulingSolution get(Long problemId) {
+        AtomicReference<FactorySchedulingSolution> reference = solutions.get(problemId);
+        return reference == null ? null : reference.get();
+    }
+
+    /**
+     * 清空所有登记的解
+     */
+    public void clear() {
+        solutions.clear();
+    }
+}
@@ -0,0 +1,232 @@
+package com.upec.factoryscheduling.aps.service;
+
+import com.upec.factoryscheduling.aps.entity.Procedure;
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.response.ConstraintIndictment;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import lombok.extern.slf4j.Slf4j;
+import org.optaplanner.core.api.score.ScoreExplanation;
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+import org.optaplanner.core.api.score.constraint.ConstraintMatch;
+import org.optaplanner.core.api.score.constraint.ConstraintMatchTotal;
+import org.optaplanner.core.api.solver.SolutionManager;
+import org.optaplanner.core.api.solver.SolutionUpdatePolicy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 约束匹配查询
+ * <p>对问题的最佳解做一次分数解释，展开为按分数影响排序的约束匹配明细并缓存，
+ * 之后按约束、工作中心、任务过滤和分页都只读缓存，界面不必拉取完整的ScoreExplanation。</p>
+ * <p>缓存以解的版本为准：求解中登记的每个最佳解(见{@link BestSolutionRegistry})只解释一次，
+ * 最佳解被替换后下一次查询重新解释。本进程没有登记过解的问题从数据库加载排程，每次查询都重新解释。</p>
+ */
+@Slf4j
+@Service
+public class ConstraintIndictmentService {
+
+    private SchedulingService schedulingService;
+
+    private BestSolutionRegistry bestSolutionRegistry;
+
+    private SolutionManager<FactorySchedulingSolution, HardMediumSoftScore> solutionManager;
+
+    private final Map<Long, Indictments> cache = new ConcurrentHashMap<>();
+
+    @Autowired
+    public void setSchedulingService(SchedulingService schedulingService) {
+        this.schedulingService = schedulingService;
+    }
+
+    @Autowired
+    public void setBestSolutionRegistry(BestSolutionRegistry bestSolutionRegistry) {
+        this.bestSolutionRegistry = bestSolutionRegistry;
+    }
+
+    @Autowired
+    public void setSolutionManager(SolutionManager<FactorySchedulingSolution, HardMediumSoftScore> solutionManager) {
+        this.solutionManager = solutionManager;
+    }
+
+    /**
+     * 分页查询约束匹配明细，按分数影响从差到好排序
+     *
+     * @param problemId      问题ID
+     * @param constraintName 约束名称，为空时不过滤
+     * @param workCenterCode 工作中心编码，为空时不过滤
+     * @param taskNo         任务编号，为空时不过滤
+     * @param penaltyOnly    是否只返回惩罚(分数影响为负)的匹配
+     * @param pageNum        页码(从1开始)
+     * @param pageSize       每页数量
+     * @return 分页结果
+     */
+    public Page<ConstraintIndictment> queryIndictments(Long problemId, String constraintName, String workCenterCode,
+                                                       String taskNo, boolean penaltyOnly, Integer pageNum,
+                                                       Integer pageSize) {
+        if (pageNum == null || pageNum < 1) {
+            pageNum = 1;
+        }
+        if (pageSize == null || pageSize < 1) {
+            pageSize = 20;
+        }
+        List<ConstraintIndictment> matched = getIndictments(problemId).rows.stream()
+                .filter(row -> !penaltyOnly || row.getHardScore() < 0 || row.getMediumScore() < 0 || row.getSoftScore() < 0)
+                .filter(row -> !StringUtils.hasText(constraintName) || constraintName.equals(row.getConstraintName()))
+                .filter(row -> !StringUtils.hasText(workCenterCode) || row.getWorkCenterCodes().contains(workCenterCode))
+                .filter(row -> !StringUtils.hasText(taskNo) || row.getTaskNos().contains(taskNo))
+                .collect(Collectors.toList());
+        int from = Math.min((pageNum - 1) * pageSize, matched.size());
+        int to = Math.min(from + pageSize, matched.size());
+        return new PageImpl<>(new ArrayList<>(matched.subList(from, to)), PageRequest.of(pageNum - 1, pageSize),
+                matched.size());
+    }
+
+    /**
+     * 各约束的匹配数和总分数影响，按总分数影响从差到好排序
+     *
+     * @param problemId 问题ID
+     * @return 约束汇总列表
+     */
+    public List<ConstraintIndictment.ConstraintTotal> getConstraintTotals(Long problemId) {
+        return getIndictments(problemId).totals;
+    }
+
+    private Indictments getIndictments(Long problemId) {
+        FactorySchedulingSolution registered = bestSolutionRegistry.get(problemId);
+        if (registered == null) {
+            // 数据库中的排程没有版本，不缓存
+            cache.remove(problemId);
+            return explain(schedulingService.getBestSolution(problemId), SolutionUpdatePolicy.UPDATE_ALL);
+        }
+        Indictments cached = cache.get(problemId);
+        if (cached != null && cached.solution == registered) {
+            return cached;
+        }
+        // 登记的解由求解器交出时影子变量已经一致，只重新计算分数和约束匹配
+        Indictments indictments = explain(registered, SolutionUpdatePolicy.UPDATE_SCORE_ONLY);
+        cache.put(problemId, indictments);
+        return indictments;
+    }
+
+    private Indictments explain(FactorySchedulingSolution solution, SolutionUpdatePolicy updatePolicy) {
+        long start = System.currentTimeMillis();
+        ScoreExplanation<FactorySchedulingSolution, HardMediumSoftScore> explanation =
+                solutionManager.explain(solution, updatePolicy);
+        List<ConstraintIndictment> rows = new ArrayList<>();
+        List<ConstraintIndictment.ConstraintTotal> totals = new ArrayList<>();
+        List<ConstraintMatchTotal<HardMediumSoftScore>> matchTotals =
+                new ArrayList<>(explanation.getConstraintMatchTotalMap().values());
+        matchTotals.sort(Comparator.comparing(ConstraintMatchTotal::getScore));
+        for (ConstraintMatchTotal<HardMediumSoftScore> matchTotal : matchTotals) {
+            ConstraintIndictment.ConstraintTotal total = new ConstraintIndictment.ConstraintTotal();
+            total.setConstraintName(matchTotal.getConstraintName());
+            total.setMatchCount(matchTotal.getConstraintMatchCount());
+            total.setScore(matchTotal.getScore().toString());
+            totals.add(total);
+            for (ConstraintMatch<HardMediumSoftScore> match : matchTotal.getConstraintMatchSet()) {
+                rows.add(toIndictment(match));
+            }
+        }
+        Comparator<ConstraintIndictment> byImpact = Comparator.comparingInt(ConstraintIndictment::getHardScore)
+                .thenComparingInt(ConstraintIndictment::getMediumScore)
+                .thenComparingInt(ConstraintIndictment::getSoftScore);
+        rows.sort(byImpact);
+        log.debug("Problem {} explained in {}ms: {} constraint matches, score {}", solution.getProblemId(),
+                System.currentTimeMillis() - start, rows.size(), explanation.getScore());
+        return new Indictments(solution, rows, Collections.unmodifiableList(totals));
+    }
+
+    private static ConstraintIndictment toIndictment(ConstraintMatch<HardMediumSoftScore> match) {
+        Set<String> timeslotIds = new LinkedHashSet<>();
+        Set<String> taskNos = new LinkedHashSet<>();
+        Set<String> workCenterCodes = new LinkedHashSet<>();
+        Set<LocalDate> dates = new LinkedHashSet<>();
+        for (Object indicted : match.getIndictedObjectList()) {
+            if (indicted instanceof Timeslot) {
+                Timeslot timeslot = (Timeslot) indicted;
+                timeslotIds.add(timeslot.getId());
+                addProcedure(timeslot.getProcedure(), taskNos, workCenterCodes);
+                addMaintenance(timeslot.getMaintenance(), workCenterCodes, dates);
+            } else if (indicted instanceof WorkCenterMaintenance) {
+                addMaintenance((WorkCenterMaintenance) indicted, workCenterCodes, dates);
+            } else if (indicted instanceof Procedure) {
+                addProcedure((Procedure) indicted, taskNos, workCenterCodes);
+            }
+        }
+        HardMediumSoftScore score = match.getScore();
+        ConstraintIndictment indictment = new ConstraintIndictment();
+        indictment.setConstraintName(match.getConstraintName());
+        indictment.setScore(score.toString());
+        indictment.setHardScore(score.hardScore());
+        indictment.setMediumScore(score.mediumScore());
+        indictment.setSoftScore(score.softScore());
+        indictment.setTimeslotIds(new ArrayList<>(timeslotIds));
+        indictment.setTaskNos(new ArrayList<>(taskNos));
+        indictment.setWorkCenterCodes(new ArrayList<>(workCenterCodes));
+        indictment.setDates(new ArrayList<>(dates));
+        return indictment;
+    }
+
+    private static void addProcedure(Procedure procedure, Set<String> taskNos, Set<String> workCenterCodes) {
+        if (procedure == null) {
+            return;
+        }
+        if (procedure.getTask() != null) {
+            taskNos.add(procedure.getTask().getTaskNo());
+        }
+        if (procedure.getWorkCenter() != null) {
+            workCenterCodes.add(procedure.getWorkCenter().getWorkCenterCode());
+        }
+    }
+
+    private static void addMaintenance(WorkCenterMaintenance maintenance, Set<String> workCenterCodes,
+                                       Set<LocalDate> dates) {
+        if (maintenance == null) {
+            return;
+        }
+        if (maintenance.getWorkCenter() != null) {
+            workCenterCodes.add(maintenance.getWorkCenter().getWorkCenterCode());
+        }
+        if (maintenance.getDate() != null) {
+            dates.add(maintenance.getDate());
+        }
+    }
+
+    /**
+     * 一个解版本的约束匹配明细，只读
+     */
+    private static final class Indictments {
+
+        /**
+         * 被解释的解，与登记的最佳解是同一个对象时缓存有效
+         */
+        private final FactorySchedulingSolution solution;
+
+        private final List<ConstraintIndictment> rows;
+
+        private final List<ConstraintIndictment.ConstraintTotal> totals;
+
+        private Indictments(FactorySchedulingSolution solution, List<ConstraintIndictment> rows,
+                            List<ConstraintIndictment.ConstraintTotal> totals) {
+            this.solution = solution;
+            this.rows = rows;
+            this.totals = totals;
+        }
+    }
+}
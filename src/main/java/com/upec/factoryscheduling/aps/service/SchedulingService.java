@@ -1,16 +1,27 @@
 package com.upec.factoryscheduling.aps.service;
 
 import com.upec.factoryscheduling.aps.entity.*;
+import com.upec.factoryscheduling.aps.response.SolveReport;
 import com.upec.factoryscheduling.aps.response.TimeslotValidate;
 import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.PlanningClock;
+import com.upec.factoryscheduling.aps.solver.AddTimeslotsProblemChange;
+import com.upec.factoryscheduling.aps.solver.MaintenanceProblemChange;
+import com.upec.factoryscheduling.aps.solver.PinTimeslotProblemChange;
+import com.upec.factoryscheduling.aps.solver.RemoveTimeslotsProblemChange;
+import com.upec.factoryscheduling.aps.solver.SolverManagerRegistry;
+import com.upec.factoryscheduling.common.configuration.SolverProperties;
+import com.upec.factoryscheduling.mes.service.ApsSchedulingWorkService;
 import com.xkzhangsan.time.calculator.DateTimeCalculatorUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.optaplanner.core.api.score.ScoreExplanation;
 import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
 import org.optaplanner.core.api.solver.SolutionManager;
+import org.optaplanner.core.api.solver.SolutionUpdatePolicy;
 import org.optaplanner.core.api.solver.SolverJob;
 import org.optaplanner.core.api.solver.SolverManager;
 import org.optaplanner.core.api.solver.SolverStatus;
+import org.optaplanner.core.api.solver.change.ProblemChange;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,6 +31,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -52,9 +64,29 @@ public class SchedulingService {
     private WorkCenterMaintenanceService maintenanceService;
 
     /**
-     * OptaPlanner求解器管理器 - 用于创建和管理求解作业
+     * 求解管理器注册表 - 按求解配置创建和管理求解作业
      */
-    private SolverManager<FactorySchedulingSolution, Long> solverManager;
+    private SolverManagerRegistry solverManagerRegistry;
+
+    /**
+     * 求解作业服务 - 登记求解作业，保存和读取求解检查点
+     */
+    private ApsSchedulingWorkService apsSchedulingWorkService;
+
+    /**
+     * 最佳解登记 - 查询接口从内存读取正在求解或刚求解完的问题的最佳解
+     */
+    private BestSolutionRegistry bestSolutionRegistry;
+
+    /**
+     * 最佳解事件管道 - 求解线程只登记最佳解，由发布线程按间隔发布
+     */
+    private BestSolutionPublisher bestSolutionPublisher;
+
+    /**
+     * 排程求解配置 - 按求解配置决定是否热启动
+     */
+    private SolverProperties solverProperties;
 
     /**
      * 解决方案管理器 - 用于更新和解释解决方案
@@ -93,8 +125,28 @@ public class SchedulingService {
     }
 
     @Autowired
-    public void setSolverManager(SolverManager<FactorySchedulingSolution, Long> solverManager) {
-        this.solverManager = solverManager;
+    public void setSolverManagerRegistry(SolverManagerRegistry solverManagerRegistry) {
+        this.solverManagerRegistry = solverManagerRegistry;
+    }
+
+    @Autowired
+    public void setApsSchedulingWorkService(ApsSchedulingWorkService apsSchedulingWorkService) {
+        this.apsSchedulingWorkService = apsSchedulingWorkService;
+    }
+
+    @Autowired
+    public void setBestSolutionRegistry(BestSolutionRegistry bestSolutionRegistry) {
+        this.bestSolutionRegistry = bestSolutionRegistry;
+    }
+
+    @Autowired
+    public void setBestSolutionPublisher(BestSolutionPublisher bestSolutionPublisher) {
+        this.bestSolutionPublisher = bestSolutionPublisher;
+    }
+
+    @Autowired
+    public void setSolverProperties(SolverProperties solverProperties) {
+        this.solverProperties = solverProperties;
     }
 
     @Autowired
@@ -103,36 +155,73 @@ public class SchedulingService {
     }
 
     /**
-     * 开始调度过程
-     * <p>启动OptaPlanner求解器，根据指定的订单列表生成最优的调度方案。
-     * 求解过程采用异步监听模式，实时获取并记录求解进度和结果。</p>
+     * 开始调度过程，可从最近的检查点恢复
+     * <p>启动OptaPlanner求解器，根据指定的订单列表生成最优的调度方案，由求解作业队列调用。
+     * 求解正常结束、出错或加载数据失败时都会调用onFinished，供求解作业队列释放并发名额。</p>
+     * <p>求解配置开启warm-start时保留上次保存的日历分配，构造阶段只处理新增或未分配的时间槽；
+     * resume为true时以检查点中的日历分配热启动(不论求解配置是否开启warm-start)，
+     * 用于JVM重启等原因中断的求解；检查点中没有的时间槽按未分配处理。</p>
      *
-     * @param problemId 问题ID - 用于标识和管理不同的调度问题实例
-     * @param taskNos   订单编号列表 - 指定需要参与调度的订单，如果为空则调度所有订单
+     * @param problemId  问题ID
+     * @param taskNos    订单编号列表
+     * @param profile    求解配置名称 - 为空时使用默认配置
+     * @param resume     是否从检查点恢复
+     * @param onFinished 求解结束回调
+     * @throws IllegalArgumentException 求解配置不存在
+     * @throws IllegalStateException    该问题正在求解，或需要恢复但没有检查点
      */
-    public void startScheduling(Long problemId, List<String> taskNos) {
+    public void startScheduling(Long problemId, List<String> taskNos, String profile, boolean resume, Runnable onFinished) {
+        // 先选定求解配置，配置不存在或问题正在求解时不加载数据
+        SolverManager<FactorySchedulingSolution, Long> solverManager = solverManagerRegistry.bind(problemId, profile);
         // 加载调度问题数据，包括订单、工序、时间槽等信息
-        FactorySchedulingSolution problem = loadProblemWithSlices(taskNos, problemId);
+        FactorySchedulingSolution problem;
+        try {
+            Map<String, String> checkpoint = null;
+            if (resume) {
+                checkpoint = apsSchedulingWorkService.findCheckpointAssignments(problemId)
+                        .orElseThrow(() -> new IllegalStateException("No checkpoint for problem " + problemId));
+            }
+            boolean warmStart = solverProperties.resolveProfile(solverManagerRegistry.getProfile(problemId)).isWarmStart();
+            problem = loadProblemWithSlices(taskNos, problemId, warmStart, checkpoint);
+        } catch (RuntimeException e) {
+            solverManagerRegistry.unbind(problemId);
+            onFinished.run();
+            throw e;
+        }
+        try {
+            apsSchedulingWorkService.start(problemId, solverManagerRegistry.getProfile(problemId), taskNos);
+        } catch (RuntimeException e) {
+            // 检查点存储不可用时照常求解，只是无法恢复
+            log.warn("Failed to register solve of problem {} for checkpointing: {}", problemId, e.getMessage());
+        }
+        log.info("Start scheduling problem {} with solver profile {}", problemId, solverManagerRegistry.getProfile(problemId));
         // 使用求解器管理器创建求解作业并监听进度
         SolverJob<FactorySchedulingSolution, Long> solverJob = solverManager.solveAndListen(
                 problemId,  // 问题标识
                 id -> problem,  // 提供问题数据的函数
-                // 每次找到更好的解决方案时的回调函数
+                // 每次找到更好的解决方案时只替换内存中的最佳解并登记到事件管道，日志和推送由发布线程按间隔处理
                 solution -> {
-                    // 记录新的最佳解决方案分数
-                    log.info("New best solution found: {}", solution.getScore());
-                    // 此处可以扩展，例如更新UI或临时保存中间结果
+                    bestSolutionRegistry.put(problemId, solution);
+                    bestSolutionPublisher.offer(problemId, solution);
                 },
                 // 求解完成时的回调函数
                 finalBestSolution -> {
                     // 记录最终最佳解决方案分数
                     log.info("Final best solution found: {}", finalBestSolution.getScore());
+                    bestSolutionRegistry.put(problemId, finalBestSolution);
+                    bestSolutionPublisher.complete(problemId, finalBestSolution);
                     // 保存最终调度结果到数据库
                     saveSolution(finalBestSolution);
+                    solverManagerRegistry.unbind(problemId);
+                    onFinished.run();
                 },
                 // 求解出错时的回调函数
                 (id, throwable) -> {
                     log.error("Scheduling error: {}", throwable.getMessage());
+                    bestSolutionPublisher.discard(problemId);
+                    solverManagerRegistry.unbind(problemId);
+                    onFinished.run();
+                    apsSchedulingWorkService.fail(problemId);
                 });
     }
 
@@ -168,24 +257,27 @@ public class SchedulingService {
      */
     public void stopScheduling(Long problemId) {
         // 调用求解器管理器终止指定问题ID的求解过程
-        solverManager.terminateEarly(problemId);
+        solverManagerRegistry.terminateEarly(problemId);
     }
 
     /**
      * 获取当前最佳解决方案
-     * <p>返回指定问题ID的当前最优解，并设置其求解状态。
-     * 无论求解是否完成，此方法都返回当前计算出的最佳解决方案。</p>
+     * <p>返回指定问题ID的当前最优解的拷贝，拷贝带有查询时的求解状态，内存中的最佳解本身不修改。
+     * 无论求解是否完成，此方法都返回当前计算出的最佳解决方案。
+     * 本进程中求解过的问题从内存中的最新最佳解读取，否则(例如重启后)从数据库加载已保存的排程。</p>
      *
      * @param problemId 问题ID - 标识需要获取解决方案的调度问题实例
      * @return FactorySchedulingSolution - 当前的最佳调度解决方案，包含求解状态信息
      */
     public FactorySchedulingSolution getBestSolution(Long problemId) {
-        // 获取最终最佳解决方案
-        FactorySchedulingSolution solution = getFinalBestSolution();
-        // 获取并设置当前求解状态
-        SolverStatus solverStatus = solverManager.getSolverStatus(problemId);
-        solution.setSolverStatus(solverStatus);
-        return solution;
+        FactorySchedulingSolution solution = bestSolutionRegistry.get(problemId);
+        if (solution == null) {
+            // 获取数据库中保存的最终最佳解决方案
+            solution = getFinalBestSolution();
+        }
+        // 内存中的最佳解被并发请求共享，求解状态设置在拷贝上
+        SolverStatus solverStatus = solverManagerRegistry.getSolverStatus(problemId);
+        return solution.withSolverStatus(solverStatus);
     }
 
 
@@ -203,6 +295,17 @@ public class SchedulingService {
         return getBestSolution(problemId).getScore();
     }
 
+    /**
+     * 获取问题最近一次求解的报告
+     * <p>包括问题规模、按规模计算的时间预算、结束原因(预算用完、平台期、手动停止或固定终止条件)和各阶段的耗时与分数。</p>
+     *
+     * @param problemId 问题ID
+     * @return 求解报告，本进程中该问题还没有求解结束时为null
+     */
+    public SolveReport getSolveReport(Long problemId) {
+        return solverManagerRegistry.getSolveReport(problemId);
+    }
+
     /**
      * 检查求解是否正在进行
      * <p>返回指定问题ID的求解器当前状态，包括：
@@ -215,7 +318,7 @@ public class SchedulingService {
      */
     public SolverStatus isSolving(Long problemId) {
         // 获取并返回求解器状态
-        return solverManager.getSolverStatus(problemId);
+        return solverManagerRegistry.getSolverStatus(problemId);
     }
 
     /**
@@ -225,9 +328,12 @@ public class SchedulingService {
      *
      * @param taskNos   订单编号列表 - 指定需要加载的订单，如果为空则加载所有订单
      * @param problemId 问题ID - 用于标识当前调度问题实例
+     * @param warmStart 是否保留上次保存的日历分配，否则只保留手动时间槽的分配
+     * @param checkpoint 检查点的日历分配(时间槽ID→日历ID)，不为空时非手动时间槽使用检查点的分配
      * @return FactorySchedulingSolution - 包含所有调度所需数据的问题实例
      */
-    private FactorySchedulingSolution loadProblem(List<String> taskNos, Long problemId) {
+    private FactorySchedulingSolution loadProblem(List<String> taskNos, Long problemId, boolean warmStart,
+                                                  Map<String, String> checkpoint) {
         List<WorkCenter> workCenters = new ArrayList<>();
         // 查找与订单相关的所有时间槽并设置问题ID
         List<Timeslot> timeslots = timeslotService.findAllByTaskIn(taskNos).stream().peek(timeslot -> {
@@ -238,6 +344,13 @@ public class SchedulingService {
             if (timeslot.getProcedure().getStartTime() != null) {
                 timeslot.setManual(true);
             }
+            if (checkpoint != null && !timeslot.isManual()) {
+                restoreCheckpoint(timeslot, checkpoint.get(timeslot.getId()));
+            } else if (!warmStart && !timeslot.isManual()) {
+                timeslot.setMaintenance(null);
+                timeslot.setStartTime(null);
+                timeslot.setEndTime(null);
+            }
         }).filter(timeslot -> timeslot.getProcedure().getWorkCenter() != null).collect(Collectors.toList());
         // 确定时间范围（基于订单的计划开始和结束日期）
         LocalDate start = timeslots.stream().map(timeslot -> timeslot.getProcedure().getOrder())
@@ -249,7 +362,33 @@ public class SchedulingService {
                 .max(LocalDate::compareTo)
                 .orElse(LocalDate.now());
         List<WorkCenterMaintenance> maintenances = maintenanceService.findAllByMachineInAndDateBetween(workCenters, start, end.plusDays(10));
-        return new FactorySchedulingSolution(timeslots, maintenances);
+        FactorySchedulingSolution solution = new FactorySchedulingSolution(timeslots, maintenances);
+        solution.setProblemId(problemId);
+        // 绑定取值范围、规划时钟(以规划窗口的开始日期为基准，固定加载时刻为当前时间)和工序前后序关系
+        solution.initializeProblemFacts(PlanningClock.startingAt(start));
+        if (warmStart || checkpoint != null) {
+            long assigned = solution.getTimeslots().stream().filter(timeslot -> timeslot.getMaintenance() != null).count();
+            log.info("Warm start problem {} from {}: {} of {} timeslots keep their previous maintenance",
+                    problemId, checkpoint != null ? "checkpoint" : "saved schedule", assigned, solution.getTimeslots().size());
+        }
+        return solution;
+    }
+
+    /**
+     * 按检查点设置时间槽的日历，日历对象在初始化问题事实时按ID换成取值范围中的实例
+     */
+    private static void restoreCheckpoint(Timeslot timeslot, String maintenanceId) {
+        if (timeslot.getMaintenance() != null && timeslot.getMaintenance().getId().equals(maintenanceId)) {
+            return;
+        }
+        WorkCenterMaintenance maintenance = null;
+        if (maintenanceId != null) {
+            maintenance = new WorkCenterMaintenance();
+            maintenance.setId(maintenanceId);
+        }
+        timeslot.setMaintenance(maintenance);
+        timeslot.setStartTime(null);
+        timeslot.setEndTime(null);
     }
 
 
@@ -259,11 +398,14 @@ public class SchedulingService {
      *
      * @param orderNos  订单编号列表
      * @param problemId 问题ID
+     * @param warmStart 是否保留上次保存的日历分配
+     * @param checkpoint 检查点的日历分配，不从检查点恢复时为null
      * @return FactorySchedulingSolution - 包含所有调度所需数据的问题实例
      */
-    private FactorySchedulingSolution loadProblemWithSlices(List<String> orderNos, Long problemId) {
+    private FactorySchedulingSolution loadProblemWithSlices(List<String> orderNos, Long problemId, boolean warmStart,
+                                                            Map<String, String> checkpoint) {
         // 首先加载基础问题数据
-        FactorySchedulingSolution solution = loadProblem(orderNos, problemId);
+        FactorySchedulingSolution solution = loadProblem(orderNos, problemId, warmStart, checkpoint);
         // 如果有时间槽数据，对分片数据进行额外处理
         if (!CollectionUtils.isEmpty(solution.getTimeslots())) {
             // 按工序ID和分片索引对时间槽进行排序，确保分片顺序正确
@@ -465,7 +607,10 @@ public class SchedulingService {
             maintenances = maintenanceService.getAllMaintenances();
         }
         // 使用正确的构造函数创建解决方案实例
-        return new FactorySchedulingSolution(timeslots, maintenances);
+        FactorySchedulingSolution solution = new FactorySchedulingSolution(timeslots, maintenances);
+        // 计算分数前必须初始化问题事实
+        solution.initializeProblemFacts(PlanningClock.startingAt(LocalDate.now()));
+        return solution;
     }
 
     /**
@@ -481,15 +626,92 @@ public class SchedulingService {
         return getBestSolution(problemId).getScore().isFeasible();
     }
 
+    /**
+     * 向正在求解的问题提交问题变更
+     * <p>变更在求解线程中应用到工作解，求解器从变更后的工作解继续求解，已有的排程结果不会丢失。</p>
+     *
+     * @param problemId     问题ID
+     * @param problemChange 问题变更
+     * @return 变更应用到工作解后完成
+     * @throws IllegalStateException 问题不在求解中
+     */
+    public CompletableFuture<Void> addProblemChange(Long problemId, ProblemChange<FactorySchedulingSolution> problemChange) {
+        if (solverManagerRegistry.getSolverStatus(problemId) == SolverStatus.NOT_SOLVING) {
+            throw new IllegalStateException("Problem " + problemId + " is not solving");
+        }
+        return solverManagerRegistry.getSolverManager(problemId).addProblemChange(problemId, problemChange);
+    }
+
+    /**
+     * 求解期间加入任务(插单)，任务的时间槽按加载问题时的规则处理后以问题变更加入
+     *
+     * @param problemId 问题ID
+     * @param taskNos   任务编号列表
+     * @return 变更应用到工作解后完成
+     * @throws IllegalStateException 问题不在求解中
+     */
+    public CompletableFuture<Void> addTasks(Long problemId, List<String> taskNos) {
+        List<Timeslot> timeslots = timeslotService.findAllByTaskIn(taskNos).stream()
+                .filter(timeslot -> timeslot.getProcedure().getWorkCenter() != null)
+                .peek(timeslot -> {
+                    timeslot.setProblemId(problemId);
+                    if (timeslot.getProcedure().getStartTime() != null) {
+                        timeslot.setManual(true);
+                    }
+                }).collect(Collectors.toList());
+        return addProblemChange(problemId, new AddTimeslotsProblemChange(timeslots));
+    }
+
+    /**
+     * 求解期间移除时间槽
+     *
+     * @param problemId   问题ID
+     * @param timeslotIds 时间槽ID列表
+     * @return 变更应用到工作解后完成
+     * @throws IllegalStateException 问题不在求解中
+     */
+    public CompletableFuture<Void> removeTimeslots(Long problemId, List<String> timeslotIds) {
+        return addProblemChange(problemId, new RemoveTimeslotsProblemChange(timeslotIds));
+    }
+
+    /**
+     * 求解期间修改工作中心日历的容量或状态
+     *
+     * @param problemId     问题ID
+     * @param maintenanceId 日历ID
+     * @param capacity      容量(分钟)，为空时不变
+     * @param status        状态，为空时不变
+     * @return 变更应用到工作解后完成
+     * @throws IllegalStateException 问题不在求解中
+     */
+    public CompletableFuture<Void> changeMaintenance(Long problemId, String maintenanceId, Integer capacity, String status) {
+        return addProblemChange(problemId, new MaintenanceProblemChange(maintenanceId, capacity, status));
+    }
+
+    /**
+     * 求解期间固定时间槽
+     *
+     * @param problemId     问题ID
+     * @param timeslotId    时间槽ID
+     * @param maintenanceId 固定到的日历ID，为空时固定在当前日历
+     * @return 变更应用到工作解后完成
+     * @throws IllegalStateException 问题不在求解中
+     */
+    public CompletableFuture<Void> pinTimeslot(Long problemId, String timeslotId, String maintenanceId) {
+        return addProblemChange(problemId, new PinTimeslotProblemChange(timeslotId, maintenanceId));
+    }
+
     /**
      * 更新问题数据
      * <p>当已有解决方案需要调整时，使用此方法更新问题数据。
-     * 这允许在不重新开始整个求解过程的情况下，对当前解决方案进行修改。</p>
+     * 只重新计算传入解决方案的分数，不影响正在运行的求解；求解期间的变更使用{@link #addProblemChange}。</p>
      *
      * @param problemId       问题ID - 标识需要更新的调度问题实例
      * @param updatedSolution 更新后的解决方案 - 包含最新的问题数据
      */
     public void updateProblem(Long problemId, FactorySchedulingSolution updatedSolution) {
+        // 外部提交的解决方案没有预先计算的问题事实，先初始化
+        updatedSolution.initializeProblemFacts(PlanningClock.startingAt(LocalDate.now()));
         // 使用解决方案管理器更新问题数据
         solutionManager.update(updatedSolution);
     }
@@ -506,10 +728,14 @@ public class SchedulingService {
      * @return ScoreExplanation - 包含解决方案得分详细解释的对象
      */
     public ScoreExplanation<FactorySchedulingSolution, HardMediumSoftScore> explainSolution(Long problemId) {
-        // 获取最佳解决方案
-        FactorySchedulingSolution solution = getBestSolution(problemId);
-        // 使用解决方案管理器生成解释
-        return solutionManager.explain(solution);
+        FactorySchedulingSolution registered = bestSolutionRegistry.get(problemId);
+        if (registered == null) {
+            // 从数据库加载的排程是新建对象，同时更新影子变量
+            return solutionManager.explain(getFinalBestSolution(), SolutionUpdatePolicy.UPDATE_ALL);
+        }
+        // 内存中的最佳解与查询接口共享时间槽，影子变量已经一致，只在拷贝上重新计算分数
+        FactorySchedulingSolution solution = registered.withSolverStatus(solverManagerRegistry.getSolverStatus(problemId));
+        return solutionManager.explain(solution, SolutionUpdatePolicy.UPDATE_SCORE_ONLY);
     }
 
     /**
@@ -525,6 +751,7 @@ public class SchedulingService {
         workCenterService.deleteAll();
         orderService.deleteAll();
         processService.deleteAll();
+        bestSolutionRegistry.clear();
     }
 
 
@@ -0,0 +1,380 @@
+package com.upec.factoryscheduling.aps.service;
+
+import com.upec.factoryscheduling.aps.response.SolverQueueStatus;
+import com.upec.factoryscheduling.aps.solver.SolverManagerRegistry;
+import com.upec.factoryscheduling.common.configuration.SolverProperties;
+import com.upec.factoryscheduling.mes.entity.ApsSchedulingWork;
+import com.upec.factoryscheduling.mes.service.ApsSchedulingWorkService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.optaplanner.core.api.solver.SolverStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 求解作业调度器
+ * <p>所有求解请求先进入有界队列，按优先级(大的优先)、同优先级按提交顺序出队，
+ * 同时运行的求解作业数不超过aps.solver.queue.parallel-solver-count，避免并发求解互相争抢CPU。</p>
+ * <ul>
+ *     <li>队列已满、问题正在求解时拒绝请求；求解配置不存在时在入队前拒绝</li>
+ *     <li>同一问题ID已在排队时按duplicate-policy合并到已排队的作业或拒绝</li>
+ *     <li>出队后由单独的分发线程加载数据并提交求解，不占用请求线程和求解线程</li>
+ *     <li>已出队尚未提交求解时取消，作业被标记为已取消：提交前检查到则不再求解，提交后检查到则立即提前终止</li>
+ * </ul>
+ * <p>指标：aps.solver.queue.depth(排队数)、aps.solver.queue.running(运行数)、
+ * aps.solver.queue.wait(排队等待时间)、aps.solver.queue.rejected(按原因统计的拒绝数)、
+ * aps.solver.queue.coalesced(合并数)。</p>
+ */
+@Service
+@Slf4j
+public class SolverJobScheduler {
+
+    /**
+     * 求解请求的受理结果
+     */
+    public enum Admission {
+        /**
+         * 有空闲名额，已开始求解
+         */
+        STARTED,
+        /**
+         * 已进入队列等待
+         */
+        QUEUED,
+        /**
+         * 已合并到同一问题排队中的作业
+         */
+        COALESCED
+    }
+
+    private static final Comparator<QueuedJob> JOB_ORDER = Comparator
+            .comparingInt((QueuedJob job) -> job.priority).reversed()
+            .thenComparingLong(job -> job.sequence);
+
+    private SchedulingService schedulingService;
+
+    private SolverManagerRegistry solverManagerRegistry;
+
+    private SolverProperties solverProperties;
+
+    private MeterRegistry meterRegistry;
+
+    private ApsSchedulingWorkService apsSchedulingWorkService;
+
+    private final PriorityQueue<QueuedJob> queue = new PriorityQueue<>(JOB_ORDER);
+
+    private final Map<Long, QueuedJob> queuedJobs = new HashMap<>();
+
+    private final Set<Long> runningProblems = new LinkedHashSet<>();
+
+    /**
+     * 已出队、分发线程尚未完成提交求解的作业
+     */
+    private final Map<Long, QueuedJob> launchingJobs = new HashMap<>();
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "solver-job-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long sequence;
+
+    private Timer waitTimer;
+
+    private Counter coalescedCounter;
+
+    @Autowired
+    public void setSchedulingService(SchedulingService schedulingService) {
+        this.schedulingService = schedulingService;
+    }
+
+    @Autowired
+    public void setSolverManagerRegistry(SolverManagerRegistry solverManagerRegistry) {
+        this.solverManagerRegistry = solverManagerRegistry;
+    }
+
+    @Autowired
+    public void setSolverProperties(SolverProperties solverProperties) {
+        this.solverProperties = solverProperties;
+    }
+
+    @Autowired
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Autowired
+    public void setApsSchedulingWorkService(ApsSchedulingWorkService apsSchedulingWorkService) {
+        this.apsSchedulingWorkService = apsSchedulingWorkService;
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("aps.solver.queue.depth", this, SolverJobScheduler::getQueueDepth)
+                .description("排队等待的求解作业数")
+                .register(meterRegistry);
+        Gauge.builder("aps.solver.queue.running", this, SolverJobScheduler::getRunningCount)
+                .description("正在运行的求解作业数")
+                .register(meterRegistry);
+        waitTimer = Timer.builder("aps.solver.queue.wait")
+                .description("求解作业从提交到开始求解的等待时间")
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+        coalescedCounter = Counter.builder("aps.solver.queue.coalesced")
+                .description("合并到已排队作业的求解请求数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * 提交求解请求
+     *
+     * @param problemId 问题ID
+     * @param taskNos   订单编号列表
+     * @param profile   求解配置名称，为空时使用默认配置
+     * @param priority  优先级，越大越先求解
+     * @return 受理结果
+     * @throws IllegalArgumentException 求解配置不存在
+     * @throws IllegalStateException    问题正在求解、重复排队被拒绝或队列已满
+     */
+    public Admission submit(Long problemId, List<String> taskNos, String profile, int priority) {
+        return submit(problemId, taskNos, profile, priority, false);
+    }
+
+    /**
+     * 从最近的检查点恢复求解，任务编号取求解作业登记的任务编号
+     *
+     * @param problemId 问题ID
+     * @param profile   求解配置名称，为空时使用上次求解的配置
+     * @param priority  优先级，越大越先求解
+     * @return 受理结果
+     * @throws IllegalArgumentException 求解配置不存在
+     * @throws IllegalStateException    没有检查点、问题正在求解、重复排队被拒绝或队列已满
+     */
+    public Admission resume(Long problemId, String profile, int priority) {
+        ApsSchedulingWork work = apsSchedulingWorkService.findByProblemId(problemId)
+                .filter(found -> found.getAssignments() != null && !found.getAssignments().isEmpty())
+                .orElseThrow(() -> new IllegalStateException("No checkpoint for problem " + problemId));
+        String resumeProfile = profile == null || profile.isEmpty() ? work.getProfile() : profile;
+        return submit(problemId, ApsSchedulingWorkService.taskNos(work), resumeProfile, priority, true);
+    }
+
+    private synchronized Admission submit(Long problemId, List<String> taskNos, String profile, int priority,
+                                          boolean resume) {
+        // 入队前校验求解配置，避免出队后才发现配置不存在
+        solverManagerRegistry.getSolverManager(profile);
+        if (runningProblems.contains(problemId)
+                || solverManagerRegistry.getSolverStatus(problemId) != SolverStatus.NOT_SOLVING) {
+            reject("running");
+            throw new IllegalStateException("Problem " + problemId + " is already solving");
+        }
+        QueuedJob queued = queuedJobs.get(problemId);
+        if (queued != null) {
+            if (solverProperties.getQueue().getDuplicatePolicy() == SolverProperties.DuplicatePolicy.REJECT) {
+                reject("duplicate");
+                throw new IllegalStateException("Problem " + problemId + " is already queued");
+            }
+            // 保留原提交顺序和等待时间，只更新请求内容，优先级变化时重新排序
+            queue.remove(queued);
+            queued.taskNos = taskNos;
+            queued.profile = profile;
+            queued.priority = priority;
+            queued.resume = resume;
+            queue.add(queued);
+            coalescedCounter.increment();
+            log.info("Coalesced solve request for problem {} into its queued job", problemId);
+            return Admission.COALESCED;
+        }
+        if (queue.size() >= solverProperties.getQueue().getCapacity()) {
+            reject("full");
+            throw new IllegalStateException("Solver queue is full (" + queue.size() + " jobs waiting)");
+        }
+        QueuedJob job = new QueuedJob(problemId, taskNos, profile, priority, resume, sequence++, System.nanoTime());
+        queue.add(job);
+        queuedJobs.put(problemId, job);
+        dispatch();
+        return runningProblems.contains(problemId) ? Admission.STARTED : Admission.QUEUED;
+    }
+
+    /**
+     * 取消求解：排队中的作业直接出队，正在求解的提前终止
+     *
+     * @param problemId 问题ID
+     */
+    public void cancel(Long problemId) {
+        synchronized (this) {
+            QueuedJob queued = queuedJobs.remove(problemId);
+            if (queued != null) {
+                queue.remove(queued);
+                log.info("Removed queued solve job for problem {}", problemId);
+                return;
+            }
+            // 求解尚未提交到求解器管理器，此时提前终止找不到求解作业，由分发线程处理取消
+            QueuedJob launching = launchingJobs.get(problemId);
+            if (launching != null) {
+                launching.cancelled = true;
+                log.info("Marked launching solve job for problem {} as cancelled", problemId);
+                return;
+            }
+        }
+        schedulingService.stopScheduling(problemId);
+    }
+
+    /**
+     * 获取求解状态，排队中及已出队尚未开始求解的作业为SOLVING_SCHEDULED
+     */
+    public SolverStatus getSolverStatus(Long problemId) {
+        SolverStatus solverStatus = schedulingService.isSolving(problemId);
+        if (solverStatus == SolverStatus.NOT_SOLVING) {
+            synchronized (this) {
+                if (queuedJobs.containsKey(problemId) || runningProblems.contains(problemId)) {
+                    return SolverStatus.SOLVING_SCHEDULED;
+                }
+            }
+        }
+        return solverStatus;
+    }
+
+    /**
+     * 队列快照
+     */
+    public synchronized SolverQueueStatus getQueueStatus() {
+        SolverQueueStatus status = new SolverQueueStatus();
+        status.setParallelSolverCount(solverProperties.getQueue().getParallelSolverCount());
+        status.setCapacity(solverProperties.getQueue().getCapacity());
+        status.setRunning(new ArrayList<>(runningProblems));
+        List<QueuedJob> ordered = new ArrayList<>(queue);
+        ordered.sort(JOB_ORDER);
+        long now = System.nanoTime();
+        List<SolverQueueStatus.QueuedJob> queued = new ArrayList<>(ordered.size());
+        for (QueuedJob job : ordered) {
+            SolverQueueStatus.QueuedJob view = new SolverQueueStatus.QueuedJob();
+            view.setProblemId(job.problemId);
+            view.setProfile(job.profile);
+            view.setPriority(job.priority);
+            view.setWaitMillis(Duration.ofNanos(now - job.submittedNanos).toMillis());
+            queued.add(view);
+        }
+        status.setQueued(queued);
+        return status;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized int getRunningCount() {
+        return runningProblems.size();
+    }
+
+    /**
+     * 有空闲名额时按顺序出队并交给分发线程启动求解
+     */
+    private void dispatch() {
+        int parallelSolverCount = Math.max(1, solverProperties.getQueue().getParallelSolverCount());
+        while (runningProblems.size() < parallelSolverCount && !queue.isEmpty()) {
+            QueuedJob job = queue.poll();
+            queuedJobs.remove(job.problemId);
+            runningProblems.add(job.problemId);
+            launchingJobs.put(job.problemId, job);
+            waitTimer.record(Duration.ofNanos(System.nanoTime() - job.submittedNanos));
+            dispatcher.execute(() -> launch(job));
+        }
+    }
+
+    private void launch(QueuedJob job) {
+        synchronized (this) {
+            if (job.cancelled) {
+                launchingJobs.remove(job.problemId);
+                log.info("Skipped cancelled solve job for problem {}", job.problemId);
+                finished(job.problemId);
+                return;
+            }
+        }
+        boolean started = false;
+        try {
+            log.info("Dispatching solve job for problem {} (priority {})", job.problemId, job.priority);
+            schedulingService.startScheduling(job.problemId, job.taskNos, job.profile, job.resume,
+                    () -> finished(job.problemId));
+            started = true;
+        } catch (RuntimeException e) {
+            log.error("Failed to start solve job for problem {}: {}", job.problemId, e.getMessage(), e);
+            finished(job.problemId);
+        }
+        // 求解已提交或提交失败，之后的取消直接提前终止；提交期间到达的取消在这里补上
+        boolean cancelled;
+        synchronized (this) {
+            launchingJobs.remove(job.problemId);
+            cancelled = job.cancelled;
+        }
+        if (started && cancelled) {
+            log.info("Terminating solve job for problem {} cancelled while it was starting", job.problemId);
+            schedulingService.stopScheduling(job.problemId);
+        }
+    }
+
+    /**
+     * 求解结束(含失败)后释放名额，重复调用无副作用
+     */
+    private synchronized void finished(Long problemId) {
+        if (runningProblems.remove(problemId)) {
+            dispatch();
+        }
+    }
+
+    private void reject(String reason) {
+        Counter.builder("aps.solver.queue.rejected")
+                .description("被拒绝的求解请求数")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 排队中的求解作业
+     */
+    private static final class QueuedJob {
+
+        private final Long problemId;
+        private final long sequence;
+        private final long submittedNanos;
+        private List<String> taskNos;
+        private String profile;
+        private int priority;
+        private boolean resume;
+        private boolean cancelled;
+
+        private QueuedJob(Long problemId, List<String> taskNos, String profile, int priority, boolean resume,
+                          long sequence, long submittedNanos) {
+            this.problemId = problemId;
+            this.taskNos = taskNos;
+            this.profile = profile;
+            this.priority = priority;
+            this.resume = resume;
+            this.sequence = sequence;
+            this.submittedNanos = submittedNanos;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.upec.factoryscheduling.aps.service;
+
+import com.upec.factoryscheduling.aps.entity.Procedure;
+import com.upec.factoryscheduling.aps.entity.Task;
+import com.upec.factoryscheduling.aps.response.SyntheticDataResult;
+import com.upec.factoryscheduling.aps.resquest.SyntheticDataRequest;
+import com.upec.factoryscheduling.aps.solver.SyntheticProblemGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 合成调度数据服务
+ * <p>用{@link SyntheticProblemGenerator}生成数据，经由各实体服务按批保存到APS库，
+ * 与MES导入走相同的保存路径，返回各实体的保存耗时和生成的任务编号。
+ * 生成的数据以请求中的编号前缀区分，需通过aps.synthetic-data.enabled开启，生产环境保持关闭。</p>
+ */
+@Slf4j
+@Service
+public class SyntheticDataService {
+
+    @Value("${aps.synthetic-data.enabled:false}")
+    private boolean enabled;
+
+    // 每次保存(一个事务)的实体数
+    @Value("${aps.synthetic-data.batch-size:1000}")
+    private int batchSize;
+
+    private WorkCenterService workCenterService;
+
+    private WorkCenterMaintenanceService maintenanceService;
+
+    private OrderService orderService;
+
+    private OrderTaskService orderTaskService;
+
+    private ProcedureService procedureService;
+
+    private TimeslotService timeslotService;
+
+    @Autowired
+    public void setWorkCenterService(WorkCenterService workCenterService) {
+        this.workCenterService = workCenterService;
+    }
+
+    @Autowired
+    public void setMaintenanceService(WorkCenterMaintenanceService maintenanceService) {
+        this.maintenanceService = maintenanceService;
+    }
+
+    @Autowired
+    public void setOrderService(OrderService orderService) {
+        this.orderService = orderService;
+    }
+
+    @Autowired
+    public void setOrderTaskService(OrderTaskService orderTaskService) {
+        this.orderTaskService = orderTaskService;
+    }
+
+    @Autowired
+    public void setProcedureService(ProcedureService procedureService) {
+        this.procedureService = procedureService;
+    }
+
+    @Autowired
+    public void setTimeslotService(TimeslotService timeslotService) {
+        this.timeslotService = timeslotService;
+    }
+
+    /**
+     * 生成并保存合成数据
+     *
+     * @param request 生成参数
+     * @return 数据规模、保存耗时和任务编号
+     * @throws IllegalStateException    未开启合成数据
+     * @throws IllegalArgumentException 生成参数无效
+     */
+    public SyntheticDataResult generate(SyntheticDataRequest request) {
+        if (!enabled) {
+            throw new IllegalStateException("Synthetic data is disabled, set aps.synthetic-data.enabled=true");
+        }
+        long start = System.currentTimeMillis();
+        SyntheticProblemGenerator.Dataset dataset = SyntheticProblemGenerator.generate(request);
+        SyntheticDataResult result = new SyntheticDataResult();
+        result.setPrefix(request.getPrefix());
+        result.setWorkCenterCount(dataset.getWorkCenters().size());
+        result.setMaintenanceCount(dataset.getMaintenances().size());
+        result.setOrderCount(dataset.getOrders().size());
+        result.setTaskCount(dataset.getTasks().size());
+        result.setProcedureCount(dataset.getProcedures().size());
+        result.setTimeslotCount(dataset.getTimeslots().size());
+        result.setGenerateMillis(System.currentTimeMillis() - start);
+        log.info("Generated synthetic data {}: {} tasks, {} procedures, {} timeslots, {} maintenances in {}ms",
+                request.getPrefix(), result.getTaskCount(), result.getProcedureCount(), result.getTimeslotCount(),
+                result.getMaintenanceCount(), result.getGenerateMillis());
+
+        // 按引用关系的顺序保存，工序按任务分批，同一任务的前后序工序在同一批中保存
+        save(result, "workCenter", dataset.getWorkCenters(), workCenterService::saveWorkCenters);
+        save(result, "maintenance", dataset.getMaintenances(), maintenanceService::saveAll);
+        save(result, "order", dataset.getOrders(), orderService::saveAll);
+        save(result, "task", dataset.getTasks(), orderTaskService::saveAll);
+        long procedureStart = System.currentTimeMillis();
+        List<Procedure> procedures = dataset.getProcedures();
+        for (int from = 0; from < procedures.size(); ) {
+            int to = Math.min(from + batchSize, procedures.size());
+            Task task = procedures.get(to - 1).getTask();
+            while (to < procedures.size() && procedures.get(to).getTask() == task) {
+                to++;
+            }
+            procedureService.saveProcedures(procedures.subList(from, to));
+            from = to;
+        }
+        logSave(result, "procedure", procedures.size(), procedureStart);
+        save(result, "timeslot", dataset.getTimeslots(), timeslotService::saveAll);
+
+        result.setTaskNos(dataset.getTasks().stream().map(Task::getTaskNo).collect(Collectors.toList()));
+        return result;
+    }
+
+    private <T> void save(SyntheticDataResult result, String name, List<T> entities, Consumer<List<T>> saveAll) {
+        long start = System.currentTimeMillis();
+        for (int from = 0; from < entities.size(); from += batchSize) {
+            saveAll.accept(entities.subList(from, Math.min(from + batchSize, entities.size())));
+        }
+        logSave(result, name, entities.size(), start);
+    }
+
+    private static void logSave(SyntheticDataResult result, String name, int count, long start) {
+        long millis = System.currentTimeMillis() - start;
+        result.getSaveMillis().put(name, millis);
+        log.info("Saved {} synthetic {} in {}ms", count, name, millis);
+    }
+}
@@ -26,6 +26,8 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TimeslotService {
 
+    private static final int IN_LIST_LIMIT = 1000;
+
     private TimeslotRepository timeslotRepository;
 
     @Autowired
@@ -88,7 +90,17 @@ public class TimeslotService {
 
     public List<Timeslot> findAllByTaskIn(List<String> taskNos) {
         Sort sort = Sort.by(Sort.Direction.DESC, "procedureIndex", "index").ascending();
-        return timeslotRepository.findAllByProcedure_Task_TaskNoIsIn(taskNos, sort);
+        if (taskNos.size() <= IN_LIST_LIMIT) {
+            return timeslotRepository.findAllByProcedure_Task_TaskNoIsIn(taskNos, sort);
+        }
+        // Oracle的IN列表最多1000项，全厂规模的任务列表分批查询后按相同顺序合并
+        List<Timeslot> timeslots = new ArrayList<>();
+        for (int from = 0; from < taskNos.size(); from += IN_LIST_LIMIT) {
+            timeslots.addAll(timeslotRepository.findAllByProcedure_Task_TaskNoIsIn(
+                    taskNos.subList(from, Math.min(from + IN_LIST_LIMIT, taskNos.size()))));
+        }
+        timeslots.sort(Comparator.comparingInt(Timeslot::getProcedureIndex).thenComparingInt(Timeslot::getIndex));
+        return timeslots;
     }
 
     @Transactional("oracleTransactionManager")
@@ -11,6 +11,7 @@ import org.springframework.util.CollectionUtils;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -27,6 +28,8 @@ import java.util.stream.Collectors;
 @Service // 标记此类为Spring服务组件
 public class WorkCenterMaintenanceService {
 
+    private static final int IN_LIST_LIMIT = 1000;
+
     /** 设备维护仓库 - 用于访问设备维护数据 */
     private WorkCenterMaintenanceRepository maintenanceRepository;
 
@@ -260,7 +263,16 @@ public class WorkCenterMaintenanceService {
      * @return 符合条件的维护计划列表
      */
     public List<WorkCenterMaintenance> findAllByMachineInAndDateBetween(List<WorkCenter> workCenters, LocalDate start, LocalDate end) {
-        return maintenanceRepository.findAllByWorkCenterInAndDateBetween(workCenters, start, end);
+        // 加载问题时按时间槽收集的工作中心有大量重复，去重后按Oracle的IN列表上限分批查询
+        List<WorkCenter> distinct = new ArrayList<>(workCenters.stream()
+                .collect(Collectors.toMap(WorkCenter::getId, workCenter -> workCenter, (a, b) -> a, LinkedHashMap::new))
+                .values());
+        List<WorkCenterMaintenance> maintenances = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += IN_LIST_LIMIT) {
+            maintenances.addAll(maintenanceRepository.findAllByWorkCenterInAndDateBetween(
+                    distinct.subList(from, Math.min(from + IN_LIST_LIMIT, distinct.size())), start, end));
+        }
+        return maintenances;
     }
 
     /**
@@ -1,21 +1,33 @@
 package com.upec.factoryscheduling.aps.solution;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.upec.factoryscheduling.aps.entity.Procedure;
+import com.upec.factoryscheduling.aps.entity.Task;
 import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenter;
 import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.common.utils.DateUtils;
 import lombok.Getter;
 import lombok.Setter;
 import org.optaplanner.core.api.domain.solution.PlanningEntityCollectionProperty;
 import org.optaplanner.core.api.domain.solution.PlanningScore;
 import org.optaplanner.core.api.domain.solution.PlanningSolution;
 import org.optaplanner.core.api.domain.solution.ProblemFactCollectionProperty;
-import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
+import org.optaplanner.core.api.domain.solution.ProblemFactProperty;
 import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
 import org.optaplanner.core.api.solver.SolverStatus;
 
 import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 工厂调度规划解决方案类
@@ -24,8 +36,10 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * - 问题事实（可用的工作中心、时间范围、维护计划等约束条件）
  * - 规划分数（评估解决方案质量的指标）
  * </p>
+ * <p>本类不做同步：求解期间只有求解线程访问工作解，多线程求解时每个移动线程持有自己的规划克隆，
+ * 最佳解通过克隆交给事件线程。列表使用普通的ArrayList，克隆由{@link FactorySchedulingSolutionCloner}按已知结构完成，不需要加锁。</p>
  */
-@PlanningSolution  // 标记此类为OptaPlanner规划解决方案
+@PlanningSolution(solutionCloner = FactorySchedulingSolutionCloner.class)  // 标记此类为OptaPlanner规划解决方案
 public class FactorySchedulingSolution implements  Serializable {
     private static final long serialVersionUID = 1L;
 
@@ -33,6 +47,13 @@ public class FactorySchedulingSolution implements  Serializable {
     @Setter
     private Long problemId;
 
+    /**
+     * 规划时钟 - 加载问题时固定的基准时间和当前时间，所有分钟数字段都相对其基准时间计算
+     */
+    @Getter
+    @ProblemFactProperty
+    private PlanningClock planningClock;
+
 
     /**
      * 时间槽（工序）列表 - 规划实体集合
@@ -43,70 +64,53 @@ public class FactorySchedulingSolution implements  Serializable {
 
 
     /**
-     * 设备维护计划列表 - 影响工作中心可用性的约束条件和规划变量取值范围
-     * <p>在维护期间，对应的工作中心不可用</p>
-     * 使用CopyOnWriteArrayList确保线程安全的读取操作
+     * 设备维护计划列表 - 影响工作中心可用性的约束条件
+     * <p>在维护期间，对应的工作中心不可用。规划变量的取值范围由{@link #bindMaintenanceRanges()}
+     * 按工作中心拆分后绑定到每个时间槽上</p>
      */
     @JsonIgnore
     @Getter
-    @ValueRangeProvider(id = "maintenanceRange")
     @ProblemFactCollectionProperty
     private List<WorkCenterMaintenance> maintenances;
 
+    /**
+     * 工序前后序关系列表 - 工序顺序类约束的连接依据
+     * <p>由{@link #bindProcedureLinks()}根据时间槽关联的工序展开，求解期间不变</p>
+     */
+    @JsonIgnore
+    @Getter
+    @ProblemFactCollectionProperty
+    private List<ProcedureLink> procedureLinks;
+
     /**
      * 规划分数 - 评估解决方案质量的指标
      * <p>使用HardSoftScore类型，包含硬约束和软约束的违反情况：
      * - 硬约束：必须满足的规则，如设备冲突、维护时间冲突等
      * - 软约束：应当尽量满足的规则，如订单优先级、完成时间等
      * </p>
-     * volatile确保多线程环境下的可见性
      */
+    @Getter
+    @Setter
     @PlanningScore
-    private volatile HardMediumSoftScore score;
+    private HardMediumSoftScore score;
 
     /**
      * 求解器状态 - 表示当前规划过程的状态
      * <p>如NOT_SOLVING、SOLVING_ACTIVE、SOLVING_SCHEDULED等</p>
-     * volatile确保多线程环境下的可见性
      */
-    private volatile SolverStatus solverStatus;
-    
-    /**
-     * 获取规划分数
-     */
-    public synchronized HardMediumSoftScore getScore() {
-        return score;
-    }
-    
-    /**
-     * 设置规划分数
-     */
-    public synchronized void setScore(HardMediumSoftScore score) {
-        this.score = score;
-    }
-    
-    /**
-     * 获取求解器状态
-     */
-    public synchronized SolverStatus getSolverStatus() {
-        return solverStatus;
-    }
-    
-    /**
-     * 设置求解器状态
-     */
-    public synchronized void setSolverStatus(SolverStatus solverStatus) {
-        this.solverStatus = solverStatus;
-    }
+    @Getter
+    @Setter
+    private SolverStatus solverStatus;
 
     /**
      * 默认构造函数
      * <p>为了序列化和框架要求而提供</p>
      */
     public FactorySchedulingSolution() {
-        // 初始化线程安全的列表以避免空指针异常和确保并发安全
-        this.timeslots = new CopyOnWriteArrayList<>();
-        this.maintenances = new CopyOnWriteArrayList<>();
+        // 初始化列表以避免空指针异常
+        this.timeslots = new ArrayList<>();
+        this.maintenances = new ArrayList<>();
+        this.procedureLinks = new ArrayList<>();
     }
 
     /**
@@ -117,64 +121,327 @@ public class FactorySchedulingSolution implements  Serializable {
      */
     public FactorySchedulingSolution(List<Timeslot> timeslots,
                                      List<WorkCenterMaintenance> maintenances) {
-        // 使用CopyOnWriteArrayList确保线程安全
-        this.timeslots = timeslots != null ? new CopyOnWriteArrayList<>(timeslots) : new CopyOnWriteArrayList<>();
-        this.maintenances = maintenances != null ? new CopyOnWriteArrayList<>(maintenances) : new CopyOnWriteArrayList<>();
+        this.timeslots = timeslots != null ? new ArrayList<>(timeslots) : new ArrayList<>();
+        this.maintenances = maintenances != null ? new ArrayList<>(maintenances) : new ArrayList<>();
+        this.procedureLinks = new ArrayList<>();
     }
 
     /**
-     * 线程安全地设置时间槽列表
+     * 设置时间槽列表
      * @param timeslots 新的时间槽列表
      */
-    public synchronized void setTimeslots(List<Timeslot> timeslots) {
-        this.timeslots = timeslots != null ? new CopyOnWriteArrayList<>(timeslots) : new CopyOnWriteArrayList<>();
+    public void setTimeslots(List<Timeslot> timeslots) {
+        this.timeslots = timeslots != null ? new ArrayList<>(timeslots) : new ArrayList<>();
     }
 
     /**
-     * 线程安全地设置维护计划列表
+     * 设置维护计划列表
      * @param maintenances 新的维护计划列表
      */
-    public synchronized void setMaintenances(List<WorkCenterMaintenance> maintenances) {
-        this.maintenances = maintenances != null ? new CopyOnWriteArrayList<>(maintenances) : new CopyOnWriteArrayList<>();
+    public void setMaintenances(List<WorkCenterMaintenance> maintenances) {
+        this.maintenances = maintenances != null ? new ArrayList<>(maintenances) : new ArrayList<>();
     }
 
     /**
-     * 线程安全地添加单个时间槽
+     * 添加单个时间槽
      * @param timeslot 要添加的时间槽
      */
-    public synchronized void addTimeslot(Timeslot timeslot) {
+    public void addTimeslot(Timeslot timeslot) {
         if (timeslot != null) {
             this.timeslots.add(timeslot);
         }
     }
 
     /**
-     * 线程安全地添加单个维护计划
+     * 添加单个维护计划
      * @param maintenance 要添加的维护计划
      */
-    public synchronized void addMaintenance(WorkCenterMaintenance maintenance) {
+    public void addMaintenance(WorkCenterMaintenance maintenance) {
         if (maintenance != null) {
             this.maintenances.add(maintenance);
         }
     }
 
     /**
-     * 线程安全地移除时间槽
+     * 移除时间槽
      * @param timeslot 要移除的时间槽
      * @return 是否成功移除
      */
-    public synchronized boolean removeTimeslot(Timeslot timeslot) {
+    public boolean removeTimeslot(Timeslot timeslot) {
         return timeslot != null && this.timeslots.remove(timeslot);
     }
 
     /**
-     * 线程安全地移除维护计划
+     * 移除维护计划
      * @param maintenance 要移除的维护计划
      * @return 是否成功移除
      */
-    public synchronized boolean removeMaintenance(WorkCenterMaintenance maintenance) {
+    public boolean removeMaintenance(WorkCenterMaintenance maintenance) {
         return maintenance != null && this.maintenances.remove(maintenance);
     }
 
+    /**
+     * 设置工序前后序关系列表
+     * @param procedureLinks 新的工序前后序关系列表
+     */
+    public void setProcedureLinks(List<ProcedureLink> procedureLinks) {
+        this.procedureLinks = procedureLinks != null ? new ArrayList<>(procedureLinks) : new ArrayList<>();
+    }
+
+    /**
+     * 规划克隆时复制问题事实，列表重新分配、元素共享
+     * @param original 被克隆的解决方案
+     */
+    void cloneProblemFacts(FactorySchedulingSolution original) {
+        this.planningClock = original.planningClock;
+        this.maintenances = new ArrayList<>(original.maintenances);
+        this.procedureLinks = new ArrayList<>(original.procedureLinks);
+    }
+
+    /**
+     * 规划克隆时直接采用已克隆的时间槽列表，不再复制
+     * @param timeslots 克隆出的时间槽列表
+     */
+    void adoptTimeslots(List<Timeslot> timeslots) {
+        this.timeslots = timeslots;
+    }
+
+    /**
+     * 带求解状态的浅拷贝
+     * <p>最佳解在内存中被多个请求共享，查询时不在原对象上设置求解状态。拷贝与原对象共享时间槽和问题事实，只能读取</p>
+     *
+     * @param solverStatus 查询时的求解状态
+     * @return 带求解状态的拷贝
+     */
+    public FactorySchedulingSolution withSolverStatus(SolverStatus solverStatus) {
+        FactorySchedulingSolution copy = new FactorySchedulingSolution();
+        copy.problemId = problemId;
+        copy.planningClock = planningClock;
+        copy.timeslots = timeslots;
+        copy.maintenances = maintenances;
+        copy.procedureLinks = procedureLinks;
+        copy.score = score;
+        copy.solverStatus = solverStatus;
+        return copy;
+    }
+
+    /**
+     * 分区搜索拆分问题时直接采用原问题的规划时钟，分钟数已在原问题中计算，不再重算
+     * @param planningClock 原问题的规划时钟
+     */
+    void adoptPlanningClock(PlanningClock planningClock) {
+        this.planningClock = planningClock;
+    }
+
+    /**
+     * 初始化求解和评分所需的问题事实
+     * <p>依次绑定时间槽取值范围、手动时间槽的日历、规划时钟和工序前后序关系。
+     * 提交求解或计算分数之前，时间槽和维护计划设置完成后必须调用一次</p>
+     *
+     * @param planningClock 规划时钟
+     */
+    public void initializeProblemFacts(PlanningClock planningClock) {
+        bindMaintenanceRanges();
+        bindAssignedMaintenances();
+        bindManualMaintenances();
+        bindPlanningClock(planningClock);
+        bindProcedureLinks();
+    }
+
+    /**
+     * 为每个时间槽绑定实体级取值范围
+     * <p>时间槽只能分配到其工序所属工作中心的日历上，求解器不再生成跨工作中心的无效移动。
+     * 工序没有工作中心或工作中心没有日历的时间槽退回到全部日历，由硬约束"工作中心必须匹配"兜底。</p>
+     * 必须在时间槽和维护计划都设置完成后、提交求解之前调用
+     */
+    public void bindMaintenanceRanges() {
+        Map<String, List<WorkCenterMaintenance>> maintenancesByWorkCenter = maintenances.stream()
+                .filter(maintenance -> maintenance.getWorkCenter() != null)
+                .collect(Collectors.groupingBy(maintenance -> maintenance.getWorkCenter().getId()));
+        for (Timeslot timeslot : timeslots) {
+            WorkCenter workCenter = timeslot.getProcedure() != null ? timeslot.getProcedure().getWorkCenter() : null;
+            List<WorkCenterMaintenance> range = workCenter != null ? maintenancesByWorkCenter.get(workCenter.getId()) : null;
+            timeslot.setMaintenanceRange(range != null ? range : maintenances);
+        }
+    }
+
+    /**
+     * 为求解期间新增的时间槽绑定取值范围
+     * <p>优先复用同一工作中心已有时间槽的取值范围列表，没有时按工作中心从日历列表中筛选，
+     * 规则与{@link #bindMaintenanceRanges()}一致</p>
+     *
+     * @param timeslot 新增的时间槽
+     */
+    public void bindMaintenanceRange(Timeslot timeslot) {
+        WorkCenter workCenter = timeslot.getProcedure() != null ? timeslot.getProcedure().getWorkCenter() : null;
+        if (workCenter == null) {
+            timeslot.setMaintenanceRange(maintenances);
+            return;
+        }
+        for (Timeslot existing : timeslots) {
+            WorkCenter existingWorkCenter = existing.getProcedure() != null ? existing.getProcedure().getWorkCenter() : null;
+            if (existing != timeslot && existingWorkCenter != null && workCenter.getId().equals(existingWorkCenter.getId())) {
+                timeslot.setMaintenanceRange(existing.getMaintenanceRange());
+                return;
+            }
+        }
+        List<WorkCenterMaintenance> range = maintenances.stream()
+                .filter(maintenance -> maintenance.getWorkCenter() != null
+                        && workCenter.getId().equals(maintenance.getWorkCenter().getId()))
+                .collect(Collectors.toList());
+        timeslot.setMaintenanceRange(range.isEmpty() ? maintenances : range);
+    }
+
+    /**
+     * 把时间槽上已分配的日历换成本问题日历列表中的同一对象
+     * <p>从数据库加载的时间槽自带上次保存的日历，与维护计划列表分别查询得到，不是同一个对象；
+     * 容量等约束按日历对象分组，必须按ID换成取值范围中的日历。不在取值范围内的分配被清空，交给求解器重新分配；
+     * 手动时间槽保留开始时间，由{@link #bindManualMaintenances()}按日期重新匹配。</p>
+     * 必须在{@link #bindMaintenanceRanges()}之后调用
+     */
+    public void bindAssignedMaintenances() {
+        Map<List<WorkCenterMaintenance>, Map<String, WorkCenterMaintenance>> rangeIndexes = new IdentityHashMap<>();
+        for (Timeslot timeslot : timeslots) {
+            WorkCenterMaintenance assigned = timeslot.getMaintenance();
+            if (assigned == null || timeslot.getMaintenanceRange() == null) {
+                continue;
+            }
+            Map<String, WorkCenterMaintenance> rangeIndex = rangeIndexes.computeIfAbsent(timeslot.getMaintenanceRange(),
+                    range -> range.stream().collect(Collectors.toMap(WorkCenterMaintenance::getId, m -> m, (a, b) -> a)));
+            WorkCenterMaintenance maintenance = rangeIndex.get(assigned.getId());
+            timeslot.setMaintenance(maintenance);
+            if (maintenance == null && !timeslot.isManual()) {
+                timeslot.setStartTime(null);
+                timeslot.setEndTime(null);
+            }
+        }
+    }
+
+    /**
+     * 为尚未绑定日历的手动时间槽按开始日期匹配本工作中心的日历
+     * <p>手动时间槽绑定日历后由{@link TimeslotPinningFilter}固定，不再参与移动。
+     * 只有带自身开始时间(用户或MES排定并保存)的时间槽按该日期匹配；工序已开工但分片尚未排定、
+     * 或匹配不到日历的时间槽取消手动标记，作为普通时间槽交给构造阶段和局部搜索分配，
+     * 否则构造阶段分配日历后会被固定，求解器无法再调整。</p>
+     * 必须在{@link #bindMaintenanceRanges()}之后调用
+     */
+    public void bindManualMaintenances() {
+        for (Timeslot timeslot : timeslots) {
+            if (!timeslot.isManual() || timeslot.getMaintenance() != null) {
+                continue;
+            }
+            Procedure procedure = timeslot.getProcedure();
+            if (timeslot.getStartTime() != null && timeslot.getMaintenanceRange() != null
+                    && procedure != null && procedure.getWorkCenter() != null) {
+                String workCenterId = procedure.getWorkCenter().getId();
+                LocalDate date = timeslot.getStartTime().toLocalDate();
+                timeslot.getMaintenanceRange().stream()
+                        .filter(maintenance -> date.equals(maintenance.getDate()) && maintenance.getWorkCenter() != null
+                                && workCenterId.equals(maintenance.getWorkCenter().getId()))
+                        .findFirst()
+                        .ifPresent(timeslot::setMaintenance);
+            }
+            if (timeslot.getMaintenance() == null) {
+                timeslot.setManual(false);
+            }
+        }
+    }
+
+    /**
+     * 绑定规划时钟，按其基准时间预先计算约束使用的整数分钟数
+     * <p>日历开始时间、工序计划结束时间、任务计划/实际开始时间在求解期间不变，只在这里计算一次；
+     * 已分配日历的时间槽按变量监听器的规则重算开始、结束时间，保证影子变量与日历一致。</p>
+     * 必须在时间槽和维护计划都设置完成后、提交求解或计算分数之前调用
+     *
+     * @param planningClock 规划时钟
+     */
+    public void bindPlanningClock(PlanningClock planningClock) {
+        this.planningClock = planningClock;
+        for (WorkCenterMaintenance maintenance : maintenances) {
+            maintenance.setStartMinute(maintenance.getDate() != null && maintenance.getStartTime() != null
+                    ? planningClock.toMinute(maintenance.getDate().atTime(maintenance.getStartTime()))
+                    : DateUtils.NO_MINUTE);
+        }
+        for (Timeslot timeslot : timeslots) {
+            bindTimeslotMinutes(timeslot);
+        }
+    }
+
+    /**
+     * 按已绑定的规划时钟计算单个时间槽及其工序、任务的分钟数，求解期间新增时间槽时使用
+     *
+     * @param timeslot 时间槽
+     */
+    public void bindTimeslotMinutes(Timeslot timeslot) {
+        Procedure procedure = timeslot.getProcedure();
+        if (procedure != null) {
+            procedure.setPlanEndMinute(procedure.getPlanEndDate() != null
+                    ? planningClock.toMinute(procedure.getPlanEndDate().atTime(23, 59))
+                    : DateUtils.NO_MINUTE);
+            Task task = procedure.getTask();
+            if (task != null) {
+                task.setFactStartMinute(planningClock.toMinute(task.getFactStartDate()));
+                task.setPlanStartMinute(task.getPlanStartDate() != null
+                        ? planningClock.toMinute(task.getPlanStartDate().atStartOfDay())
+                        : DateUtils.NO_MINUTE);
+            }
+        }
+        if (timeslot.getMaintenance() != null) {
+            TimeslotVariableListener.updateTimes(timeslot, timeslot.getMaintenance());
+        } else {
+            timeslot.setStartMinute(planningClock.toMinute(timeslot.getStartTime()));
+            timeslot.setEndMinute(planningClock.toMinute(timeslot.getEndTime()));
+        }
+    }
+
+    /**
+     * 展开工序前后序关系
+     * <p>后序工序取自{@code nextProcedure}，以及同一任务内工序号在{@code nextProcedureNo}中的工序，
+     * 只保留同一任务内、且属于本次问题的工序之间的边</p>
+     */
+    public void bindProcedureLinks() {
+        this.procedureLinks = expandProcedureLinks();
+    }
+
+    /**
+     * 按当前时间槽展开工序前后序关系，不修改本对象；求解期间增删时间槽时用于计算需要增删的关系
+     *
+     * @return 工序前后序关系
+     */
+    public List<ProcedureLink> expandProcedureLinks() {
+        Map<String, Procedure> procedures = new LinkedHashMap<>();
+        Map<String, Map<Integer, List<Procedure>>> proceduresByTaskAndNo = new LinkedHashMap<>();
+        for (Timeslot timeslot : timeslots) {
+            Procedure procedure = timeslot.getProcedure();
+            if (procedure == null || procedure.getTask() == null || procedures.containsKey(procedure.getId())) {
+                continue;
+            }
+            procedures.put(procedure.getId(), procedure);
+            proceduresByTaskAndNo.computeIfAbsent(procedure.getTask().getTaskNo(), k -> new LinkedHashMap<>())
+                    .computeIfAbsent(procedure.getProcedureNo(), k -> new ArrayList<>())
+                    .add(procedure);
+        }
+        Set<ProcedureLink> links = new LinkedHashSet<>();
+        for (Procedure procedure : procedures.values()) {
+            String taskNo = procedure.getTask().getTaskNo();
+            if (procedure.getNextProcedure() != null) {
+                for (Procedure next : procedure.getNextProcedure()) {
+                    if (procedures.containsKey(next.getId()) && taskNo.equals(next.getTask().getTaskNo())) {
+                        links.add(new ProcedureLink(procedure.getId(), next.getId()));
+                    }
+                }
+            }
+            if (procedure.getNextProcedureNo() != null) {
+                Map<Integer, List<Procedure>> sameTask = proceduresByTaskAndNo.get(taskNo);
+                for (Integer nextNo : procedure.getNextProcedureNo()) {
+                    for (Procedure next : sameTask.getOrDefault(nextNo, Collections.emptyList())) {
+                        links.add(new ProcedureLink(procedure.getId(), next.getId()));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(links);
+    }
+
 
 }
@@ -0,0 +1,194 @@
+package com.upec.factoryscheduling.aps.solution;
+
+import com.upec.factoryscheduling.aps.entity.Procedure;
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenter;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.partitionedsearch.partitioner.SolutionPartitioner;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按互不相关的任务/工作中心分量拆分调度问题，供分区搜索使用
+ * <p>任务与其工序所在的工作中心构成二部图，图的连通分量之间没有任何约束关联：
+ * 工序前后序关系和外协工序的相邻关系都在同一任务内，容量、均衡负载按工作中心(及其编码)计算。
+ * 已绑定日历的时间槽(例如固定在其他工作中心日历上的手动时间槽)同时并入该日历的工作中心；
+ * 工序没有工作中心的时间槽可以分配到任意日历，出现时所有工作中心并为一个分量。</p>
+ * <p>分量按时间槽数从大到小装入当前最小的分区，分区数默认取可运行的分区线程数，
+ * 可通过分区器自定义属性partCount指定。各分区是独立的解决方案，时间槽为克隆对象，
+ * 只包含本分区工作中心的日历和本分区工序之间的前后序关系。</p>
+ */
+@Slf4j
+@Getter
+@Setter
+public class FactorySchedulingSolutionPartitioner implements SolutionPartitioner<FactorySchedulingSolution> {
+
+    private static final String TASK_KEY = "task:";
+    private static final String WORK_CENTER_KEY = "workCenter:";
+    private static final String WORK_CENTER_CODE_KEY = "workCenterCode:";
+
+    /**
+     * 分区数，为空时取可运行的分区线程数
+     */
+    private Integer partCount;
+
+    @Override
+    public List<FactorySchedulingSolution> splitWorkingSolution(ScoreDirector<FactorySchedulingSolution> scoreDirector,
+                                                                Integer runnablePartThreadLimit) {
+        FactorySchedulingSolution original = scoreDirector.getWorkingSolution();
+        List<Timeslot> timeslots = original.getTimeslots();
+
+        // 合并任务与工作中心
+        DisjointSet components = new DisjointSet();
+        boolean unboundTimeslot = false;
+        for (Timeslot timeslot : timeslots) {
+            Procedure procedure = timeslot.getProcedure();
+            String taskKey = taskKey(timeslot);
+            WorkCenterMaintenance maintenance = timeslot.getMaintenance();
+            if (maintenance != null && maintenance.getWorkCenter() != null) {
+                components.union(taskKey, WORK_CENTER_KEY + maintenance.getWorkCenter().getId());
+            }
+            WorkCenter workCenter = procedure != null ? procedure.getWorkCenter() : null;
+            if (workCenter == null) {
+                components.union(taskKey, WORK_CENTER_KEY);
+                unboundTimeslot = true;
+                continue;
+            }
+            components.union(taskKey, WORK_CENTER_KEY + workCenter.getId());
+            if (workCenter.getWorkCenterCode() != null) {
+                components.union(WORK_CENTER_KEY + workCenter.getId(), WORK_CENTER_CODE_KEY + workCenter.getWorkCenterCode());
+            }
+        }
+        if (unboundTimeslot) {
+            log.warn("Problem {} has timeslots without a work center, all work centers are solved in one partition",
+                    original.getProblemId());
+            for (WorkCenterMaintenance maintenance : original.getMaintenances()) {
+                if (maintenance.getWorkCenter() != null) {
+                    components.union(WORK_CENTER_KEY, WORK_CENTER_KEY + maintenance.getWorkCenter().getId());
+                }
+            }
+        }
+
+        // 按分量归集时间槽
+        Map<String, List<Timeslot>> timeslotsByComponent = new HashMap<>();
+        for (Timeslot timeslot : timeslots) {
+            timeslotsByComponent.computeIfAbsent(components.find(taskKey(timeslot)), k -> new ArrayList<>()).add(timeslot);
+        }
+        List<List<Timeslot>> componentList = new ArrayList<>(timeslotsByComponent.values());
+        componentList.sort(Comparator.comparingInt((List<Timeslot> component) -> component.size()).reversed());
+
+        // 从大到小装入当前最小的分区
+        int targetPartCount = partCount != null ? partCount
+                : runnablePartThreadLimit != null ? runnablePartThreadLimit
+                : Runtime.getRuntime().availableProcessors();
+        int parts = Math.max(1, Math.min(targetPartCount, componentList.size()));
+        List<List<Timeslot>> partTimeslots = new ArrayList<>(parts);
+        for (int i = 0; i < parts; i++) {
+            partTimeslots.add(new ArrayList<>());
+        }
+        for (List<Timeslot> component : componentList) {
+            partTimeslots.stream().min(Comparator.comparingInt(List::size)).get().addAll(component);
+        }
+
+        List<FactorySchedulingSolution> partList = new ArrayList<>(parts);
+        for (List<Timeslot> part : partTimeslots) {
+            partList.add(buildPart(original, part));
+        }
+        log.info("Problem {} split into {} partitions from {} independent components",
+                original.getProblemId(), parts, componentList.size());
+        return partList;
+    }
+
+    private FactorySchedulingSolution buildPart(FactorySchedulingSolution original, List<Timeslot> timeslots) {
+        List<Timeslot> partTimeslots = new ArrayList<>(timeslots.size());
+        Set<String> workCenterIds = new HashSet<>();
+        Set<String> procedureIds = new HashSet<>();
+        boolean allWorkCenters = false;
+        for (Timeslot timeslot : timeslots) {
+            partTimeslots.add(FactorySchedulingSolutionCloner.cloneTimeslot(timeslot));
+            if (timeslot.getMaintenance() != null && timeslot.getMaintenance().getWorkCenter() != null) {
+                workCenterIds.add(timeslot.getMaintenance().getWorkCenter().getId());
+            }
+            Procedure procedure = timeslot.getProcedure();
+            if (procedure == null) {
+                allWorkCenters = true;
+                continue;
+            }
+            procedureIds.add(procedure.getId());
+            if (procedure.getWorkCenter() != null) {
+                workCenterIds.add(procedure.getWorkCenter().getId());
+            } else {
+                allWorkCenters = true;
+            }
+        }
+        List<WorkCenterMaintenance> partMaintenances = new ArrayList<>();
+        for (WorkCenterMaintenance maintenance : original.getMaintenances()) {
+            if (allWorkCenters || maintenance.getWorkCenter() != null
+                    && workCenterIds.contains(maintenance.getWorkCenter().getId())) {
+                partMaintenances.add(maintenance);
+            }
+        }
+        List<ProcedureLink> partLinks = new ArrayList<>();
+        for (ProcedureLink link : original.getProcedureLinks()) {
+            if (procedureIds.contains(link.getPredecessorId())) {
+                partLinks.add(link);
+            }
+        }
+        FactorySchedulingSolution part = new FactorySchedulingSolution();
+        part.setProblemId(original.getProblemId());
+        part.adoptTimeslots(partTimeslots);
+        part.setMaintenances(partMaintenances);
+        part.setProcedureLinks(partLinks);
+        part.adoptPlanningClock(original.getPlanningClock());
+        return part;
+    }
+
+    private static String taskKey(Timeslot timeslot) {
+        Procedure procedure = timeslot.getProcedure();
+        if (procedure == null) {
+            return "timeslot:" + timeslot.getId();
+        }
+        return procedure.getTask() != null ? TASK_KEY + procedure.getTask().getTaskNo() : "procedure:" + procedure.getId();
+    }
+
+    /**
+     * 按键合并的并查集
+     */
+    private static final class DisjointSet {
+
+        private final Map<String, String> parents = new HashMap<>();
+
+        String find(String key) {
+            String root = key;
+            String parent = parents.putIfAbsent(root, root);
+            while (parent != null && !parent.equals(root)) {
+                root = parent;
+                parent = parents.get(root);
+            }
+            // 路径压缩
+            String current = key;
+            while (!current.equals(root)) {
+                current = parents.put(current, root);
+            }
+            return root;
+        }
+
+        void union(String left, String right) {
+            String leftRoot = find(left);
+            String rightRoot = find(right);
+            if (!leftRoot.equals(rightRoot)) {
+                parents.put(leftRoot, rightRoot);
+            }
+        }
+    }
+}
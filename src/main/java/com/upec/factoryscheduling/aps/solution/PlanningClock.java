@@ -0,0 +1,57 @@
+package com.upec.factoryscheduling.aps.solution;
+
+import com.upec.factoryscheduling.common.utils.DateUtils;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 规划时钟 - 问题事实
+ * <p>在加载问题时固定规划基准时间和"当前时间"，求解期间不再变化。
+ * 与当前时间相关的约束统一从这里读取，不在评分过程中调用{@code LocalDateTime.now()}，
+ * 保证增量分数与完整重算一致、同一问题的分数可重现。</p>
+ */
+@Getter
+public class PlanningClock implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 规划基准时间 - 所有分钟数字段都相对该时间计算
+     */
+    private final LocalDateTime epoch;
+
+    /**
+     * 加载问题时的当前时间
+     */
+    private final LocalDateTime now;
+
+    /**
+     * 当前时间相对规划基准时间的分钟数
+     */
+    private final int nowMinute;
+
+    public PlanningClock(LocalDateTime epoch, LocalDateTime now) {
+        this.epoch = epoch;
+        this.now = now;
+        this.nowMinute = DateUtils.toEpochMinute(epoch, now);
+    }
+
+    /**
+     * 以规划开始日期0点为基准时间，固定此刻为当前时间
+     *
+     * @param planningStart 规划开始日期
+     * @return 规划时钟
+     */
+    public static PlanningClock startingAt(LocalDate planningStart) {
+        return new PlanningClock(planningStart.atStartOfDay(), LocalDateTime.now());
+    }
+
+    /**
+     * 时间点相对规划基准时间的分钟数
+     */
+    public int toMinute(LocalDateTime dateTime) {
+        return DateUtils.toEpochMinute(epoch, dateTime);
+    }
+}
@@ -0,0 +1,63 @@
+package com.upec.factoryscheduling.aps.solution;
+
+import lombok.Getter;
+import org.optaplanner.core.api.domain.lookup.PlanningId;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * 工序前后序关系 - 问题事实
+ * <p>加载问题时由{@code Procedure.nextProcedure}/{@code Procedure.nextProcedureNo}展开得到，
+ * 每条记录表示一条"前序工序 -> 后序工序"的边。工序顺序类约束通过工序ID做等值连接，
+ * 约束流可以建立索引，评分代价与边数成正比。</p>
+ */
+@Getter
+public class ProcedureLink implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 前序工序ID
+     */
+    private final String predecessorId;
+
+    /**
+     * 后序工序ID
+     */
+    private final String successorId;
+
+    public ProcedureLink(String predecessorId, String successorId) {
+        this.predecessorId = predecessorId;
+        this.successorId = successorId;
+    }
+
+    /**
+     * 关系标识，求解期间通过问题变更增删关系时按此查找工作解中的对象
+     */
+    @PlanningId
+    public String getId() {
+        return predecessorId + "->" + successorId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ProcedureLink that = (ProcedureLink) o;
+        return Objects.equals(predecessorId, that.predecessorId) && Objects.equals(successorId, that.successorId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(predecessorId, successorId);
+    }
+
+    @Override
+    public String toString() {
+        return predecessorId + "->" + successorId;
+    }
+}
@@ -0,0 +1,19 @@
+package com.upec.factoryscheduling.aps.solution;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import org.optaplanner.core.api.domain.entity.PinningFilter;
+
+/**
+ * 时间槽固定过滤器
+ * <p>已完成或手动排定({@code manual})且已绑定工作中心日历的时间槽被固定，
+ * 构造启发式和局部搜索都不再为其生成移动。手动时间槽没有匹配到日历时由
+ * {@link FactorySchedulingSolution#bindManualMaintenances()}取消手动标记，仍由求解器分配，
+ * 避免出现无法初始化的固定实体，也避免构造阶段分配后被固定。</p>
+ */
+public class TimeslotPinningFilter implements PinningFilter<FactorySchedulingSolution, Timeslot> {
+
+    @Override
+    public boolean accept(FactorySchedulingSolution solution, Timeslot timeslot) {
+        return timeslot.isManual() && timeslot.getMaintenance() != null;
+    }
+}
@@ -3,6 +3,7 @@ package com.upec.factoryscheduling.aps.solution;
 import com.upec.factoryscheduling.aps.entity.Procedure;
 import com.upec.factoryscheduling.aps.entity.Timeslot;
 import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.common.utils.DateUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.optaplanner.core.api.domain.variable.VariableListener;
 import org.optaplanner.core.api.score.director.ScoreDirector;
@@ -10,7 +11,6 @@ import org.optaplanner.core.api.score.director.ScoreDirector;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.concurrent.locks.StampedLock;
 
 @Slf4j
 public class TimeslotVariableListener implements VariableListener<FactorySchedulingSolution, Timeslot>, Serializable {
@@ -19,10 +19,8 @@ public class TimeslotVariableListener implements VariableListener<FactorySchedul
 
     private static final String WORK_CENTER_CODE = "PM10W200";
 
-    /**
-     * 全局锁 - 用于保护关键操作，使用StampedLock提高读写性能
-     */
-    private final StampedLock globalLock = new StampedLock();
+    private static final String START_TIME = "startTime";
+    private static final String END_TIME = "endTime";
 
     @Override
     public void beforeVariableChanged(ScoreDirector<FactorySchedulingSolution> scoreDirector, Timeslot timeslot) {
@@ -35,12 +33,11 @@ public class TimeslotVariableListener implements VariableListener<FactorySchedul
         if (timeslot.getMaintenance() != null) {
             WorkCenterMaintenance maintenance = timeslot.getMaintenance();
             // 使用ScoreDirector通知变量变更
-            scoreDirector.beforeVariableChanged(timeslot, "startTime");
-            // 更新开始时间
-            LocalDateTime startTime = maintenance.getDate().atTime(maintenance.getStartTime());
-            timeslot.setStartTime(startTime);
+            notifyBeforeTimesChanged(scoreDirector, timeslot);
+            // 更新开始、结束时间及对应的分钟数
+            updateTimes(timeslot, maintenance);
             // 通知ScoreDirector开始时间已变更
-            scoreDirector.afterVariableChanged(timeslot, "startTime");
+            notifyAfterTimesChanged(scoreDirector, timeslot);
         }
     }
 
@@ -76,6 +73,30 @@ public class TimeslotVariableListener implements VariableListener<FactorySchedul
         }
     }
 
+    /**
+     * 根据分配的工作中心日历计算时间槽的开始、结束时间
+     * <p>分钟数直接取自日历预先计算的开始分钟，约束只读取整数字段。
+     * 分钟数不是单独声明的影子变量(影子变量不支持基本类型)，而是与startTime/endTime在同一次变更通知中一起更新</p>
+     */
+    static void updateTimes(Timeslot timeslot, WorkCenterMaintenance maintenance) {
+        LocalDateTime startTime = maintenance.getDate().atTime(maintenance.getStartTime());
+        timeslot.setStartTime(startTime);
+        timeslot.setEndTime(startTime.plusMinutes(timeslot.getDuration()));
+        int startMinute = maintenance.getStartMinute();
+        timeslot.setStartMinute(startMinute);
+        timeslot.setEndMinute(startMinute == DateUtils.NO_MINUTE ? DateUtils.NO_MINUTE : startMinute + timeslot.getDuration());
+    }
+
+    private void notifyBeforeTimesChanged(ScoreDirector<FactorySchedulingSolution> scoreDirector, Timeslot timeslot) {
+        scoreDirector.beforeVariableChanged(timeslot, START_TIME);
+        scoreDirector.beforeVariableChanged(timeslot, END_TIME);
+    }
+
+    private void notifyAfterTimesChanged(ScoreDirector<FactorySchedulingSolution> scoreDirector, Timeslot timeslot) {
+        scoreDirector.afterVariableChanged(timeslot, START_TIME);
+        scoreDirector.afterVariableChanged(timeslot, END_TIME);
+    }
+
     private void setOutsourcingTime(Timeslot timeslot) {
         Procedure procedure = timeslot.getProcedure();
         List<Procedure> procedures = procedure.getNextProcedure();
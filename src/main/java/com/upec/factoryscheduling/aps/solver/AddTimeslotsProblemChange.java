@@ -0,0 +1,82 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Procedure;
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.ProcedureLink;
+import lombok.extern.slf4j.Slf4j;
+import org.optaplanner.core.api.solver.change.ProblemChange;
+import org.optaplanner.core.api.solver.change.ProblemChangeDirector;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 求解期间新增时间槽(例如插单)
+ * <p>新时间槽按工作解的日历绑定取值范围和分钟数，工序已在工作解中时复用工作解的工序对象；
+ * 除已绑定本工作中心日历的手动时间槽外都以未分配状态加入，由重新开始的构造阶段分配。
+ * 新增时间槽带来的工序前后序关系作为问题事实一并加入。工作解中已存在的时间槽忽略。</p>
+ */
+@Slf4j
+public class AddTimeslotsProblemChange implements ProblemChange<FactorySchedulingSolution> {
+
+    private final List<Timeslot> timeslots;
+
+    public AddTimeslotsProblemChange(List<Timeslot> timeslots) {
+        this.timeslots = timeslots;
+    }
+
+    @Override
+    public void doChange(FactorySchedulingSolution workingSolution, ProblemChangeDirector problemChangeDirector) {
+        Map<String, Procedure> procedures = new HashMap<>();
+        for (Timeslot timeslot : workingSolution.getTimeslots()) {
+            if (timeslot.getProcedure() != null) {
+                procedures.putIfAbsent(timeslot.getProcedure().getId(), timeslot.getProcedure());
+            }
+        }
+        int added = 0;
+        for (Timeslot timeslot : timeslots) {
+            if (problemChangeDirector.lookUpWorkingObject(timeslot).isPresent()) {
+                continue;
+            }
+            if (timeslot.getProcedure() != null) {
+                timeslot.setProcedure(procedures.computeIfAbsent(timeslot.getProcedure().getId(),
+                        id -> timeslot.getProcedure()));
+            }
+            workingSolution.bindMaintenanceRange(timeslot);
+            timeslot.setMaintenance(timeslot.isManual() ? findInRange(timeslot, timeslot.getMaintenance()) : null);
+            if (timeslot.getMaintenance() == null) {
+                // 没有可固定日历的手动时间槽按普通时间槽分配，避免构造阶段分配后被固定
+                timeslot.setManual(false);
+                timeslot.setStartTime(null);
+                timeslot.setEndTime(null);
+            }
+            workingSolution.bindTimeslotMinutes(timeslot);
+            problemChangeDirector.addEntity(timeslot, workingSolution.getTimeslots()::add);
+            added++;
+        }
+        Set<ProcedureLink> existingLinks = new HashSet<>(workingSolution.getProcedureLinks());
+        for (ProcedureLink link : workingSolution.expandProcedureLinks()) {
+            if (!existingLinks.contains(link)) {
+                problemChangeDirector.addProblemFact(link, workingSolution.getProcedureLinks()::add);
+            }
+        }
+        log.info("Problem {}: added {} timeslots to the running solve", workingSolution.getProblemId(), added);
+    }
+
+    private static WorkCenterMaintenance findInRange(Timeslot timeslot, WorkCenterMaintenance maintenance) {
+        if (maintenance == null) {
+            return null;
+        }
+        for (WorkCenterMaintenance candidate : timeslot.getMaintenanceRange()) {
+            if (candidate.getId().equals(maintenance.getId())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
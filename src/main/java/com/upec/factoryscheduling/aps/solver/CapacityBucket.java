@@ -0,0 +1,53 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/**
+ * 维护日容量桶 - 同一个{@code WorkCenterMaintenance}上已分配分片的时长汇总
+ * <p>由{@link CapacityBucketCollector}在一次分组中同时统计两个口径：
+ * {@code usedMinutes}为全部分片时长，用于容量利用率奖励；
+ * {@code countedMinutes}剔除外协(PM10W200)分片，用于容量超限惩罚。</p>
+ */
+@Getter
+public class CapacityBucket implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 全部分片时长(分钟)
+     */
+    private final int usedMinutes;
+
+    /**
+     * 计入容量校验的分片时长(分钟)，不含外协工序
+     */
+    private final int countedMinutes;
+
+    public CapacityBucket(int usedMinutes, int countedMinutes) {
+        this.usedMinutes = usedMinutes;
+        this.countedMinutes = countedMinutes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CapacityBucket that = (CapacityBucket) o;
+        return usedMinutes == that.usedMinutes && countedMinutes == that.countedMinutes;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * usedMinutes + countedMinutes;
+    }
+
+    @Override
+    public String toString() {
+        return "CapacityBucket(used=" + usedMinutes + ", counted=" + countedMinutes + ")";
+    }
+}
@@ -0,0 +1,66 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenter;
+import org.optaplanner.core.api.score.stream.uni.UniConstraintCollector;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 容量桶收集器
+ * <p>按维护日分组后，一次累加同时得到全部时长和计入容量的时长，
+ * 容量超限惩罚与容量利用率奖励共用同一个分组节点。</p>
+ */
+public final class CapacityBucketCollector
+        implements UniConstraintCollector<Timeslot, CapacityBucketCollector.Accumulator, CapacityBucket> {
+
+    public static final CapacityBucketCollector INSTANCE = new CapacityBucketCollector();
+
+    /**
+     * 外协工作中心编码，不计入维护容量
+     */
+    static final String OUTSOURCING_WORK_CENTER_CODE = "PM10W200";
+
+    private CapacityBucketCollector() {
+    }
+
+    /**
+     * 是否为外协工序分片
+     */
+    static boolean isOutsourcing(Timeslot timeslot) {
+        WorkCenter workCenter = timeslot.getProcedure().getWorkCenter();
+        return workCenter != null && OUTSOURCING_WORK_CENTER_CODE.equals(workCenter.getWorkCenterCode());
+    }
+
+    @Override
+    public Supplier<Accumulator> supplier() {
+        return Accumulator::new;
+    }
+
+    @Override
+    public BiFunction<Accumulator, Timeslot, Runnable> accumulator() {
+        return (accumulator, timeslot) -> {
+            // 撤销时使用插入时的值，避免分片属性变化导致汇总错位
+            int duration = timeslot.getDuration();
+            int counted = isOutsourcing(timeslot) ? 0 : duration;
+            accumulator.usedMinutes += duration;
+            accumulator.countedMinutes += counted;
+            return () -> {
+                accumulator.usedMinutes -= duration;
+                accumulator.countedMinutes -= counted;
+            };
+        };
+    }
+
+    @Override
+    public Function<Accumulator, CapacityBucket> finisher() {
+        return accumulator -> new CapacityBucket(accumulator.usedMinutes, accumulator.countedMinutes);
+    }
+
+    public static final class Accumulator {
+        private int usedMinutes;
+        private int countedMinutes;
+    }
+}
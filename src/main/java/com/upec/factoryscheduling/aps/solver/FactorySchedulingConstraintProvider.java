@@ -1,17 +1,20 @@
 package com.upec.factoryscheduling.aps.solver;
 
 import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.solution.PlanningClock;
+import com.upec.factoryscheduling.aps.solution.ProcedureLink;
+import com.upec.factoryscheduling.common.utils.DateUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
 import org.optaplanner.core.api.score.stream.Constraint;
 import org.optaplanner.core.api.score.stream.ConstraintFactory;
 import org.optaplanner.core.api.score.stream.ConstraintProvider;
 import org.optaplanner.core.api.score.stream.Joiners;
+import org.optaplanner.core.api.score.stream.bi.BiConstraintStream;
 import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
-import java.time.Duration;
-import java.time.LocalDateTime;
 
 import static org.optaplanner.core.api.score.stream.ConstraintCollectors.sum;
 
@@ -25,23 +28,28 @@ public class FactorySchedulingConstraintProvider implements ConstraintProvider,
     private static final String STATUS_AVAILABLE = "Active";
     private static final int MINUTES_PER_DAY = 480;
     private static final int PLANNING_HORIZON_DAYS = 30;
-    private static final int AVERAGE_DAILY_LOAD = MINUTES_PER_DAY * PLANNING_HORIZON_DAYS;
+    static final int AVERAGE_DAILY_LOAD = MINUTES_PER_DAY * PLANNING_HORIZON_DAYS;
     private static final int CAPACITY_BUFFER = 60; // 每天预留60分钟缓冲
+    static final int MINUTES_PER_HOUR = 60;
+    static final int MINUTES_OF_DAY = 24 * MINUTES_PER_HOUR;
+    static final int NO_MINUTE = DateUtils.NO_MINUTE;
 
     // 权重常数
-    private static final int HARD_PENALTY_WEIGHT = 1000;
-    private static final int MEDIUM_PENALTY_WEIGHT = 100;
-    private static final int SOFT_REWARD_WEIGHT = 10;
+    static final int HARD_PENALTY_WEIGHT = 1000;
+    static final int MEDIUM_PENALTY_WEIGHT = 100;
+    static final int SOFT_REWARD_WEIGHT = 10;
 
     private static final String WORK_CENTER_CODE = "PM10W200";
 
     @Override
     public Constraint[] defineConstraints(ConstraintFactory constraintFactory) {
+        // 容量超限惩罚与容量利用率奖励共用同一个维护日分组
+        BiConstraintStream<WorkCenterMaintenance, CapacityBucket> capacityBuckets = capacityBuckets(constraintFactory);
         return new Constraint[]{
                 // ============ 硬约束 (必须满足) ============
                 // 基本业务规则违反 - 最高优先级
                 hardWorkCenterMatch(constraintFactory),
-                hardCapacityExceeded(constraintFactory),
+                hardCapacityExceeded(capacityBuckets),
                 hardOutsourcingProcedurePreviousTimeConstraint(constraintFactory),
                 hardOutsourcingProcedureNextTimeConstraint(constraintFactory),
 
@@ -58,7 +66,7 @@ public class FactorySchedulingConstraintProvider implements ConstraintProvider,
                 softHighPriorityFirst(constraintFactory),
                 softBalancedLoad(constraintFactory),
                 softContinuousSlices(constraintFactory),
-                softCapacityUtilization(constraintFactory)
+                softCapacityUtilization(capacityBuckets)
         };
     }
 
@@ -76,21 +84,27 @@ public class FactorySchedulingConstraintProvider implements ConstraintProvider,
                 .asConstraint("硬约束：工作中心必须匹配");
     }
 
+    /**
+     * 维护日容量桶：按维护日分组，一次统计全部分片时长与计入容量的时长
+     */
+    protected BiConstraintStream<WorkCenterMaintenance, CapacityBucket> capacityBuckets(ConstraintFactory constraintFactory) {
+        return constraintFactory.forEach(Timeslot.class)
+                .filter(timeslot -> timeslot.getMaintenance() != null && timeslot.getDuration() > 0)
+                .groupBy(Timeslot::getMaintenance, CapacityBucketCollector.INSTANCE);
+    }
+
     /**
      * 硬约束2: 不能超过维护容量
      * 违反条件：分配给某天维护的任务总时长超过维护容量
      * 注意：工作中心为PM10W200的外协工序不考虑容量约束
      */
-    protected Constraint hardCapacityExceeded(ConstraintFactory constraintFactory) {
-        return constraintFactory.forEach(Timeslot.class)
-                .filter(timeslot -> timeslot.getMaintenance() != null && timeslot.getDuration() > 0 &&
-                        (timeslot.getProcedure().getWorkCenter() == null || !WORK_CENTER_CODE.equals(timeslot.getProcedure().getWorkCenter().getWorkCenterCode())))
-                .groupBy(Timeslot::getMaintenance, sum(Timeslot::getDuration))
-                .filter((maintenance, totalDuration) ->
-                        totalDuration + maintenance.getUsageTime() > maintenance.getCapacity())
+    protected Constraint hardCapacityExceeded(BiConstraintStream<WorkCenterMaintenance, CapacityBucket> capacityBuckets) {
+        return capacityBuckets
+                .filter((maintenance, bucket) -> bucket.getCountedMinutes() > 0 &&
+                        bucket.getCountedMinutes() + maintenance.getUsageTime() > maintenance.getCapacity())
                 .penalize(HardMediumSoftScore.ONE_HARD,
-                        (maintenance, totalDuration) -> {
-                            int exceeded = totalDuration + maintenance.getUsageTime() - maintenance.getCapacity();
+                        (maintenance, bucket) -> {
+                            int exceeded = bucket.getCountedMinutes() + maintenance.getUsageTime() - maintenance.getCapacity();
                             return exceeded * HARD_PENALTY_WEIGHT;
                         })
                 .asConstraint("硬约束：不能超过维护容量");
@@ -106,11 +120,11 @@ public class FactorySchedulingConstraintProvider implements ConstraintProvider,
                         WORK_CENTER_CODE.equals(timeslot.getProcedure().getWorkCenter().getWorkCenterCode()) &&
                         timeslot.getProcedure() != null &&
                         timeslot.getProcedure().getProcedureNo() > 1 &&
-                        timeslot.getStartTime() != null)
+                        timeslot.getStartMinute() != NO_MINUTE)
                 .join(Timeslot.class,
                         Joiners.equal(t -> t.getProcedure().getTask().getTaskNo(), t -> t.getProcedure().getTask().getTaskNo()),
                         Joiners.equal(t -> t.getProcedure().getIndex() - 1, t -> t.getProcedure().getIndex()))
-                .filter((current, previous) -> previous.getEndTime() != null && !previous.getEndTime().equals(current.getStartTime()))
+                .filter((current, previous) -> previous.getEndMinute() != NO_MINUTE && previous.getEndMinute() != current.getStartMinute())
                 .penalize(HardMediumSoftScore.ONE_HARD,
                         (current, previous) -> HARD_PENALTY_WEIGHT * 10)
                 .asConstraint("硬约束：外协工序-上一道工序结束时间必须等于该工序开始时间");
@@ -119,43 +133,43 @@ public class FactorySchedulingConstraintProvider implements ConstraintProvider,
     /**
      * 硬约束6: 外协工序时间约束 - 该工序结束时间必须等于下一道工序开始时间
      * 仅适用于工作中心为PM10W200的外协工序
+     * 通过工序前后序关系(ProcedureLink)按工序ID等值连接后序时间槽
      */
     protected Constraint hardOutsourcingProcedureNextTimeConstraint(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(Timeslot.class)
                 .filter(timeslot -> timeslot.getProcedure().getWorkCenter() != null &&
                         WORK_CENTER_CODE.equals(timeslot.getProcedure().getWorkCenter().getWorkCenterCode()) &&
                         timeslot.getProcedure() != null &&
-                        timeslot.getProcedure().getNextProcedureNo() != null && !
-                        timeslot.getProcedure().getNextProcedureNo().isEmpty() &&
-                        timeslot.getEndTime() != null)
+                        timeslot.getEndMinute() != NO_MINUTE)
+                .join(ProcedureLink.class,
+                        Joiners.equal(t -> t.getProcedure().getId(), ProcedureLink::getPredecessorId))
                 .join(Timeslot.class,
-                        Joiners.equal(t -> t.getProcedure().getTask().getTaskNo(), t -> t.getProcedure().getTask().getTaskNo()),
-                        Joiners.filtering((current, next) -> next.getProcedure() != null &&
-                                current.getProcedure().getNextProcedureNo().contains(next.getProcedure().getProcedureNo())))
-                .filter((current, next) -> next.getStartTime() != null && !current.getEndTime().equals(next.getStartTime()))
-                .penalize(HardMediumSoftScore.ONE_HARD, (current, next) -> HARD_PENALTY_WEIGHT * 10)
+                        Joiners.equal((current, link) -> link.getSuccessorId(), next -> next.getProcedure().getId()))
+                .filter((current, link, next) -> next.getStartMinute() != NO_MINUTE && current.getEndMinute() != next.getStartMinute())
+                .penalize(HardMediumSoftScore.ONE_HARD, (current, link, next) -> HARD_PENALTY_WEIGHT * 10)
                 .asConstraint("硬约束：外协工序-该工序结束时间必须等于下一道工序开始时间");
     }
 
     /**
      * 中等约束1: 工序顺序约束
      * 违反条件：后序工序在前序工序完成前开始
+     * 通过工序前后序关系(ProcedureLink)按工序ID等值连接后序时间槽
      */
     protected Constraint mediumProcedureSequence(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(Timeslot.class)
                 .filter(timeslot -> timeslot.getProcedure() != null &&
-                        timeslot.getEndTime() != null && !
-                        timeslot.getProcedure().getNextProcedure().isEmpty())
+                        timeslot.getEndMinute() != NO_MINUTE)
+                .join(ProcedureLink.class,
+                        Joiners.equal(t -> t.getProcedure().getId(), ProcedureLink::getPredecessorId))
                 .join(Timeslot.class,
-                        Joiners.equal(t -> t.getProcedure().getTask().getTaskNo(), t -> t.getProcedure().getTask().getTaskNo()),
-                        Joiners.filtering((current, next) -> current.getProcedure().getNextProcedure().stream().anyMatch(p -> p.getId().equals(next.getProcedure().getId()))))
-                .filter((current, next) ->
-                        next.getStartTime() != null && !current.getEndTime().isBefore(next.getStartTime()))
+                        Joiners.equal((current, link) -> link.getSuccessorId(), next -> next.getProcedure().getId()))
+                .filter((current, link, next) ->
+                        next.getStartMinute() != NO_MINUTE && current.getEndMinute() >= next.getStartMinute())
                 .penalize(HardMediumSoftScore.ONE_MEDIUM,
-                        (current, next) -> {
+                        (current, link, next) -> {
                             // 如果后序在前序完成前开始，计算提前的时间
-                            long minutesEarly = Duration.between(next.getStartTime(), current.getEndTime()).toMinutes();
-                            return (int) Math.max(0, minutesEarly) * MEDIUM_PENALTY_WEIGHT;
+                            int minutesEarly = current.getEndMinute() - next.getStartMinute();
+                            return Math.max(0, minutesEarly) * MEDIUM_PENALTY_WEIGHT;
                         }).asConstraint("中约束：工序必须按顺序执行");
     }
 
@@ -170,9 +184,9 @@ public class FactorySchedulingConstraintProvider implements ConstraintProvider,
                         Joiners.equal(Timeslot::getProcedure),
                         Joiners.equal(t -> t.getIndex() + 1, Timeslot::getIndex))
                 .filter((slice1, slice2) ->
-                        slice2.getStartTime() != null &&
-                                slice1.getEndTime() != null && !
-                                slice1.getEndTime().isBefore(slice2.getStartTime()))
+                        slice2.getStartMinute() != NO_MINUTE &&
+                                slice1.getEndMinute() != NO_MINUTE &&
+                                slice1.getEndMinute() >= slice2.getStartMinute())
                 .penalize(HardMediumSoftScore.ONE_MEDIUM,
                         (slice1, slice2) -> MEDIUM_PENALTY_WEIGHT * 5)
                 .asConstraint("中约束：同一工序分片必须按顺序执行");
@@ -186,14 +200,14 @@ public class FactorySchedulingConstraintProvider implements ConstraintProvider,
         return constraintFactory.forEach(Timeslot.class)
                 .filter(timeslot ->
                         timeslot.getProcedure().getTask() != null
-                                && timeslot.getProcedure().getTask().getFactStartDate() != null
-                                && timeslot.getStartTime() != null
-                                && timeslot.getStartTime().isBefore(timeslot.getProcedure().getTask().getFactStartDate()))
+                                && timeslot.getProcedure().getTask().getFactStartMinute() != NO_MINUTE
+                                && timeslot.getStartMinute() != NO_MINUTE
+                                && timeslot.getStartMinute() < timeslot.getProcedure().getTask().getFactStartMinute())
                 .penalize(HardMediumSoftScore.ONE_MEDIUM,
                         timeslot -> {
-                            long daysEarly =
-                                    Duration.between(timeslot.getStartTime(), timeslot.getProcedure().getTask().getFactStartDate()).toDays();
-                            return (int) daysEarly * MEDIUM_PENALTY_WEIGHT;
+                            int daysEarly =
+                                    (timeslot.getProcedure().getTask().getFactStartMinute() - timeslot.getStartMinute()) / MINUTES_OF_DAY;
+                            return daysEarly * MEDIUM_PENALTY_WEIGHT;
                         }).asConstraint("中约束：不能早于实际开始时间");
     }
 
@@ -203,16 +217,16 @@ public class FactorySchedulingConstraintProvider implements ConstraintProvider,
      */
     protected Constraint softEarlyCompletion(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(Timeslot.class)
-                .filter(timeslot -> timeslot.getEndTime() != null &&
+                .filter(timeslot -> timeslot.getEndMinute() != NO_MINUTE &&
                         timeslot.getProcedure() != null &&
-                        timeslot.getProcedure().getPlanEndDate() != null)
+                        timeslot.getProcedure().getPlanEndMinute() != NO_MINUTE)
                 .reward(HardMediumSoftScore.ONE_SOFT,
                         timeslot -> {
-                            LocalDateTime planEnd = timeslot.getProcedure().getPlanEndDate().atTime(23, 59);
-                            LocalDateTime actualEnd = timeslot.getEndTime();
-                            if (actualEnd.isBefore(planEnd)) {
-                                long daysEarly = Duration.between(actualEnd, planEnd).toDays();
-                                return (int) daysEarly * SOFT_REWARD_WEIGHT;
+                            int planEnd = timeslot.getProcedure().getPlanEndMinute();
+                            int actualEnd = timeslot.getEndMinute();
+                            if (actualEnd < planEnd) {
+                                int daysEarly = (planEnd - actualEnd) / MINUTES_OF_DAY;
+                                return daysEarly * SOFT_REWARD_WEIGHT;
                             }
                             return 0;
                         }).asConstraint("软约束：奖励提前完成");
@@ -224,17 +238,17 @@ public class FactorySchedulingConstraintProvider implements ConstraintProvider,
      */
     protected Constraint softOnTimeStart(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(Timeslot.class)
-                .filter(timeslot -> timeslot.getStartTime() != null &&
+                .filter(timeslot -> timeslot.getStartMinute() != NO_MINUTE &&
                         timeslot.getProcedure().getTask() != null &&
-                        timeslot.getProcedure().getTask().getPlanStartDate() != null &&
+                        timeslot.getProcedure().getTask().getPlanStartMinute() != NO_MINUTE &&
                         timeslot.getProcedureIndex() == 1)
                 .reward(HardMediumSoftScore.ONE_SOFT,
                         timeslot -> {
-                            LocalDateTime planStart = timeslot.getProcedure().getTask().getPlanStartDate().atStartOfDay();
-                            LocalDateTime actualStart = timeslot.getStartTime();
-                            long hoursDiff = Math.abs(Duration.between(planStart, actualStart).toHours());
+                            int planStart = timeslot.getProcedure().getTask().getPlanStartMinute();
+                            int actualStart = timeslot.getStartMinute();
+                            int hoursDiff = Math.abs((actualStart - planStart) / MINUTES_PER_HOUR);
                             if (hoursDiff <= 4) {
-                                return (int) (SOFT_REWARD_WEIGHT * (5 - hoursDiff));
+                                return SOFT_REWARD_WEIGHT * (5 - hoursDiff);
                             }
                             return 0;
                         }).asConstraint("软约束：奖励准时开始");
@@ -243,19 +257,18 @@ public class FactorySchedulingConstraintProvider implements ConstraintProvider,
     /**
      * 软约束3: 奖励高优先级任务
      * 优化目标：优先安排高优先级任务
+     * 当前时间取自加载问题时固定的规划时钟，保证分数可重现
      */
     protected Constraint softHighPriorityFirst(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(Timeslot.class)
-                .filter(timeslot -> timeslot.getPriority() != null && timeslot.getEndTime() != null)
+                .filter(timeslot -> timeslot.getPriority() != null && timeslot.getPriority() <= 3
+                        && timeslot.getEndMinute() != NO_MINUTE)
+                .join(PlanningClock.class)
                 .reward(HardMediumSoftScore.ONE_SOFT,
-                        timeslot -> {
-                            int priority = timeslot.getPriority();
-                            LocalDateTime now = LocalDateTime.now();
-                            if (priority <= 3) {
-                                long daysFromNow = Duration.between(now, timeslot.getEndTime()).toDays();
-                                if (daysFromNow >= 0 && daysFromNow <= 7) {
-                                    return (4 - priority) * SOFT_REWARD_WEIGHT * 2;
-                                }
+                        (timeslot, clock) -> {
+                            int daysFromNow = (timeslot.getEndMinute() - clock.getNowMinute()) / MINUTES_OF_DAY;
+                            if (daysFromNow >= 0 && daysFromNow <= 7) {
+                                return (4 - timeslot.getPriority()) * SOFT_REWARD_WEIGHT * 2;
                             }
                             return 0;
                         }).asConstraint("软约束：奖励高优先级任务先完成");
@@ -292,10 +305,10 @@ public class FactorySchedulingConstraintProvider implements ConstraintProvider,
                 .join(Timeslot.class,
                         Joiners.equal(Timeslot::getProcedure),
                         Joiners.equal(t -> t.getIndex() + 1, Timeslot::getIndex))
-                .filter((slice1, slice2) -> slice2.getStartTime() != null && slice1.getEndTime() != null)
+                .filter((slice1, slice2) -> slice2.getStartMinute() != NO_MINUTE && slice1.getEndMinute() != NO_MINUTE)
                 .reward(HardMediumSoftScore.ONE_SOFT,
                         (slice1, slice2) -> {
-                            long gapMinutes = Duration.between(slice1.getEndTime(), slice2.getStartTime()).toMinutes();
+                            int gapMinutes = slice2.getStartMinute() - slice1.getEndMinute();
                             if (gapMinutes <= 30) {
                                 return SOFT_REWARD_WEIGHT * 3;
                             } else if (gapMinutes <= 60) {
@@ -309,13 +322,11 @@ public class FactorySchedulingConstraintProvider implements ConstraintProvider,
      * 软约束6: 奖励合理容量利用
      * 优化目标：合理利用维护容量，不过度也不浪费
      */
-    protected Constraint softCapacityUtilization(ConstraintFactory constraintFactory) {
-        return constraintFactory.forEach(Timeslot.class)
-                .filter(timeslot -> timeslot.getMaintenance() != null && timeslot.getDuration() > 0)
-                .groupBy(Timeslot::getMaintenance, sum(Timeslot::getDuration))
+    protected Constraint softCapacityUtilization(BiConstraintStream<WorkCenterMaintenance, CapacityBucket> capacityBuckets) {
+        return capacityBuckets
                 .reward(HardMediumSoftScore.ONE_SOFT,
-                        (maintenance, totalDuration) -> {
-                            int used = totalDuration + maintenance.getUsageTime();
+                        (maintenance, bucket) -> {
+                            int used = bucket.getUsedMinutes() + maintenance.getUsageTime();
                             int capacity = maintenance.getCapacity();
                             int optimalMin = (int) (capacity * 0.8);
                             int optimalMax = (int) (capacity * 0.9);
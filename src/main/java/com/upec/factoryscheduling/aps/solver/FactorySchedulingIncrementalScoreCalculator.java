@@ -0,0 +1,553 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Procedure;
+import com.upec.factoryscheduling.aps.entity.Task;
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenter;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.ProcedureLink;
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+import org.optaplanner.core.api.score.calculator.IncrementalScoreCalculator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.upec.factoryscheduling.aps.solver.FactorySchedulingConstraintProvider.AVERAGE_DAILY_LOAD;
+import static com.upec.factoryscheduling.aps.solver.FactorySchedulingConstraintProvider.HARD_PENALTY_WEIGHT;
+import static com.upec.factoryscheduling.aps.solver.FactorySchedulingConstraintProvider.MEDIUM_PENALTY_WEIGHT;
+import static com.upec.factoryscheduling.aps.solver.FactorySchedulingConstraintProvider.MINUTES_OF_DAY;
+import static com.upec.factoryscheduling.aps.solver.FactorySchedulingConstraintProvider.MINUTES_PER_HOUR;
+import static com.upec.factoryscheduling.aps.solver.FactorySchedulingConstraintProvider.NO_MINUTE;
+import static com.upec.factoryscheduling.aps.solver.FactorySchedulingConstraintProvider.SOFT_REWARD_WEIGHT;
+
+/**
+ * 工厂调度增量评分计算器
+ * <p>与{@link FactorySchedulingConstraintProvider}实现同一套约束规则，作为可选评分引擎，
+ * 通过配置项{@code aps.solver.score-engine=incremental}启用。</p>
+ * <p>实现要点：
+ * - 时间槽和维护日历在重置时分配序号，求解期间的状态全部保存在按序号索引的基本类型数组中
+ * - 一元约束、成对约束(外协前后序、工序前后序、分片前后序)和维护日容量桶各自缓存当前贡献值，
+ *   变量变更后只重算与该时间槽相关的部分，先减去缓存值再加上新值
+ * - 与约束流一致，未分配日历的时间槽不参与任何约束；均衡负载按工作中心累计已分配时间槽的时长
+ * - 时间槽增删时标记失效，下次计算分数时整体重置</p>
+ * <p>不支持约束匹配明细，分数解释仍由约束流完成。</p>
+ */
+public class FactorySchedulingIncrementalScoreCalculator
+        implements IncrementalScoreCalculator<FactorySchedulingSolution, HardMediumSoftScore> {
+
+    private static final String MAINTENANCE = "maintenance";
+    private static final String START_TIME = "startTime";
+
+    private static final int NO_ORDINAL = -1;
+    private static final int NO_PRIORITY = Integer.MAX_VALUE;
+
+    // 成对约束类型
+    private static final byte PAIR_OUTSOURCING_PREVIOUS = 0;
+    private static final byte PAIR_PROCEDURE_LINK = 1;
+    private static final byte PAIR_SLICE = 2;
+
+    private FactorySchedulingSolution workingSolution;
+    private boolean stale;
+    private int nowMinute;
+
+    // 时间槽序号及求解期间不变的属性
+    private Map<Timeslot, Integer> timeslotOrdinals;
+    private Timeslot[] timeslots;
+    private int[] durations;
+    private boolean[] outsourcing;
+    private String[] workCenterIds;
+    private int[] factStartMinutes;
+    private int[] planStartMinutes;
+    private int[] planEndMinutes;
+    private int[] priorities;
+    private boolean[] firstProcedure;
+
+    // 一元约束缓存
+    private int[] unaryHard;
+    private int[] unaryMedium;
+    private int[] unarySoft;
+
+    // 维护日容量桶
+    private Map<WorkCenterMaintenance, Integer> maintenanceOrdinals;
+    private int maintenanceCount;
+    private int[] capacities;
+    private int[] usageTimes;
+    private String[] maintenanceWorkCenterIds;
+    private int[] assignedMaintenances;
+    private int[] bucketUsed;
+    private int[] bucketCounted;
+    private int[] bucketHard;
+    private int[] bucketSoft;
+
+    // 成对约束：pairFirst为前序/当前时间槽，pairSecond为后序/前一道时间槽
+    private byte[] pairKinds;
+    private int[] pairFirst;
+    private int[] pairSecond;
+    private int[] pairHard;
+    private int[] pairMedium;
+    private int[] pairSoft;
+    private int[][] pairsByTimeslot;
+
+    // 均衡负载：按工作中心编码累计已分配时间槽的时长
+    private int[] workCenterCodeOrdinals;
+    private int[] workCenterLoads;
+    private int[] workCenterSoft;
+
+    private int hardScore;
+    private int mediumScore;
+    private int softScore;
+
+    @Override
+    public void resetWorkingSolution(FactorySchedulingSolution workingSolution) {
+        this.workingSolution = workingSolution;
+        this.stale = false;
+        this.nowMinute = workingSolution.getPlanningClock() != null ? workingSolution.getPlanningClock().getNowMinute() : 0;
+        hardScore = 0;
+        mediumScore = 0;
+        softScore = 0;
+        indexTimeslots(workingSolution.getTimeslots());
+        indexMaintenances(workingSolution.getMaintenances());
+        indexPairs(workingSolution.getProcedureLinks());
+        indexWorkCenterCodes();
+        for (int i = 0; i < timeslots.length; i++) {
+            assignMaintenance(i);
+            refreshUnary(i);
+        }
+        for (int p = 0; p < pairKinds.length; p++) {
+            refreshPair(p);
+        }
+    }
+
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        // 时间槽增删时整体重置
+    }
+
+    @Override
+    public void afterEntityAdded(Object entity) {
+        stale = true;
+    }
+
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        // 贡献值已缓存，变更后直接重算
+    }
+
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        if (stale) {
+            return;
+        }
+        Integer ordinal = timeslotOrdinals.get(entity);
+        if (ordinal == null) {
+            stale = true;
+            return;
+        }
+        if (MAINTENANCE.equals(variableName)) {
+            boolean wasAssigned = assignedMaintenances[ordinal] != NO_ORDINAL;
+            assignMaintenance(ordinal);
+            refreshUnary(ordinal);
+            if (wasAssigned != (assignedMaintenances[ordinal] != NO_ORDINAL)) {
+                // 未分配的时间槽不参与成对约束
+                for (int pair : pairsByTimeslot[ordinal]) {
+                    refreshPair(pair);
+                }
+            }
+        } else if (START_TIME.equals(variableName)) {
+            // 结束时间及分钟数与开始时间在同一次监听通知中更新
+            refreshUnary(ordinal);
+            for (int pair : pairsByTimeslot[ordinal]) {
+                refreshPair(pair);
+            }
+        }
+    }
+
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        // 时间槽增删时整体重置
+    }
+
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        stale = true;
+    }
+
+    @Override
+    public HardMediumSoftScore calculateScore() {
+        if (stale) {
+            resetWorkingSolution(workingSolution);
+        }
+        return HardMediumSoftScore.of(hardScore, mediumScore, softScore);
+    }
+
+    private void indexTimeslots(List<Timeslot> timeslotList) {
+        int size = timeslotList.size();
+        timeslotOrdinals = new IdentityHashMap<>(size);
+        timeslots = timeslotList.toArray(new Timeslot[0]);
+        durations = new int[size];
+        outsourcing = new boolean[size];
+        workCenterIds = new String[size];
+        factStartMinutes = new int[size];
+        planStartMinutes = new int[size];
+        planEndMinutes = new int[size];
+        priorities = new int[size];
+        firstProcedure = new boolean[size];
+        unaryHard = new int[size];
+        unaryMedium = new int[size];
+        unarySoft = new int[size];
+        assignedMaintenances = new int[size];
+        for (int i = 0; i < size; i++) {
+            Timeslot timeslot = timeslots[i];
+            timeslotOrdinals.put(timeslot, i);
+            Procedure procedure = timeslot.getProcedure();
+            WorkCenter workCenter = procedure.getWorkCenter();
+            Task task = procedure.getTask();
+            durations[i] = timeslot.getDuration();
+            outsourcing[i] = CapacityBucketCollector.isOutsourcing(timeslot);
+            workCenterIds[i] = workCenter != null ? workCenter.getId() : null;
+            factStartMinutes[i] = task != null ? task.getFactStartMinute() : NO_MINUTE;
+            planStartMinutes[i] = task != null ? task.getPlanStartMinute() : NO_MINUTE;
+            planEndMinutes[i] = procedure.getPlanEndMinute();
+            priorities[i] = timeslot.getPriority() != null ? timeslot.getPriority() : NO_PRIORITY;
+            firstProcedure[i] = timeslot.getProcedureIndex() == 1;
+            assignedMaintenances[i] = NO_ORDINAL;
+        }
+    }
+
+    private void indexMaintenances(List<WorkCenterMaintenance> maintenances) {
+        // 时间槽可能引用不在问题事实中的日历，按最大可能数量分配
+        int size = maintenances.size() + timeslots.length;
+        maintenanceOrdinals = new IdentityHashMap<>(size);
+        maintenanceCount = 0;
+        capacities = new int[size];
+        usageTimes = new int[size];
+        maintenanceWorkCenterIds = new String[size];
+        bucketUsed = new int[size];
+        bucketCounted = new int[size];
+        bucketHard = new int[size];
+        bucketSoft = new int[size];
+        for (WorkCenterMaintenance maintenance : maintenances) {
+            maintenanceOrdinal(maintenance);
+        }
+    }
+
+    private int maintenanceOrdinal(WorkCenterMaintenance maintenance) {
+        Integer ordinal = maintenanceOrdinals.get(maintenance);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        int m = maintenanceCount++;
+        maintenanceOrdinals.put(maintenance, m);
+        capacities[m] = maintenance.getCapacity();
+        usageTimes[m] = maintenance.getUsageTime();
+        maintenanceWorkCenterIds[m] = maintenance.getWorkCenter() != null ? maintenance.getWorkCenter().getId() : null;
+        return m;
+    }
+
+    /**
+     * 展开成对约束，每一对对应约束流中的一个匹配
+     */
+    private void indexPairs(List<ProcedureLink> procedureLinks) {
+        Map<String, List<Integer>> byProcedureId = new HashMap<>();
+        Map<Procedure, List<Integer>> byProcedure = new IdentityHashMap<>();
+        Map<String, Map<Integer, List<Integer>>> byTaskAndProcedureIndex = new HashMap<>();
+        for (int i = 0; i < timeslots.length; i++) {
+            Procedure procedure = timeslots[i].getProcedure();
+            byProcedureId.computeIfAbsent(procedure.getId(), k -> new ArrayList<>()).add(i);
+            byProcedure.computeIfAbsent(procedure, k -> new ArrayList<>()).add(i);
+            if (procedure.getTask() != null) {
+                byTaskAndProcedureIndex.computeIfAbsent(procedure.getTask().getTaskNo(), k -> new HashMap<>())
+                        .computeIfAbsent(procedure.getIndex(), k -> new ArrayList<>()).add(i);
+            }
+        }
+        PairBuilder builder = new PairBuilder(timeslots.length);
+        for (int i = 0; i < timeslots.length; i++) {
+            Timeslot timeslot = timeslots[i];
+            Procedure procedure = timeslot.getProcedure();
+            // 外协工序与同一任务上一道工序的时间槽
+            if (outsourcing[i] && procedure.getTask() != null
+                    && procedure.getProcedureNo() != null && procedure.getProcedureNo() > 1) {
+                List<Integer> previous = byTaskAndProcedureIndex
+                        .getOrDefault(procedure.getTask().getTaskNo(), Collections.emptyMap())
+                        .getOrDefault(procedure.getIndex() - 1, Collections.emptyList());
+                for (int j : previous) {
+                    builder.add(PAIR_OUTSOURCING_PREVIOUS, i, j);
+                }
+            }
+            // 同一工序的相邻分片
+            if (timeslot.getTotal() > 1 && timeslot.getIndex() < timeslot.getTotal() - 1) {
+                for (int j : byProcedure.get(procedure)) {
+                    if (timeslots[j].getIndex() == timeslot.getIndex() + 1) {
+                        builder.add(PAIR_SLICE, i, j);
+                    }
+                }
+            }
+        }
+        // 工序前后序关系
+        for (ProcedureLink link : procedureLinks) {
+            List<Integer> predecessors = byProcedureId.getOrDefault(link.getPredecessorId(), Collections.emptyList());
+            List<Integer> successors = byProcedureId.getOrDefault(link.getSuccessorId(), Collections.emptyList());
+            for (int i : predecessors) {
+                for (int j : successors) {
+                    builder.add(PAIR_PROCEDURE_LINK, i, j);
+                }
+            }
+        }
+        builder.build();
+    }
+
+    private void indexWorkCenterCodes() {
+        Map<String, Integer> codeOrdinals = new HashMap<>();
+        workCenterCodeOrdinals = new int[timeslots.length];
+        for (int i = 0; i < timeslots.length; i++) {
+            WorkCenter workCenter = timeslots[i].getProcedure().getWorkCenter();
+            workCenterCodeOrdinals[i] = workCenter != null && durations[i] > 0
+                    ? codeOrdinals.computeIfAbsent(workCenter.getWorkCenterCode(), k -> codeOrdinals.size())
+                    : NO_ORDINAL;
+        }
+        workCenterLoads = new int[codeOrdinals.size()];
+        workCenterSoft = new int[codeOrdinals.size()];
+    }
+
+    /**
+     * 将时间槽移入当前日历对应的容量桶
+     */
+    private void assignMaintenance(int i) {
+        WorkCenterMaintenance maintenance = timeslots[i].getMaintenance();
+        int m = maintenance != null ? maintenanceOrdinal(maintenance) : NO_ORDINAL;
+        int previous = assignedMaintenances[i];
+        if (previous == m) {
+            return;
+        }
+        assignedMaintenances[i] = m;
+        if ((previous == NO_ORDINAL || m == NO_ORDINAL) && workCenterCodeOrdinals[i] != NO_ORDINAL) {
+            int c = workCenterCodeOrdinals[i];
+            workCenterLoads[c] += m != NO_ORDINAL ? durations[i] : -durations[i];
+            refreshWorkCenterLoad(c);
+        }
+        if (durations[i] <= 0) {
+            return;
+        }
+        if (previous != NO_ORDINAL) {
+            bucketUsed[previous] -= durations[i];
+            bucketCounted[previous] -= outsourcing[i] ? 0 : durations[i];
+            refreshBucket(previous);
+        }
+        if (m != NO_ORDINAL) {
+            bucketUsed[m] += durations[i];
+            bucketCounted[m] += outsourcing[i] ? 0 : durations[i];
+            refreshBucket(m);
+        }
+    }
+
+    /**
+     * 均衡负载：软约束"奖励均衡负载"
+     */
+    private void refreshWorkCenterLoad(int c) {
+        int soft = 0;
+        if (workCenterLoads[c] > 0) {
+            int deviation = Math.abs(workCenterLoads[c] - AVERAGE_DAILY_LOAD);
+            int maxDeviation = AVERAGE_DAILY_LOAD / 4; // 允许25%偏差
+            if (deviation < maxDeviation) {
+                soft = (maxDeviation - deviation) / 100;
+            }
+        }
+        softScore += soft - workCenterSoft[c];
+        workCenterSoft[c] = soft;
+    }
+
+    /**
+     * 容量桶：硬约束"不能超过维护容量"、软约束"奖励合理容量利用"
+     */
+    private void refreshBucket(int m) {
+        int hard = 0;
+        int soft = 0;
+        int counted = bucketCounted[m];
+        if (counted > 0 && counted + usageTimes[m] > capacities[m]) {
+            hard -= (counted + usageTimes[m] - capacities[m]) * HARD_PENALTY_WEIGHT;
+        }
+        if (bucketUsed[m] > 0) {
+            int used = bucketUsed[m] + usageTimes[m];
+            int optimalMin = (int) (capacities[m] * 0.8);
+            int optimalMax = (int) (capacities[m] * 0.9);
+            if (used >= optimalMin && used <= optimalMax) {
+                soft += SOFT_REWARD_WEIGHT * 5;
+            } else if (used >= optimalMin * 0.8 && used <= optimalMax * 1.2) {
+                soft += SOFT_REWARD_WEIGHT * 2;
+            }
+        }
+        hardScore += hard - bucketHard[m];
+        softScore += soft - bucketSoft[m];
+        bucketHard[m] = hard;
+        bucketSoft[m] = soft;
+    }
+
+    /**
+     * 一元约束：工作中心匹配、订单日期、提前完成、准时开始、高优先级
+     */
+    private void refreshUnary(int i) {
+        Timeslot timeslot = timeslots[i];
+        int start = timeslot.getStartMinute();
+        int end = timeslot.getEndMinute();
+        int hard = 0;
+        int medium = 0;
+        int soft = 0;
+        int m = assignedMaintenances[i];
+        if (m == NO_ORDINAL) {
+            updateUnary(i, hard, medium, soft);
+            return;
+        }
+        if (workCenterIds[i] != null && !workCenterIds[i].equals(maintenanceWorkCenterIds[m])) {
+            hard -= HARD_PENALTY_WEIGHT * 10;
+        }
+        int factStart = factStartMinutes[i];
+        if (factStart != NO_MINUTE && start != NO_MINUTE && start < factStart) {
+            medium -= (factStart - start) / MINUTES_OF_DAY * MEDIUM_PENALTY_WEIGHT;
+        }
+        int planEnd = planEndMinutes[i];
+        if (end != NO_MINUTE && planEnd != NO_MINUTE && end < planEnd) {
+            soft += (planEnd - end) / MINUTES_OF_DAY * SOFT_REWARD_WEIGHT;
+        }
+        int planStart = planStartMinutes[i];
+        if (start != NO_MINUTE && planStart != NO_MINUTE && firstProcedure[i]) {
+            int hoursDiff = Math.abs((start - planStart) / MINUTES_PER_HOUR);
+            if (hoursDiff <= 4) {
+                soft += SOFT_REWARD_WEIGHT * (5 - hoursDiff);
+            }
+        }
+        int priority = priorities[i];
+        if (priority <= 3 && end != NO_MINUTE) {
+            int daysFromNow = (end - nowMinute) / MINUTES_OF_DAY;
+            if (daysFromNow >= 0 && daysFromNow <= 7) {
+                soft += (4 - priority) * SOFT_REWARD_WEIGHT * 2;
+            }
+        }
+        updateUnary(i, hard, medium, soft);
+    }
+
+    private void updateUnary(int i, int hard, int medium, int soft) {
+        hardScore += hard - unaryHard[i];
+        mediumScore += medium - unaryMedium[i];
+        softScore += soft - unarySoft[i];
+        unaryHard[i] = hard;
+        unaryMedium[i] = medium;
+        unarySoft[i] = soft;
+    }
+
+    /**
+     * 成对约束：外协工序前后衔接、工序顺序、分片顺序、连续分片
+     */
+    private void refreshPair(int p) {
+        Timeslot first = timeslots[pairFirst[p]];
+        Timeslot second = timeslots[pairSecond[p]];
+        int hard = 0;
+        int medium = 0;
+        int soft = 0;
+        if (assignedMaintenances[pairFirst[p]] == NO_ORDINAL || assignedMaintenances[pairSecond[p]] == NO_ORDINAL) {
+            updatePair(p, hard, medium, soft);
+            return;
+        }
+        switch (pairKinds[p]) {
+            case PAIR_OUTSOURCING_PREVIOUS: {
+                // first为外协工序时间槽，second为上一道工序时间槽
+                int start = first.getStartMinute();
+                int previousEnd = second.getEndMinute();
+                if (start != NO_MINUTE && previousEnd != NO_MINUTE && previousEnd != start) {
+                    hard -= HARD_PENALTY_WEIGHT * 10;
+                }
+                break;
+            }
+            case PAIR_PROCEDURE_LINK: {
+                int end = first.getEndMinute();
+                int nextStart = second.getStartMinute();
+                if (end != NO_MINUTE && nextStart != NO_MINUTE) {
+                    if (outsourcing[pairFirst[p]] && end != nextStart) {
+                        hard -= HARD_PENALTY_WEIGHT * 10;
+                    }
+                    if (end >= nextStart) {
+                        medium -= Math.max(0, end - nextStart) * MEDIUM_PENALTY_WEIGHT;
+                    }
+                }
+                break;
+            }
+            case PAIR_SLICE: {
+                int end = first.getEndMinute();
+                int nextStart = second.getStartMinute();
+                if (end != NO_MINUTE && nextStart != NO_MINUTE) {
+                    if (end >= nextStart) {
+                        medium -= MEDIUM_PENALTY_WEIGHT * 5;
+                    }
+                    int gapMinutes = nextStart - end;
+                    if (gapMinutes <= 30) {
+                        soft += SOFT_REWARD_WEIGHT * 3;
+                    } else if (gapMinutes <= 60) {
+                        soft += SOFT_REWARD_WEIGHT;
+                    }
+                }
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown pair kind: " + pairKinds[p]);
+        }
+        updatePair(p, hard, medium, soft);
+    }
+
+    private void updatePair(int p, int hard, int medium, int soft) {
+        hardScore += hard - pairHard[p];
+        mediumScore += medium - pairMedium[p];
+        softScore += soft - pairSoft[p];
+        pairHard[p] = hard;
+        pairMedium[p] = medium;
+        pairSoft[p] = soft;
+    }
+
+    /**
+     * 成对约束构建器，生成按序号索引的数组及每个时间槽关联的成对约束下标
+     */
+    private final class PairBuilder {
+        private final List<int[]> pairs = new ArrayList<>();
+        private final int[] pairCounts;
+
+        private PairBuilder(int timeslotCount) {
+            this.pairCounts = new int[timeslotCount];
+        }
+
+        private void add(byte kind, int first, int second) {
+            pairs.add(new int[]{kind, first, second});
+            pairCounts[first]++;
+            if (second != first) {
+                pairCounts[second]++;
+            }
+        }
+
+        private void build() {
+            int size = pairs.size();
+            pairKinds = new byte[size];
+            pairFirst = new int[size];
+            pairSecond = new int[size];
+            pairHard = new int[size];
+            pairMedium = new int[size];
+            pairSoft = new int[size];
+            pairsByTimeslot = new int[pairCounts.length][];
+            for (int i = 0; i < pairCounts.length; i++) {
+                pairsByTimeslot[i] = new int[pairCounts[i]];
+            }
+            int[] filled = new int[pairCounts.length];
+            for (int p = 0; p < size; p++) {
+                int[] pair = pairs.get(p);
+                pairKinds[p] = (byte) pair[0];
+                pairFirst[p] = pair[1];
+                pairSecond[p] = pair[2];
+                pairsByTimeslot[pair[1]][filled[pair[1]]++] = p;
+                if (pair[2] != pair[1]) {
+                    pairsByTimeslot[pair[2]][filled[pair[2]]++] = p;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import lombok.extern.slf4j.Slf4j;
+import org.optaplanner.core.api.solver.change.ProblemChange;
+import org.optaplanner.core.api.solver.change.ProblemChangeDirector;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 求解期间修改工作中心日历的容量或状态(例如设备故障、临时加班)
+ * <p>为空的字段保持不变；日历不在工作解中时忽略。日历替换为修改后的副本，
+ * 分配到该日历的时间槽和包含该日历的取值范围改为指向副本，已交出的最佳解保持原日历不变。</p>
+ */
+@Slf4j
+public class MaintenanceProblemChange implements ProblemChange<FactorySchedulingSolution> {
+
+    private static final String MAINTENANCE = "maintenance";
+
+    private final String maintenanceId;
+
+    private final Integer capacity;
+
+    private final String status;
+
+    public MaintenanceProblemChange(String maintenanceId, Integer capacity, String status) {
+        this.maintenanceId = maintenanceId;
+        this.capacity = capacity;
+        this.status = status;
+    }
+
+    @Override
+    public void doChange(FactorySchedulingSolution workingSolution, ProblemChangeDirector problemChangeDirector) {
+        WorkCenterMaintenance lookup = new WorkCenterMaintenance();
+        lookup.setId(maintenanceId);
+        WorkCenterMaintenance maintenance = problemChangeDirector.lookUpWorkingObject(lookup).orElse(null);
+        if (maintenance == null) {
+            log.warn("Problem {}: maintenance {} is not part of the running solve", workingSolution.getProblemId(), maintenanceId);
+            return;
+        }
+        // 日历对象与已克隆的最佳解共享，不能原地修改，换成修改后的副本
+        WorkCenterMaintenance changed = copyOf(maintenance);
+        if (capacity != null) {
+            changed.setCapacity(capacity);
+        }
+        if (status != null) {
+            changed.setStatus(status);
+        }
+        problemChangeDirector.removeProblemFact(maintenance, workingSolution::removeMaintenance);
+        problemChangeDirector.addProblemFact(changed, workingSolution::addMaintenance);
+
+        // 取值范围列表在同一工作中心的时间槽之间共享，每个列表只替换一次
+        Map<List<WorkCenterMaintenance>, List<WorkCenterMaintenance>> replacedRanges = new IdentityHashMap<>();
+        for (Timeslot timeslot : workingSolution.getTimeslots()) {
+            if (timeslot.getMaintenance() == maintenance) {
+                problemChangeDirector.changeVariable(timeslot, MAINTENANCE, workingTimeslot -> workingTimeslot.setMaintenance(changed));
+            }
+            List<WorkCenterMaintenance> range = timeslot.getMaintenanceRange();
+            if (range == null || !range.contains(maintenance)) {
+                continue;
+            }
+            List<WorkCenterMaintenance> replaced = replacedRanges.computeIfAbsent(range, original -> {
+                List<WorkCenterMaintenance> copy = new ArrayList<>(original);
+                copy.set(copy.indexOf(maintenance), changed);
+                return copy;
+            });
+            problemChangeDirector.changeProblemProperty(timeslot, workingTimeslot -> workingTimeslot.setMaintenanceRange(replaced));
+        }
+        log.info("Problem {}: maintenance {} changed to capacity {} status {}", workingSolution.getProblemId(),
+                maintenanceId, changed.getCapacity(), changed.getStatus());
+    }
+
+    private static WorkCenterMaintenance copyOf(WorkCenterMaintenance original) {
+        WorkCenterMaintenance copy = new WorkCenterMaintenance(original.getWorkCenter(), original.getDate(),
+                original.getCapacity(), original.getDescription());
+        copy.setId(original.getId());
+        copy.setYear(original.getYear());
+        copy.setStatus(original.getStatus());
+        copy.setStartTime(original.getStartTime());
+        copy.setEndTime(original.getEndTime());
+        copy.setUsageTime(original.getUsageTime());
+        copy.setStartMinute(original.getStartMinute());
+        return copy;
+    }
+}
@@ -0,0 +1,37 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.response.SolveReport;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.common.configuration.SolverProperties;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+
+import java.util.function.Consumer;
+
+/**
+ * 为每个新建的Solver注册{@link SolveMonitor}
+ * <p>SolverManager每个求解作业调用一次buildSolver，监视器因此与求解作业一一对应。</p>
+ */
+public class MonitoredSolverFactory implements SolverFactory<FactorySchedulingSolution> {
+
+    private final SolverFactory<FactorySchedulingSolution> delegate;
+
+    private final SolverProperties.Profile profile;
+
+    private final Consumer<SolveReport> reportConsumer;
+
+    public MonitoredSolverFactory(SolverFactory<FactorySchedulingSolution> delegate, SolverProperties.Profile profile,
+                                  Consumer<SolveReport> reportConsumer) {
+        this.delegate = delegate;
+        this.profile = profile;
+        this.reportConsumer = reportConsumer;
+    }
+
+    @Override
+    public Solver<FactorySchedulingSolution> buildSolver() {
+        DefaultSolver<FactorySchedulingSolution> solver = (DefaultSolver<FactorySchedulingSolution>) delegate.buildSolver();
+        solver.addPhaseLifecycleListener(new SolveMonitor(solver, profile, reportConsumer));
+        return solver;
+    }
+}
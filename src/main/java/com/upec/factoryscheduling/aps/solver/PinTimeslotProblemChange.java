@@ -0,0 +1,59 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import lombok.extern.slf4j.Slf4j;
+import org.optaplanner.core.api.solver.change.ProblemChange;
+import org.optaplanner.core.api.solver.change.ProblemChangeDirector;
+
+/**
+ * 求解期间固定时间槽(例如车间已开工)
+ * <p>指定日历时先把时间槽移到该日历(必须在其取值范围内)，不指定时固定在当前日历；
+ * 固定后标记为手动，由{@code TimeslotPinningFilter}排除在后续移动之外。时间槽不在工作解中或没有可固定的日历时忽略。</p>
+ */
+@Slf4j
+public class PinTimeslotProblemChange implements ProblemChange<FactorySchedulingSolution> {
+
+    private static final String MAINTENANCE = "maintenance";
+
+    private final String timeslotId;
+
+    private final String maintenanceId;
+
+    public PinTimeslotProblemChange(String timeslotId, String maintenanceId) {
+        this.timeslotId = timeslotId;
+        this.maintenanceId = maintenanceId;
+    }
+
+    @Override
+    public void doChange(FactorySchedulingSolution workingSolution, ProblemChangeDirector problemChangeDirector) {
+        Timeslot lookup = new Timeslot();
+        lookup.setId(timeslotId);
+        Timeslot timeslot = problemChangeDirector.lookUpWorkingObject(lookup).orElse(null);
+        if (timeslot == null) {
+            log.warn("Problem {}: timeslot {} is not part of the running solve", workingSolution.getProblemId(), timeslotId);
+            return;
+        }
+        WorkCenterMaintenance target = maintenanceId == null ? timeslot.getMaintenance() : findInRange(timeslot);
+        if (target == null) {
+            log.warn("Problem {}: timeslot {} has no maintenance {} to pin to", workingSolution.getProblemId(),
+                    timeslotId, maintenanceId);
+            return;
+        }
+        if (timeslot.getMaintenance() != target) {
+            problemChangeDirector.changeVariable(timeslot, MAINTENANCE, workingTimeslot -> workingTimeslot.setMaintenance(target));
+        }
+        problemChangeDirector.changeProblemProperty(timeslot, workingTimeslot -> workingTimeslot.setManual(true));
+        log.info("Problem {}: pinned timeslot {} to maintenance {}", workingSolution.getProblemId(), timeslotId, target.getId());
+    }
+
+    private WorkCenterMaintenance findInRange(Timeslot timeslot) {
+        for (WorkCenterMaintenance maintenance : timeslot.getMaintenanceRange()) {
+            if (maintenance.getId().equals(maintenanceId)) {
+                return maintenance;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,88 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.move.AbstractMove;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 整体平移移动：把一个工序(可选连同其所有后序工序)的全部分片一次性改到各自的目标日历
+ * <p>目标日历由{@link ProcedureShiftMoveIteratorFactory}按相同的日历天数平移计算，
+ * 分片之间的相对顺序保持不变，不会像逐个分片移动那样中途破坏分片顺序和连续分片约束。</p>
+ */
+public class ProcedureShiftMove extends AbstractMove<FactorySchedulingSolution> {
+
+    private static final String MAINTENANCE = "maintenance";
+
+    private final List<Timeslot> timeslots;
+
+    private final List<WorkCenterMaintenance> toMaintenances;
+
+    private final int shiftDays;
+
+    public ProcedureShiftMove(List<Timeslot> timeslots, List<WorkCenterMaintenance> toMaintenances, int shiftDays) {
+        this.timeslots = timeslots;
+        this.toMaintenances = toMaintenances;
+        this.shiftDays = shiftDays;
+    }
+
+    @Override
+    public boolean isMoveDoable(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        for (int i = 0; i < timeslots.size(); i++) {
+            if (timeslots.get(i).getMaintenance() != toMaintenances.get(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected ProcedureShiftMove createUndoMove(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        List<WorkCenterMaintenance> fromMaintenances = new ArrayList<>(timeslots.size());
+        for (Timeslot timeslot : timeslots) {
+            fromMaintenances.add(timeslot.getMaintenance());
+        }
+        return new ProcedureShiftMove(timeslots, fromMaintenances, -shiftDays);
+    }
+
+    @Override
+    protected void doMoveOnGenuineVariables(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        for (int i = 0; i < timeslots.size(); i++) {
+            Timeslot timeslot = timeslots.get(i);
+            scoreDirector.beforeVariableChanged(timeslot, MAINTENANCE);
+            timeslot.setMaintenance(toMaintenances.get(i));
+            scoreDirector.afterVariableChanged(timeslot, MAINTENANCE);
+        }
+    }
+
+    @Override
+    public ProcedureShiftMove rebase(ScoreDirector<FactorySchedulingSolution> destinationScoreDirector) {
+        return new ProcedureShiftMove(rebaseList(timeslots, destinationScoreDirector),
+                rebaseList(toMaintenances, destinationScoreDirector), shiftDays);
+    }
+
+    @Override
+    public String getSimpleMoveTypeDescription() {
+        return "ProcedureShiftMove(Timeslot.maintenance)";
+    }
+
+    @Override
+    public List<Timeslot> getPlanningEntities() {
+        return timeslots;
+    }
+
+    @Override
+    public List<WorkCenterMaintenance> getPlanningValues() {
+        return toMaintenances;
+    }
+
+    @Override
+    public String toString() {
+        return "shift " + timeslots.size() + " timeslots of " + timeslots.get(0).getProcedure().getId()
+                + " by " + shiftDays + " days";
+    }
+}
@@ -0,0 +1,231 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.ProcedureLink;
+import com.upec.factoryscheduling.aps.solution.TimeslotPinningFilter;
+import lombok.Getter;
+import lombok.Setter;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import static com.upec.factoryscheduling.common.utils.DateUtils.NO_MINUTE;
+
+/**
+ * 生成{@link ProcedureShiftMove}：把一个工序的全部可移动分片在各自工作中心日历上平移相同的天数
+ * <p>开启includeSuccessors时，随机选择的移动有一半连同该工序所有(传递的)后序工序一起平移，
+ * 保持前后序之间的间隔；后序链较长时这类移动大多会引入容量冲突，默认关闭。
+ * 平移天数按日历条目计数，取值范围限制在每个分片都不越出日历的区间内。
+ * 分片分组、前后序关系和排好序的日历在阶段开始时建立一次，整个阶段复用。</p>
+ * <p>自定义属性：maxShiftDays(单次平移的最大天数，默认3)、includeSuccessors(是否生成连同后序平移的移动，默认false)。</p>
+ */
+public class ProcedureShiftMoveIteratorFactory
+        implements MoveIteratorFactory<FactorySchedulingSolution, ProcedureShiftMove> {
+
+    private static final TimeslotPinningFilter PINNING_FILTER = new TimeslotPinningFilter();
+
+    /**
+     * 单次平移的最大日历天数
+     */
+    @Getter
+    @Setter
+    private int maxShiftDays = 3;
+
+    /**
+     * 是否生成连同后序工序一起平移的移动
+     */
+    @Getter
+    @Setter
+    private boolean includeSuccessors;
+
+    private List<String> procedureIds = new ArrayList<>();
+
+    private Map<String, List<Timeslot>> movableSlices = new HashMap<>();
+
+    private Map<String, List<String>> successors = new HashMap<>();
+
+    private Map<List<WorkCenterMaintenance>, Calendar> calendars = new IdentityHashMap<>();
+
+    @Override
+    public void phaseStarted(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        FactorySchedulingSolution solution = scoreDirector.getWorkingSolution();
+        Map<String, List<Timeslot>> slices = new LinkedHashMap<>();
+        Map<List<WorkCenterMaintenance>, Calendar> sortedCalendars = new IdentityHashMap<>();
+        for (Timeslot timeslot : solution.getTimeslots()) {
+            if (timeslot.getProcedure() == null || timeslot.getMaintenanceRange() == null
+                    || PINNING_FILTER.accept(solution, timeslot)) {
+                continue;
+            }
+            slices.computeIfAbsent(timeslot.getProcedure().getId(), k -> new ArrayList<>()).add(timeslot);
+            sortedCalendars.computeIfAbsent(timeslot.getMaintenanceRange(), Calendar::new);
+        }
+        slices.values().forEach(list -> list.sort(Comparator.comparingInt(Timeslot::getIndex)));
+        Map<String, List<String>> links = new HashMap<>();
+        for (ProcedureLink link : solution.getProcedureLinks()) {
+            links.computeIfAbsent(link.getPredecessorId(), k -> new ArrayList<>()).add(link.getSuccessorId());
+        }
+        procedureIds = new ArrayList<>(slices.keySet());
+        movableSlices = slices;
+        successors = links;
+        calendars = sortedCalendars;
+    }
+
+    @Override
+    public void phaseEnded(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        procedureIds = new ArrayList<>();
+        movableSlices = new HashMap<>();
+        successors = new HashMap<>();
+        calendars = new IdentityHashMap<>();
+    }
+
+    @Override
+    public long getSize(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        return (long) procedureIds.size() * maxShiftDays * 2 * (includeSuccessors ? 2 : 1);
+    }
+
+    @Override
+    public Iterator<ProcedureShiftMove> createOriginalMoveIterator(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        List<ProcedureShiftMove> moves = new ArrayList<>();
+        for (String procedureId : procedureIds) {
+            addMoves(moves, collectSlices(procedureId, false));
+            if (includeSuccessors && successors.containsKey(procedureId)) {
+                addMoves(moves, collectSlices(procedureId, true));
+            }
+        }
+        return moves.iterator();
+    }
+
+    @Override
+    public Iterator<ProcedureShiftMove> createRandomMoveIterator(ScoreDirector<FactorySchedulingSolution> scoreDirector,
+                                                                 Random workingRandom) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !procedureIds.isEmpty();
+            }
+
+            @Override
+            public ProcedureShiftMove next() {
+                if (procedureIds.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                String procedureId = procedureIds.get(workingRandom.nextInt(procedureIds.size()));
+                List<Timeslot> timeslots = collectSlices(procedureId, includeSuccessors && workingRandom.nextBoolean());
+                int[] bounds = shiftBounds(timeslots);
+                int shift = 0;
+                if (bounds[0] < bounds[1]) {
+                    // 在[min, max]中去掉0后均匀取值
+                    shift = bounds[0] + workingRandom.nextInt(bounds[1] - bounds[0]);
+                    if (shift >= 0) {
+                        shift++;
+                    }
+                }
+                return createMove(timeslots, shift);
+            }
+        };
+    }
+
+    private void addMoves(List<ProcedureShiftMove> moves, List<Timeslot> timeslots) {
+        int[] bounds = shiftBounds(timeslots);
+        for (int shift = bounds[0]; shift <= bounds[1]; shift++) {
+            if (shift != 0) {
+                moves.add(createMove(timeslots, shift));
+            }
+        }
+    }
+
+    /**
+     * 收集工序(及其传递后序工序)的可移动分片
+     */
+    private List<Timeslot> collectSlices(String procedureId, boolean withSuccessors) {
+        if (!withSuccessors) {
+            return movableSlices.get(procedureId);
+        }
+        List<Timeslot> timeslots = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(procedureId);
+        visited.add(procedureId);
+        while (!pending.isEmpty()) {
+            String current = pending.poll();
+            timeslots.addAll(movableSlices.getOrDefault(current, List.of()));
+            for (String successor : successors.getOrDefault(current, List.of())) {
+                if (visited.add(successor)) {
+                    pending.add(successor);
+                }
+            }
+        }
+        return timeslots;
+    }
+
+    /**
+     * 所有分片都不越出日历的平移天数区间[min, max]，并限制在±maxShiftDays内；
+     * 有分片不在自己的日历上时返回[0, 0]
+     */
+    private int[] shiftBounds(List<Timeslot> timeslots) {
+        int min = -maxShiftDays;
+        int max = maxShiftDays;
+        for (Timeslot timeslot : timeslots) {
+            Calendar calendar = calendars.get(timeslot.getMaintenanceRange());
+            int position = calendar.positionOf(timeslot.getMaintenance());
+            if (position < 0) {
+                return new int[]{0, 0};
+            }
+            min = Math.max(min, -position);
+            max = Math.min(max, calendar.days.size() - 1 - position);
+        }
+        return min <= max ? new int[]{min, max} : new int[]{0, 0};
+    }
+
+    private ProcedureShiftMove createMove(List<Timeslot> timeslots, int shift) {
+        List<WorkCenterMaintenance> toMaintenances = new ArrayList<>(timeslots.size());
+        for (Timeslot timeslot : timeslots) {
+            Calendar calendar = calendars.get(timeslot.getMaintenanceRange());
+            int position = calendar.positionOf(timeslot.getMaintenance());
+            toMaintenances.add(position < 0 ? timeslot.getMaintenance() : calendar.days.get(position + shift));
+        }
+        return new ProcedureShiftMove(timeslots, toMaintenances, shift);
+    }
+
+    /**
+     * 按开始时间排好序的工作中心日历
+     */
+    private static final class Calendar {
+
+        private final List<WorkCenterMaintenance> days = new ArrayList<>();
+
+        private final Map<WorkCenterMaintenance, Integer> positions = new IdentityHashMap<>();
+
+        private Calendar(List<WorkCenterMaintenance> range) {
+            for (WorkCenterMaintenance maintenance : range) {
+                if (maintenance.getStartMinute() != NO_MINUTE) {
+                    days.add(maintenance);
+                }
+            }
+            days.sort(Comparator.comparingInt(WorkCenterMaintenance::getStartMinute));
+            for (int i = 0; i < days.size(); i++) {
+                positions.put(days.get(i), i);
+            }
+        }
+
+        private int positionOf(WorkCenterMaintenance maintenance) {
+            return maintenance != null ? positions.getOrDefault(maintenance, -1) : -1;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.ProcedureLink;
+import lombok.extern.slf4j.Slf4j;
+import org.optaplanner.core.api.solver.change.ProblemChange;
+import org.optaplanner.core.api.solver.change.ProblemChangeDirector;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 求解期间移除时间槽(例如撤单、工序取消)
+ * <p>按ID在工作解中查找，不存在的ID忽略；移除后不再有时间槽的工序，其前后序关系一并移除。</p>
+ */
+@Slf4j
+public class RemoveTimeslotsProblemChange implements ProblemChange<FactorySchedulingSolution> {
+
+    private final List<String> timeslotIds;
+
+    public RemoveTimeslotsProblemChange(List<String> timeslotIds) {
+        this.timeslotIds = timeslotIds;
+    }
+
+    @Override
+    public void doChange(FactorySchedulingSolution workingSolution, ProblemChangeDirector problemChangeDirector) {
+        int removed = 0;
+        for (String timeslotId : timeslotIds) {
+            Timeslot lookup = new Timeslot();
+            lookup.setId(timeslotId);
+            Timeslot workingTimeslot = problemChangeDirector.lookUpWorkingObject(lookup).orElse(null);
+            if (workingTimeslot == null) {
+                continue;
+            }
+            problemChangeDirector.removeEntity(workingTimeslot, workingSolution.getTimeslots()::remove);
+            removed++;
+        }
+        Set<ProcedureLink> remainingLinks = new HashSet<>(workingSolution.expandProcedureLinks());
+        for (ProcedureLink link : new ArrayList<>(workingSolution.getProcedureLinks())) {
+            if (!remainingLinks.contains(link)) {
+                problemChangeDirector.removeProblemFact(link, workingSolution.getProcedureLinks()::remove);
+            }
+        }
+        log.info("Problem {}: removed {} timeslots from the running solve", workingSolution.getProblemId(), removed);
+    }
+}
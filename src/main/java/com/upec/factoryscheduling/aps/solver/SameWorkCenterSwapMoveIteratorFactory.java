@@ -0,0 +1,152 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.TimeslotPinningFilter;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * 生成{@link TimeslotSwapMove}：只交换工序工作中心相同的两个时间槽
+ * <p>默认的交换移动在所有时间槽之间随机配对，不同工作中心的日历不在对方的取值范围内，
+ * 这类配对都是无效移动。这里按工作中心把可移动的时间槽分组，候选列表在阶段开始时建立一次，
+ * 整个阶段复用(相当于阶段级缓存)，选择移动时不再做过滤。</p>
+ */
+public class SameWorkCenterSwapMoveIteratorFactory
+        implements MoveIteratorFactory<FactorySchedulingSolution, TimeslotSwapMove> {
+
+    private static final TimeslotPinningFilter PINNING_FILTER = new TimeslotPinningFilter();
+
+    /**
+     * 每个工作中心的可移动时间槽，只保留至少两个时间槽的工作中心
+     */
+    private List<List<Timeslot>> candidateLists = new ArrayList<>();
+
+    /**
+     * 所有候选时间槽及其所在候选列表的下标，保证每个时间槽被选为左侧的概率相同
+     */
+    private List<Timeslot> candidates = new ArrayList<>();
+
+    private int[] candidateListIndexes = new int[0];
+
+    private long size;
+
+    @Override
+    public void phaseStarted(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        FactorySchedulingSolution solution = scoreDirector.getWorkingSolution();
+        Map<String, List<Timeslot>> byWorkCenter = new LinkedHashMap<>();
+        for (Timeslot timeslot : solution.getTimeslots()) {
+            if (timeslot.getProcedure() == null || timeslot.getProcedure().getWorkCenter() == null
+                    || PINNING_FILTER.accept(solution, timeslot)) {
+                continue;
+            }
+            byWorkCenter.computeIfAbsent(timeslot.getProcedure().getWorkCenter().getId(), k -> new ArrayList<>())
+                    .add(timeslot);
+        }
+        List<List<Timeslot>> lists = new ArrayList<>();
+        List<Timeslot> flattened = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        long pairCount = 0;
+        for (List<Timeslot> list : byWorkCenter.values()) {
+            if (list.size() < 2) {
+                continue;
+            }
+            for (Timeslot timeslot : list) {
+                flattened.add(timeslot);
+                indexes.add(lists.size());
+            }
+            lists.add(list);
+            pairCount += (long) list.size() * (list.size() - 1) / 2;
+        }
+        candidateLists = lists;
+        candidates = flattened;
+        candidateListIndexes = indexes.stream().mapToInt(Integer::intValue).toArray();
+        size = pairCount;
+    }
+
+    @Override
+    public void phaseEnded(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        candidateLists = new ArrayList<>();
+        candidates = new ArrayList<>();
+        candidateListIndexes = new int[0];
+        size = 0;
+    }
+
+    @Override
+    public long getSize(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        return size;
+    }
+
+    @Override
+    public Iterator<TimeslotSwapMove> createOriginalMoveIterator(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        List<List<Timeslot>> lists = candidateLists;
+        return new Iterator<>() {
+            private int listIndex;
+            private int leftIndex;
+            private int rightIndex = 1;
+
+            @Override
+            public boolean hasNext() {
+                return listIndex < lists.size();
+            }
+
+            @Override
+            public TimeslotSwapMove next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<Timeslot> list = lists.get(listIndex);
+                TimeslotSwapMove move = new TimeslotSwapMove(list.get(leftIndex), list.get(rightIndex));
+                rightIndex++;
+                if (rightIndex == list.size()) {
+                    leftIndex++;
+                    rightIndex = leftIndex + 1;
+                    if (rightIndex == list.size()) {
+                        listIndex++;
+                        leftIndex = 0;
+                        rightIndex = 1;
+                    }
+                }
+                return move;
+            }
+        };
+    }
+
+    @Override
+    public Iterator<TimeslotSwapMove> createRandomMoveIterator(ScoreDirector<FactorySchedulingSolution> scoreDirector,
+                                                               Random workingRandom) {
+        List<List<Timeslot>> lists = candidateLists;
+        List<Timeslot> flattened = candidates;
+        int[] indexes = candidateListIndexes;
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !flattened.isEmpty();
+            }
+
+            @Override
+            public TimeslotSwapMove next() {
+                if (flattened.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                int leftIndex = workingRandom.nextInt(flattened.size());
+                Timeslot left = flattened.get(leftIndex);
+                List<Timeslot> list = lists.get(indexes[leftIndex]);
+                Timeslot right = list.get(workingRandom.nextInt(list.size() - 1));
+                if (right == left) {
+                    // 在前size-1个中选中自身时换成最后一个，其余时间槽被选中的概率相同
+                    right = list.get(list.size() - 1);
+                }
+                return new TimeslotSwapMove(left, right);
+            }
+        };
+    }
+}
@@ -0,0 +1,305 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.response.SolveReport;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.common.configuration.SolverProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.optaplanner.core.api.score.Score;
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.impl.localsearch.scope.LocalSearchPhaseScope;
+import org.optaplanner.core.impl.partitionedsearch.scope.PartitionedSearchPhaseScope;
+import org.optaplanner.core.impl.phase.event.PhaseLifecycleListenerAdapter;
+import org.optaplanner.core.impl.phase.scope.AbstractPhaseScope;
+import org.optaplanner.core.impl.phase.scope.AbstractStepScope;
+import org.optaplanner.core.impl.solver.scope.SolverScope;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 求解监视器：按问题规模的时间预算、平台期检测和求解报告
+ * <p>每个Solver一个实例，由{@link MonitoredSolverFactory}注册为阶段监听器，在求解线程上运行。
+ * OptaPlanner的终止条件在SolverManager创建时固定，无法按单个问题调整，因此预算和平台期在每一步结束时检查，
+ * 满足时调用{@link Solver#terminateEarly()}，求解器在当前步之后结束，最终解照常交给最终解回调。</p>
+ * <p>分区搜索的父阶段只在某个分区改进时才走一步，因此另由定时检查(每{@value #CHECK_INTERVAL_MILLIS}ms)
+ * 在步与步之间检查预算，并在改进阶段内超过平台期窗口没有任何改进时结束。
+ * 预算从第一次开始求解时计时，问题变更(ProblemChange)导致求解器重新开始时不重新计算，求解报告也跨重新开始累计。</p>
+ * <p>每一步只做一次时间比较和一次分数比较，最佳分数变化时才记录历史，不影响求解速度。</p>
+ */
+@Slf4j
+public class SolveMonitor extends PhaseLifecycleListenerAdapter<FactorySchedulingSolution> {
+
+    static final long CHECK_INTERVAL_MILLIS = 500;
+
+    /**
+     * 所有求解共用的定时检查线程，检查只比较时间并在需要时调用terminateEarly，开销可以忽略
+     */
+    private static final ScheduledExecutorService CHECKER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "solve-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Solver<FactorySchedulingSolution> solver;
+
+    private final SolverProperties.AdaptiveTermination settings;
+
+    /**
+     * 求解配置的spent-limit，时间预算不超过它
+     */
+    private final Long maxSpentMillis;
+
+    private final Consumer<SolveReport> reportConsumer;
+
+    private final int[] plateauThreshold;
+
+    private volatile long budgetMillis = Long.MAX_VALUE;
+
+    /**
+     * 第一次开始求解的时间，为0时尚未开始
+     */
+    private volatile long solveStartMillis;
+
+    /**
+     * 当前改进阶段开始或最佳分数最近一次变化的时间
+     */
+    private volatile long lastImprovementMillis;
+
+    private volatile boolean improvementPhase;
+
+    private final AtomicReference<String> terminationReason = new AtomicReference<>();
+
+    private ScheduledFuture<?> check;
+
+    private SolveReport report;
+
+    private SolveReport.PhaseReport currentPhase;
+
+    private long phaseStartScoreCalculationCount;
+
+    /**
+     * 当前阶段内最佳分数的历史(求解器已用毫秒数, 最佳分数)，只保留平台期窗口内及窗口开始时的记录
+     */
+    private final Deque<ScorePoint> bestScoreHistory = new ArrayDeque<>();
+
+    /**
+     * @param solver         被监视的求解器
+     * @param profile        求解配置，自适应终止未启用时只生成求解报告
+     * @param reportConsumer 求解结束时接收求解报告
+     */
+    public SolveMonitor(Solver<FactorySchedulingSolution> solver, SolverProperties.Profile profile,
+                        Consumer<SolveReport> reportConsumer) {
+        this.solver = solver;
+        this.settings = profile.getAdaptiveTermination();
+        this.maxSpentMillis = profile.getSpentLimit() == null ? null : profile.getSpentLimit().toMillis();
+        this.reportConsumer = reportConsumer;
+        this.plateauThreshold = toLevels(HardMediumSoftScore.parseScore(settings.getPlateauThreshold()));
+    }
+
+    @Override
+    public void solvingStarted(SolverScope<FactorySchedulingSolution> solverScope) {
+        FactorySchedulingSolution solution = solverScope.getWorkingSolution();
+        int timeslotCount = solution.getTimeslots() == null ? 0 : solution.getTimeslots().size();
+        int maintenanceCount = solution.getMaintenances() == null ? 0 : solution.getMaintenances().size();
+        if (report != null) {
+            // 问题变更后重新开始：保留开始时间、预算和已有的阶段报告
+            report.setTimeslotCount(timeslotCount);
+            report.setMaintenanceCount(maintenanceCount);
+            log.info("Problem {}: solver restarted after problem changes, {}ms of the time budget spent",
+                    report.getProblemId(), elapsedMillis());
+        } else {
+            solveStartMillis = System.currentTimeMillis();
+            report = new SolveReport();
+            report.setProblemId(solution.getProblemId());
+            report.setTimeslotCount(timeslotCount);
+            report.setMaintenanceCount(maintenanceCount);
+            report.setPhases(new ArrayList<>());
+            if (settings.isEnabled()) {
+                long budget = settings.getBaseSpentLimit().toMillis()
+                        + settings.getSpentLimitPerTimeslot().toMillis() * timeslotCount
+                        + settings.getSpentLimitPerMaintenance().toMillis() * maintenanceCount;
+                budgetMillis = maxSpentMillis != null ? Math.min(budget, maxSpentMillis) : budget;
+                report.setBudgetMillis(budgetMillis);
+                log.info("Problem {}: time budget {}ms for {} timeslots and {} maintenances",
+                        solution.getProblemId(), budgetMillis, timeslotCount, maintenanceCount);
+            }
+        }
+        if (settings.isEnabled()) {
+            check = CHECKER.scheduleAtFixedRate(this::checkBetweenSteps,
+                    CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void phaseStarted(AbstractPhaseScope<FactorySchedulingSolution> phaseScope) {
+        currentPhase = new SolveReport.PhaseReport();
+        currentPhase.setPhaseIndex(report.getPhases().size());
+        currentPhase.setPhaseType(phaseScope.getClass().getSimpleName().replace("Scope", ""));
+        if (settings.isEnabled()) {
+            currentPhase.setBudgetMillis(Math.max(0, budgetMillis - elapsedMillis()));
+        }
+        currentPhase.setStartingScore(String.valueOf(phaseScope.getStartingScore()));
+        phaseStartScoreCalculationCount = phaseScope.getSolverScope().getScoreCalculationCount();
+        bestScoreHistory.clear();
+        lastImprovementMillis = System.currentTimeMillis();
+        improvementPhase = isImprovementPhase(phaseScope);
+    }
+
+    @Override
+    public void stepEnded(AbstractStepScope<FactorySchedulingSolution> stepScope) {
+        if (!settings.isEnabled() || terminationReason.get() != null) {
+            return;
+        }
+        AbstractPhaseScope<FactorySchedulingSolution> phaseScope = stepScope.getPhaseScope();
+        long spent = elapsedMillis();
+        if (spent >= budgetMillis) {
+            terminate(SolveReport.REASON_BUDGET, phaseScope.getBestScore());
+            return;
+        }
+        if (settings.getPlateauWindow() != null && improvementPhase && isPlateau(phaseScope, spent)) {
+            terminate(SolveReport.REASON_PLATEAU, phaseScope.getBestScore());
+        }
+    }
+
+    /**
+     * 定时检查，在定时线程上运行：步与步之间的时间预算，以及改进阶段内整个平台期窗口都没有改进
+     * (分区搜索的父阶段此时不会走步，{@link #stepEnded}不会被调用)
+     */
+    private void checkBetweenSteps() {
+        if (terminationReason.get() != null) {
+            return;
+        }
+        if (elapsedMillis() >= budgetMillis) {
+            terminate(SolveReport.REASON_BUDGET, null);
+        } else if (settings.getPlateauWindow() != null && improvementPhase
+                && System.currentTimeMillis() - lastImprovementMillis >= settings.getPlateauWindow().toMillis()) {
+            terminate(SolveReport.REASON_PLATEAU, null);
+        }
+    }
+
+    @Override
+    public void phaseEnded(AbstractPhaseScope<FactorySchedulingSolution> phaseScope) {
+        // 监听器在阶段记录结束时间之前调用，耗时和速度按当前时间计算
+        long spent = phaseScope.calculatePhaseTimeMillisSpentUpToNow();
+        currentPhase.setSpentMillis(spent);
+        currentPhase.setStepCount(phaseScope.getNextStepIndex());
+        currentPhase.setBestScore(String.valueOf(phaseScope.getBestScore()));
+        long scoreCalculationCount = phaseScope.getSolverScope().getScoreCalculationCount() - phaseStartScoreCalculationCount;
+        currentPhase.setScoreCalculationSpeed(scoreCalculationCount * 1000L / Math.max(1, spent));
+        report.getPhases().add(currentPhase);
+        currentPhase = null;
+        improvementPhase = false;
+    }
+
+    @Override
+    public void solvingEnded(SolverScope<FactorySchedulingSolution> solverScope) {
+        if (check != null) {
+            check.cancel(false);
+            check = null;
+        }
+        report.setSpentMillis(elapsedMillis());
+        report.setBestScore(String.valueOf(solverScope.getBestScore()));
+        String reason = terminationReason.get();
+        if (reason != null) {
+            report.setTerminationReason(reason);
+        } else if (solver.isTerminateEarly()) {
+            report.setTerminationReason(SolveReport.REASON_TERMINATED_EARLY);
+        } else {
+            report.setTerminationReason(SolveReport.REASON_LIMIT);
+        }
+        log.info("Problem {} solved in {}ms ({}), best score {}", report.getProblemId(), report.getSpentMillis(),
+                report.getTerminationReason(), report.getBestScore());
+        reportConsumer.accept(report);
+    }
+
+    /**
+     * 只在改进已初始化解的阶段检测平台期，构造阶段的分数变化不计入
+     */
+    private static boolean isImprovementPhase(AbstractPhaseScope<FactorySchedulingSolution> phaseScope) {
+        return phaseScope instanceof LocalSearchPhaseScope || phaseScope instanceof PartitionedSearchPhaseScope;
+    }
+
+    private boolean isPlateau(AbstractPhaseScope<FactorySchedulingSolution> phaseScope, long spent) {
+        Score<?> bestScore = phaseScope.getBestScore();
+        if (!(bestScore instanceof HardMediumSoftScore)) {
+            return false;
+        }
+        if (bestScoreHistory.isEmpty() || !bestScoreHistory.peekLast().score.equals(bestScore)) {
+            bestScoreHistory.addLast(new ScorePoint(spent, (HardMediumSoftScore) bestScore));
+            lastImprovementMillis = System.currentTimeMillis();
+        }
+        long window = settings.getPlateauWindow().toMillis();
+        if (phaseScope.calculatePhaseTimeMillisSpentUpToNow() < window) {
+            return false;
+        }
+        long windowStart = spent - window;
+        // 丢弃窗口开始前的记录，只保留窗口开始时仍然有效的那一条
+        while (bestScoreHistory.size() > 1 && secondPoint().time <= windowStart) {
+            bestScoreHistory.pollFirst();
+        }
+        int[] before = toLevels(bestScoreHistory.peekFirst().score);
+        int[] after = toLevels((HardMediumSoftScore) bestScore);
+        for (int i = 0; i < after.length; i++) {
+            int improvement = after[i] - before[i];
+            if (improvement > 0 && improvement >= plateauThreshold[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ScorePoint secondPoint() {
+        Iterator<ScorePoint> iterator = bestScoreHistory.iterator();
+        iterator.next();
+        return iterator.next();
+    }
+
+    /**
+     * 只有第一次触发的结束原因生效，求解线程和定时线程都可能调用
+     *
+     * @param bestScore 当前最佳分数，定时线程调用时为空
+     */
+    private void terminate(String reason, Score<?> bestScore) {
+        if (!terminationReason.compareAndSet(null, reason)) {
+            return;
+        }
+        log.info("Problem {}: terminating after {}ms ({}), best score {}",
+                report.getProblemId(), elapsedMillis(), reason, bestScore != null ? bestScore : "pending");
+        solver.terminateEarly();
+    }
+
+    /**
+     * 从第一次开始求解起的毫秒数，问题变更导致的重新开始不清零
+     */
+    private long elapsedMillis() {
+        return System.currentTimeMillis() - solveStartMillis;
+    }
+
+    private static int[] toLevels(HardMediumSoftScore score) {
+        return new int[]{score.hardScore(), score.mediumScore(), score.softScore()};
+    }
+
+    /**
+     * 只读的分数记录
+     */
+    private static final class ScorePoint {
+
+        private final long time;
+
+        private final HardMediumSoftScore score;
+
+        private ScorePoint(long time, HardMediumSoftScore score) {
+            this.time = time;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.response.SolveReport;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.common.configuration.SolverProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.api.solver.SolverManager;
+import org.optaplanner.core.api.solver.SolverStatus;
+import org.optaplanner.core.config.solver.SolverConfig;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 求解管理器注册表
+ * <p>OptaPlanner的SolverManager在创建时固定求解配置，为支持按请求选择求解配置，
+ * 每个求解配置(profile)懒加载一个SolverManager，并记录每个问题ID当前由哪个配置求解，
+ * 停止求解、查询状态时路由到对应的SolverManager。</p>
+ * <p>每个求解器都注册{@link SolveMonitor}，按求解配置的adaptive-termination控制时间预算，
+ * 求解结束时的{@link SolveReport}按问题ID保留，直到该问题下一次求解结束。</p>
+ */
+@Slf4j
+public class SolverManagerRegistry implements AutoCloseable {
+
+    private final String defaultProfile;
+
+    private final Function<String, SolverConfig> solverConfigFactory;
+
+    private final Function<String, SolverProperties.Profile> profileResolver;
+
+    private final Map<String, SolverManager<FactorySchedulingSolution, Long>> solverManagers = new ConcurrentHashMap<>();
+
+    private final Map<Long, String> problemProfiles = new ConcurrentHashMap<>();
+
+    private final Map<Long, SolveReport> solveReports = new ConcurrentHashMap<>();
+
+    /**
+     * @param defaultProfile      默认求解配置名称
+     * @param solverConfigFactory 按配置名称构建求解配置，配置不存在时抛出IllegalArgumentException
+     * @param profileResolver     按配置名称获取求解配置属性
+     */
+    public SolverManagerRegistry(String defaultProfile, Function<String, SolverConfig> solverConfigFactory,
+                                 Function<String, SolverProperties.Profile> profileResolver) {
+        this.defaultProfile = defaultProfile;
+        this.solverConfigFactory = solverConfigFactory;
+        this.profileResolver = profileResolver;
+    }
+
+    /**
+     * 获取指定求解配置的SolverManager
+     *
+     * @param profile 求解配置名称，为空时取默认配置
+     * @return SolverManager
+     * @throws IllegalArgumentException 配置不存在
+     */
+    public SolverManager<FactorySchedulingSolution, Long> getSolverManager(String profile) {
+        String profileName = resolveProfileName(profile);
+        return solverManagers.computeIfAbsent(profileName, name -> {
+            log.info("Creating solver manager for profile {}", name);
+            SolverFactory<FactorySchedulingSolution> solverFactory = SolverFactory.create(solverConfigFactory.apply(name));
+            return SolverManager.create(new MonitoredSolverFactory(solverFactory, profileResolver.apply(name),
+                    this::recordSolveReport));
+        });
+    }
+
+    /**
+     * 为问题选择求解配置并返回对应的SolverManager
+     * <p>同一问题正在其他配置下求解时拒绝切换</p>
+     *
+     * @param problemId 问题ID
+     * @param profile   求解配置名称，为空时取默认配置
+     * @return SolverManager
+     * @throws IllegalStateException 问题正在求解
+     */
+    public synchronized SolverManager<FactorySchedulingSolution, Long> bind(Long problemId, String profile) {
+        SolverManager<FactorySchedulingSolution, Long> solverManager = getSolverManager(profile);
+        if (getSolverStatus(problemId) != SolverStatus.NOT_SOLVING) {
+            throw new IllegalStateException("Problem " + problemId + " is already solving with profile "
+                    + getProfile(problemId));
+        }
+        problemProfiles.put(problemId, resolveProfileName(profile));
+        return solverManager;
+    }
+
+    /**
+     * 问题求解结束后解除绑定
+     */
+    public void unbind(Long problemId) {
+        problemProfiles.remove(problemId);
+    }
+
+    /**
+     * 获取问题当前绑定的求解配置名称，未绑定时为默认配置
+     */
+    public String getProfile(Long problemId) {
+        return problemProfiles.getOrDefault(problemId, defaultProfile);
+    }
+
+    /**
+     * 获取问题当前绑定的SolverManager
+     */
+    public SolverManager<FactorySchedulingSolution, Long> getSolverManager(Long problemId) {
+        return getSolverManager(getProfile(problemId));
+    }
+
+    public SolverStatus getSolverStatus(Long problemId) {
+        return getSolverManager(problemId).getSolverStatus(problemId);
+    }
+
+    /**
+     * 获取问题最近一次求解的报告
+     *
+     * @param problemId 问题ID
+     * @return 求解报告，本进程中该问题还没有求解结束时为null
+     */
+    public SolveReport getSolveReport(Long problemId) {
+        return solveReports.get(problemId);
+    }
+
+    private void recordSolveReport(SolveReport report) {
+        if (report.getProblemId() != null) {
+            solveReports.put(report.getProblemId(), report);
+        }
+    }
+
+    public void terminateEarly(Long problemId) {
+        getSolverManager(problemId).terminateEarly(problemId);
+    }
+
+    private String resolveProfileName(String profile) {
+        return profile == null || profile.isEmpty() ? defaultProfile : profile;
+    }
+
+    @Override
+    public void close() {
+        solverManagers.values().forEach(SolverManager::close);
+        solverManagers.clear();
+    }
+}
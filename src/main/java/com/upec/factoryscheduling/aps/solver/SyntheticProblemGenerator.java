@@ -0,0 +1,348 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Order;
+import com.upec.factoryscheduling.aps.entity.Procedure;
+import com.upec.factoryscheduling.aps.entity.Task;
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenter;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.resquest.SyntheticDataRequest;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.PlanningClock;
+import lombok.Getter;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 合成调度数据生成器
+ * <p>按{@link SyntheticDataRequest}的分布参数生成规模可达数十万时间槽的完整数据：订单、任务、
+ * 带分叉汇合的工序网络(nextProcedure)、外协(PM10W200)工序链、按分片时长切分的时间槽和工作中心日历。
+ * 数据与MES导入后的形态一致：时间槽未分配日历，手工排定的工序带开始时间。</p>
+ * <p>生成结果既可以直接转成求解输入({@link Dataset#toSolution()})，也可以经由各实体服务保存，
+ * 用于在10~50倍生产规模下分析求解器、问题加载和结果保存的耗时。</p>
+ */
+public final class SyntheticProblemGenerator {
+
+    public static final String OUTSOURCING_PROCEDURE_TYPE = "ZP02";
+
+    private static final String STATUS_AVAILABLE = "Active";
+
+    private static final LocalTime SHIFT_START = LocalTime.of(8, 0);
+
+    private static final int MIN_MACHINE_COUNT = 3;
+
+    private static final int MIN_MACHINE_MINUTES = 10;
+
+    private SyntheticProblemGenerator() {
+    }
+
+    /**
+     * 生成数据
+     * <p>按任务逐个生成，直到时间槽数量不少于{@link SyntheticDataRequest#getTimeslotCount()}，
+     * 超出部分不超过一个任务的时间槽数。未指定工作中心数量时，先生成全部工序，再按自制工序的总机时
+     * 和目标负荷率确定工作中心数量，使日历容量与负荷相当，之后把自制工序均匀分配到各工作中心。</p>
+     *
+     * @param request 生成参数
+     * @return 生成的数据
+     */
+    public static Dataset generate(SyntheticDataRequest request) {
+        validate(request);
+        Random random = new Random(request.getSeed());
+        LocalDate startDate = request.getStartDate() != null ? request.getStartDate() : LocalDate.now();
+        Dataset dataset = new Dataset(startDate, request.getHorizonDays());
+
+        WorkCenter outsourcing = new WorkCenter();
+        outsourcing.setId(request.getPrefix() + "-" + CapacityBucketCollector.OUTSOURCING_WORK_CENTER_CODE);
+        outsourcing.setWorkCenterCode(CapacityBucketCollector.OUTSOURCING_WORK_CENTER_CODE);
+        outsourcing.setName("外协");
+        outsourcing.setStatus(STATUS_AVAILABLE);
+        dataset.workCenters.add(outsourcing);
+
+        Order order = null;
+        for (int t = 0; dataset.timeslots.size() < request.getTimeslotCount(); t++) {
+            if (t % request.getTasksPerOrder() == 0) {
+                order = new Order();
+                order.setOrderNo(String.format("%s-O%06d", request.getPrefix(), t / request.getTasksPerOrder()));
+                order.setOrderStatus("合成数据");
+                order.setPlanStartDate(startDate);
+                order.setPlanEndDate(dataset.endDate);
+                order.setCreateDate(startDate.atStartOfDay());
+                dataset.orders.add(order);
+            }
+            generateTask(request, random, dataset, order, String.format("%s-T%07d", request.getPrefix(), t), outsourcing);
+        }
+
+        int machineCount = request.getWorkCenterCount() > 0 ? request.getWorkCenterCount() - 1
+                : machineCount(request, dataset);
+        List<WorkCenter> machines = new ArrayList<>(machineCount);
+        for (int i = 1; i <= machineCount; i++) {
+            WorkCenter workCenter = new WorkCenter();
+            workCenter.setId(String.format("%s-WC%04d", request.getPrefix(), i));
+            workCenter.setWorkCenterCode(workCenter.getId());
+            workCenter.setName("合成工作中心" + i);
+            workCenter.setStatus(STATUS_AVAILABLE);
+            machines.add(workCenter);
+            dataset.workCenters.add(workCenter);
+        }
+        Map<String, List<LocalDate>> calendarDates = generateCalendars(request, random, dataset);
+        // 手工排定的工序在其工作中心日历中的第一天(下标)
+        Map<Procedure, Integer> manualFirstDates = new HashMap<>();
+        for (Procedure procedure : dataset.procedures) {
+            if (procedure.getWorkCenter() == null) {
+                procedure.setWorkCenter(machines.get(random.nextInt(machines.size())));
+            }
+            if (random.nextDouble() < request.getManualProbability()) {
+                List<LocalDate> dates = calendarDates.get(procedure.getWorkCenter().getId());
+                int slices = sliceCount(request, procedure.getMachineMinutes());
+                if (dates.size() >= slices) {
+                    int first = random.nextInt(dates.size() - slices + 1);
+                    procedure.setStartTime(dates.get(first).atTime(SHIFT_START));
+                    manualFirstDates.put(procedure, first);
+                }
+            }
+        }
+        // 手工排定的工序从开始时间当天起，每个分片固定在工作中心日历中连续的一天
+        for (Timeslot timeslot : dataset.timeslots) {
+            Procedure procedure = timeslot.getProcedure();
+            Integer first = manualFirstDates.get(procedure);
+            if (first != null) {
+                LocalDateTime startTime = calendarDates.get(procedure.getWorkCenter().getId())
+                        .get(first + timeslot.getIndex() - 1).atTime(SHIFT_START);
+                timeslot.setManual(true);
+                timeslot.setStartTime(startTime);
+                timeslot.setEndTime(startTime.plusMinutes(timeslot.getDuration()));
+            }
+        }
+        return dataset;
+    }
+
+    /**
+     * 生成工作中心日历，返回每个工作中心有日历的日期
+     */
+    private static Map<String, List<LocalDate>> generateCalendars(SyntheticDataRequest request, Random random,
+                                                                  Dataset dataset) {
+        Map<String, List<LocalDate>> calendarDates = new HashMap<>();
+        for (WorkCenter workCenter : dataset.workCenters) {
+            boolean outsourcing = CapacityBucketCollector.OUTSOURCING_WORK_CENTER_CODE.equals(workCenter.getWorkCenterCode());
+            List<LocalDate> dates = new ArrayList<>();
+            for (int day = 0; day < request.getHorizonDays(); day++) {
+                LocalDate date = dataset.startDate.plusDays(day);
+                // 外协在供应商处进行，不受本厂休息日影响
+                if (!outsourcing && request.isClosedWeekends() && isWeekend(date)) {
+                    continue;
+                }
+                WorkCenterMaintenance maintenance = new WorkCenterMaintenance(workCenter, date,
+                        request.getDailyCapacityMinutes(), "合成数据");
+                maintenance.setId(workCenter.getId() + "_" + date);
+                maintenance.setYear(date.getYear());
+                maintenance.setStartTime(SHIFT_START);
+                maintenance.setEndTime(SHIFT_START.plusMinutes(request.getDailyCapacityMinutes()));
+                if (!outsourcing && random.nextDouble() < request.getUsedCapacityProbability()) {
+                    maintenance.setUsageTime(1 + random.nextInt(Math.max(1, request.getDailyCapacityMinutes() / 2)));
+                }
+                maintenance.setStatus(STATUS_AVAILABLE);
+                dataset.maintenances.add(maintenance);
+                dates.add(date);
+            }
+            calendarDates.put(workCenter.getId(), dates);
+        }
+        return calendarDates;
+    }
+
+    /**
+     * 生成一个任务：工序按级排列，每级一道工序或两道并行工序，相邻两级的工序全部相连
+     */
+    private static void generateTask(SyntheticDataRequest request, Random random, Dataset dataset, Order order,
+                                     String taskNo, WorkCenter outsourcing) {
+        Task task = new Task();
+        task.setTaskNo(taskNo);
+        task.setOrderNo(order.getOrderNo());
+        task.setStatus("合成数据");
+        task.setPriority(1 + random.nextInt(request.getMaxPriority()));
+        task.setPlanQuantity(1 + random.nextInt(10));
+        task.setPlanStartDate(dataset.startDate.plusDays(random.nextInt(Math.max(1, request.getHorizonDays() / 2))));
+        if (random.nextDouble() < request.getFactStartProbability()) {
+            task.setFactStartDate(task.getPlanStartDate().atTime(SHIFT_START));
+        }
+        task.setCreateDate(order.getCreateDate());
+        dataset.tasks.add(task);
+
+        int levels = request.getMinLevels() + random.nextInt(request.getMaxLevels() - request.getMinLevels() + 1);
+        int outsourcingRemaining = 0;
+        int index = 0;
+        List<Procedure> previousLevel = Collections.emptyList();
+        LocalDate planEndDate = task.getPlanStartDate();
+        for (int level = 1; level <= levels; level++) {
+            // 外协链不在首道工序开始，链内每级只有一道工序
+            if (outsourcingRemaining == 0 && level > 1 && random.nextDouble() < request.getOutsourcingProbability()) {
+                outsourcingRemaining = 1 + random.nextInt(request.getMaxOutsourcingChainLength());
+            }
+            boolean outsourcingLevel = outsourcingRemaining > 0;
+            int width = !outsourcingLevel && random.nextDouble() < request.getBranchProbability() ? 2 : 1;
+            planEndDate = planEndDate.plusDays(1 + random.nextInt(3));
+            List<Procedure> currentLevel = new ArrayList<>(width);
+            for (int branch = 0; branch < width; branch++) {
+                Procedure procedure = new Procedure();
+                procedure.setOrder(order);
+                procedure.setTask(task);
+                procedure.setProcedureNo(level * 10 + branch * 5);
+                procedure.setId(taskNo + "_" + procedure.getProcedureNo());
+                procedure.setProcedureName((outsourcingLevel ? "外协工序" : "工序") + procedure.getProcedureNo());
+                procedure.setIndex(++index);
+                procedure.setLevel(level);
+                procedure.setParallel(width > 1);
+                procedure.setNextProcedureNo(new ArrayList<>());
+                procedure.setPlanStartDate(task.getPlanStartDate());
+                procedure.setPlanEndDate(planEndDate.isAfter(dataset.endDate) ? dataset.endDate : planEndDate);
+                procedure.setCreateDate(task.getCreateDate());
+                // 自制工序在确定工作中心数量后分配工作中心
+                if (outsourcingLevel) {
+                    procedure.setWorkCenter(outsourcing);
+                    procedure.setProcedureType(OUTSOURCING_PROCEDURE_TYPE);
+                }
+                procedure.setMachineMinutes(machineMinutes(request, random));
+                currentLevel.add(procedure);
+                dataset.procedures.add(procedure);
+            }
+            for (Procedure previous : previousLevel) {
+                for (Procedure next : currentLevel) {
+                    previous.addNextProcedure(next);
+                    previous.getNextProcedureNo().add(next.getProcedureNo());
+                }
+            }
+            if (outsourcingLevel) {
+                outsourcingRemaining--;
+            }
+            previousLevel = currentLevel;
+        }
+        task.setPlanEndDate(planEndDate.isAfter(dataset.endDate) ? dataset.endDate : planEndDate);
+
+        for (Procedure procedure : dataset.procedures.subList(dataset.procedures.size() - index, dataset.procedures.size())) {
+            generateTimeslots(request, dataset, task, procedure);
+        }
+    }
+
+    /**
+     * 按分片最大时长把工序机时切分为时间槽，时间槽编号与MES导入一致: 任务号_工序号_分片序号
+     */
+    private static void generateTimeslots(SyntheticDataRequest request, Dataset dataset, Task task, Procedure procedure) {
+        int minutes = procedure.getMachineMinutes();
+        int total = sliceCount(request, minutes);
+        for (int index = 1; index <= total; index++) {
+            Timeslot timeslot = new Timeslot();
+            timeslot.setId(task.getTaskNo() + "_" + procedure.getProcedureNo() + "_" + index);
+            timeslot.setProcedure(procedure);
+            timeslot.setIndex(index);
+            timeslot.setTotal(total);
+            timeslot.setProcedureIndex(procedure.getIndex());
+            // 余数分摊到前面的分片，各分片时长之和等于工序机时
+            timeslot.setDuration(minutes / total + (index <= minutes % total ? 1 : 0));
+            timeslot.setPriority(task.getPriority());
+            timeslot.setParallel(procedure.isParallel());
+            dataset.timeslots.add(timeslot);
+        }
+    }
+
+    /**
+     * 工序机时按分片最大时长切分的分片数，不超过单道工序的最大分片数
+     */
+    private static int sliceCount(SyntheticDataRequest request, int minutes) {
+        return Math.min(request.getMaxSlices(), (minutes + request.getMaxSliceMinutes() - 1) / request.getMaxSliceMinutes());
+    }
+
+    /**
+     * 按目标负荷率推算自制工作中心数量: 自制工序总机时 / (每天容量 × 工作日数 × 负荷率)
+     */
+    private static int machineCount(SyntheticDataRequest request, Dataset dataset) {
+        long machineMinutes = dataset.procedures.stream()
+                .filter(procedure -> procedure.getWorkCenter() == null)
+                .mapToLong(Procedure::getMachineMinutes)
+                .sum();
+        int workingDays = 0;
+        for (int day = 0; day < request.getHorizonDays(); day++) {
+            if (!request.isClosedWeekends() || !isWeekend(dataset.startDate.plusDays(day))) {
+                workingDays++;
+            }
+        }
+        double capacity = (double) request.getDailyCapacityMinutes() * Math.max(1, workingDays) * request.getTargetUtilization();
+        return Math.max(MIN_MACHINE_COUNT, (int) Math.ceil(machineMinutes / capacity));
+    }
+
+    private static boolean isWeekend(LocalDate date) {
+        return date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+
+    /**
+     * 工序机时按对数正态分布抽样，不超过可切分的最大时长
+     */
+    private static int machineMinutes(SyntheticDataRequest request, Random random) {
+        double minutes = request.getMedianMachineMinutes() * Math.exp(request.getMachineMinutesSigma() * random.nextGaussian());
+        int max = request.getMaxSliceMinutes() * request.getMaxSlices();
+        return (int) Math.max(MIN_MACHINE_MINUTES, Math.min(max, Math.round(minutes)));
+    }
+
+    private static void validate(SyntheticDataRequest request) {
+        if (request.getTimeslotCount() < 1 || request.getHorizonDays() < 1 || request.getTasksPerOrder() < 1
+                || request.getMinLevels() < 1 || request.getMaxLevels() < request.getMinLevels()
+                || request.getMaxOutsourcingChainLength() < 1 || request.getMedianMachineMinutes() < 1
+                || request.getMaxSliceMinutes() < 1 || request.getMaxSlices() < 1
+                || request.getDailyCapacityMinutes() < 1 || request.getMaxPriority() < 1
+                || request.getTargetUtilization() <= 0) {
+            throw new IllegalArgumentException("Invalid synthetic data request: " + request);
+        }
+        if (request.getWorkCenterCount() == 1) {
+            throw new IllegalArgumentException("At least one work center besides " + CapacityBucketCollector.OUTSOURCING_WORK_CENTER_CODE
+                    + " is required");
+        }
+    }
+
+    /**
+     * 生成的数据，各列表按生成顺序排列，引用关系与数据库加载后一致
+     */
+    @Getter
+    public static final class Dataset {
+
+        private final LocalDate startDate;
+
+        private final LocalDate endDate;
+
+        private final List<WorkCenter> workCenters = new ArrayList<>();
+
+        private final List<WorkCenterMaintenance> maintenances = new ArrayList<>();
+
+        private final List<Order> orders = new ArrayList<>();
+
+        private final List<Task> tasks = new ArrayList<>();
+
+        private final List<Procedure> procedures = new ArrayList<>();
+
+        private final List<Timeslot> timeslots = new ArrayList<>();
+
+        private Dataset(LocalDate startDate, int horizonDays) {
+            this.startDate = startDate;
+            this.endDate = startDate.plusDays(horizonDays - 1L);
+        }
+
+        /**
+         * 转成求解输入
+         * <p>与加载问题相同地初始化问题事实，规划时钟以开始日期为基准，当前时间固定为开始日期的上班时间，
+         * 同一数据集的分数可重现。</p>
+         *
+         * @return 未分配日历的解决方案
+         */
+        public FactorySchedulingSolution toSolution() {
+            FactorySchedulingSolution solution = new FactorySchedulingSolution(timeslots, maintenances);
+            solution.initializeProblemFacts(new PlanningClock(startDate.atStartOfDay(), startDate.atTime(SHIFT_START)));
+            return solution;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.move.AbstractMove;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 交换两个时间槽绑定的工作中心日历
+ * <p>由{@link SameWorkCenterSwapMoveIteratorFactory}只在同一工作中心的时间槽之间生成，
+ * 两个时间槽的可选日历相同，交换后的日历一定在各自的取值范围内。</p>
+ */
+public class TimeslotSwapMove extends AbstractMove<FactorySchedulingSolution> {
+
+    private static final String MAINTENANCE = "maintenance";
+
+    private final Timeslot left;
+
+    private final Timeslot right;
+
+    public TimeslotSwapMove(Timeslot left, Timeslot right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    public boolean isMoveDoable(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        return left != right && left.getMaintenance() != right.getMaintenance();
+    }
+
+    @Override
+    protected TimeslotSwapMove createUndoMove(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        return new TimeslotSwapMove(right, left);
+    }
+
+    @Override
+    protected void doMoveOnGenuineVariables(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        WorkCenterMaintenance leftMaintenance = left.getMaintenance();
+        WorkCenterMaintenance rightMaintenance = right.getMaintenance();
+        scoreDirector.beforeVariableChanged(left, MAINTENANCE);
+        left.setMaintenance(rightMaintenance);
+        scoreDirector.afterVariableChanged(left, MAINTENANCE);
+        scoreDirector.beforeVariableChanged(right, MAINTENANCE);
+        right.setMaintenance(leftMaintenance);
+        scoreDirector.afterVariableChanged(right, MAINTENANCE);
+    }
+
+    @Override
+    public TimeslotSwapMove rebase(ScoreDirector<FactorySchedulingSolution> destinationScoreDirector) {
+        return new TimeslotSwapMove(destinationScoreDirector.lookUpWorkingObject(left),
+                destinationScoreDirector.lookUpWorkingObject(right));
+    }
+
+    @Override
+    public String getSimpleMoveTypeDescription() {
+        return "TimeslotSwapMove(Timeslot.maintenance)";
+    }
+
+    @Override
+    public List<Timeslot> getPlanningEntities() {
+        return Arrays.asList(left, right);
+    }
+
+    @Override
+    public List<WorkCenterMaintenance> getPlanningValues() {
+        return Arrays.asList(left.getMaintenance(), right.getMaintenance());
+    }
+
+    @Override
+    public String toString() {
+        return left.getId() + " <-> " + right.getId();
+    }
+}
@@ -0,0 +1,260 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Procedure;
+import com.upec.factoryscheduling.aps.entity.Task;
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.ProcedureLink;
+import lombok.extern.slf4j.Slf4j;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.phase.custom.CustomPhaseCommand;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.upec.factoryscheduling.common.utils.DateUtils.NO_MINUTE;
+
+/**
+ * 按工序拓扑层级的构造阶段
+ * <p>工序层级取前后序关系上的最长路径(与{@code NodeLevelManager.calculateLevels}的层级定义一致)，
+ * 未分配的时间槽按层级、任务计划开始、工序、分片序号依次处理，每个分片分配到本工作中心日历中
+ * 开始时间晚于所有前序工序及本工序上一分片结束、不早于任务实际开始、且剩余容量足够的最早一天。
+ * 容量是硬约束而顺序是中约束，之后没有剩余容量时退到之前最近的有剩余容量的一天，
+ * 都没有时取剩余容量最多的一天；外协工序不占容量，取最早一天。</p>
+ * <p>层级由{@link ProcedureLink}计算而不调用NodeLevelManager：后者会改写工序的level/index，
+ * 而工序是问题事实，index被外协约束使用，且在规划克隆和分区之间共享。
+ * 已分配的时间槽(包括固定的手动时间槽)保持不变，其占用的容量和结束时间参与计算。</p>
+ */
+@Slf4j
+public class TopologicalConstructionPhaseCommand implements CustomPhaseCommand<FactorySchedulingSolution> {
+
+    private static final String MAINTENANCE = "maintenance";
+
+    @Override
+    public void changeWorkingSolution(ScoreDirector<FactorySchedulingSolution> scoreDirector) {
+        long startTime = System.currentTimeMillis();
+        FactorySchedulingSolution solution = scoreDirector.getWorkingSolution();
+        Map<String, Integer> levels = calculateLevels(solution);
+
+        Map<String, List<String>> predecessors = new HashMap<>();
+        Map<String, List<Timeslot>> slicesByProcedure = new HashMap<>();
+        for (ProcedureLink link : solution.getProcedureLinks()) {
+            predecessors.computeIfAbsent(link.getSuccessorId(), k -> new ArrayList<>()).add(link.getPredecessorId());
+        }
+
+        // 已分配时间槽占用的容量(按工作中心编码和日期)和工序结束时间
+        Map<String, Integer> remainingCapacity = new HashMap<>();
+        Map<String, Integer> procedureEnd = new HashMap<>();
+        List<Timeslot> unassigned = new ArrayList<>();
+        for (Timeslot timeslot : solution.getTimeslots()) {
+            if (timeslot.getProcedure() != null) {
+                slicesByProcedure.computeIfAbsent(timeslot.getProcedure().getId(), k -> new ArrayList<>()).add(timeslot);
+            }
+            if (timeslot.getMaintenance() == null) {
+                if (timeslot.getMaintenanceRange() != null && !timeslot.getMaintenanceRange().isEmpty()) {
+                    unassigned.add(timeslot);
+                }
+                continue;
+            }
+            consumeCapacity(remainingCapacity, timeslot, timeslot.getMaintenance());
+            recordEnd(procedureEnd, timeslot);
+        }
+        unassigned.sort(Comparator
+                .comparingInt((Timeslot timeslot) -> levels.getOrDefault(procedureId(timeslot), 0))
+                .thenComparingInt(TopologicalConstructionPhaseCommand::planStartMinute)
+                .thenComparing(TopologicalConstructionPhaseCommand::procedureId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparingInt(Timeslot::getIndex));
+
+        Map<List<WorkCenterMaintenance>, List<WorkCenterMaintenance>> sortedRanges = new IdentityHashMap<>();
+        for (Timeslot timeslot : unassigned) {
+            List<WorkCenterMaintenance> range = sortedRanges.computeIfAbsent(timeslot.getMaintenanceRange(),
+                    TopologicalConstructionPhaseCommand::sortByStart);
+            int minStart = minStart(timeslot, predecessors, procedureEnd, slicesByProcedure);
+            WorkCenterMaintenance maintenance = select(range, timeslot, minStart, remainingCapacity);
+            scoreDirector.beforeVariableChanged(timeslot, MAINTENANCE);
+            timeslot.setMaintenance(maintenance);
+            scoreDirector.afterVariableChanged(timeslot, MAINTENANCE);
+            scoreDirector.triggerVariableListeners();
+            consumeCapacity(remainingCapacity, timeslot, maintenance);
+            recordEnd(procedureEnd, timeslot);
+        }
+        log.info("Topological construction assigned {} timeslots in {} ms",
+                unassigned.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 按前后序关系计算工序层级(最长路径)，入度为0的工序层级为1；存在环时环上工序排在最后
+     */
+    static Map<String, Integer> calculateLevels(FactorySchedulingSolution solution) {
+        Map<String, List<String>> successors = new HashMap<>();
+        Map<String, Integer> inDegree = new HashMap<>();
+        for (Timeslot timeslot : solution.getTimeslots()) {
+            String procedureId = procedureId(timeslot);
+            if (procedureId != null) {
+                inDegree.putIfAbsent(procedureId, 0);
+            }
+        }
+        for (ProcedureLink link : solution.getProcedureLinks()) {
+            successors.computeIfAbsent(link.getPredecessorId(), k -> new ArrayList<>()).add(link.getSuccessorId());
+            inDegree.merge(link.getSuccessorId(), 1, Integer::sum);
+            inDegree.putIfAbsent(link.getPredecessorId(), 0);
+        }
+        Map<String, Integer> levels = new HashMap<>();
+        Deque<String> ready = new ArrayDeque<>();
+        inDegree.forEach((procedureId, degree) -> {
+            if (degree == 0) {
+                ready.add(procedureId);
+                levels.put(procedureId, 1);
+            }
+        });
+        int maxLevel = 1;
+        while (!ready.isEmpty()) {
+            String procedureId = ready.poll();
+            int nextLevel = levels.get(procedureId) + 1;
+            for (String successor : successors.getOrDefault(procedureId, List.of())) {
+                levels.merge(successor, nextLevel, Math::max);
+                maxLevel = Math.max(maxLevel, nextLevel);
+                if (inDegree.merge(successor, -1, Integer::sum) == 0) {
+                    ready.add(successor);
+                }
+            }
+        }
+        for (Map.Entry<String, Integer> entry : inDegree.entrySet()) {
+            if (entry.getValue() > 0) {
+                levels.put(entry.getKey(), maxLevel + 1);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * 最早可开始的分钟数：晚于前序工序和本工序前面分片的结束，不早于任务实际开始
+     */
+    private static int minStart(Timeslot timeslot, Map<String, List<String>> predecessors,
+                                Map<String, Integer> procedureEnd, Map<String, List<Timeslot>> slicesByProcedure) {
+        int minStart = Integer.MIN_VALUE;
+        String procedureId = procedureId(timeslot);
+        if (procedureId == null) {
+            return minStart;
+        }
+        for (String predecessor : predecessors.getOrDefault(procedureId, List.of())) {
+            Integer end = procedureEnd.get(predecessor);
+            if (end != null) {
+                minStart = Math.max(minStart, end + 1);
+            }
+        }
+        for (Timeslot slice : slicesByProcedure.get(procedureId)) {
+            if (slice.getIndex() < timeslot.getIndex() && slice.getMaintenance() != null
+                    && slice.getEndMinute() != NO_MINUTE) {
+                minStart = Math.max(minStart, slice.getEndMinute() + 1);
+            }
+        }
+        Task task = timeslot.getProcedure().getTask();
+        if (task != null && task.getFactStartMinute() != NO_MINUTE) {
+            minStart = Math.max(minStart, task.getFactStartMinute());
+        }
+        return minStart;
+    }
+
+    private static WorkCenterMaintenance select(List<WorkCenterMaintenance> range, Timeslot timeslot, int minStart,
+                                                Map<String, Integer> remainingCapacity) {
+        if (range.isEmpty()) {
+            return timeslot.getMaintenanceRange().get(0);
+        }
+        int first = firstStartingFrom(range, minStart);
+        if (CapacityBucketCollector.isOutsourcing(timeslot)) {
+            return range.get(Math.min(first, range.size() - 1));
+        }
+        for (int i = first; i < range.size(); i++) {
+            if (remaining(remainingCapacity, range.get(i)) >= timeslot.getDuration()) {
+                return range.get(i);
+            }
+        }
+        // 容量是硬约束、顺序是中约束：之后没有剩余容量时退到之前最近的有剩余容量的一天
+        for (int i = first - 1; i >= 0; i--) {
+            if (remaining(remainingCapacity, range.get(i)) >= timeslot.getDuration()) {
+                return range.get(i);
+            }
+        }
+        WorkCenterMaintenance mostRemaining = range.get(0);
+        for (WorkCenterMaintenance maintenance : range) {
+            if (remaining(remainingCapacity, maintenance) > remaining(remainingCapacity, mostRemaining)) {
+                mostRemaining = maintenance;
+            }
+        }
+        return mostRemaining;
+    }
+
+    /**
+     * 二分查找第一个开始分钟数不小于minStart的日历
+     */
+    private static int firstStartingFrom(List<WorkCenterMaintenance> range, int minStart) {
+        int low = 0;
+        int high = range.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (range.get(mid).getStartMinute() < minStart) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static List<WorkCenterMaintenance> sortByStart(List<WorkCenterMaintenance> range) {
+        List<WorkCenterMaintenance> sorted = new ArrayList<>(range.size());
+        for (WorkCenterMaintenance maintenance : range) {
+            if (maintenance.getStartMinute() != NO_MINUTE) {
+                sorted.add(maintenance);
+            }
+        }
+        sorted.sort(Comparator.comparingInt(WorkCenterMaintenance::getStartMinute));
+        return sorted;
+    }
+
+    private static int remaining(Map<String, Integer> remainingCapacity, WorkCenterMaintenance maintenance) {
+        return remainingCapacity.getOrDefault(capacityKey(maintenance), maintenance.getCapacity() - maintenance.getUsageTime());
+    }
+
+    /**
+     * 容量按工作中心编码和日期计算：同一天的日历可能是不同的对象(例如问题变更替换的副本)，
+     * 同一编码的工作中心共用当天容量
+     */
+    private static String capacityKey(WorkCenterMaintenance maintenance) {
+        return maintenance.getWorkCenter().getWorkCenterCode() + "-" + maintenance.getDate();
+    }
+
+    private static void consumeCapacity(Map<String, Integer> remainingCapacity, Timeslot timeslot,
+                                        WorkCenterMaintenance maintenance) {
+        if (timeslot.getProcedure() == null || CapacityBucketCollector.isOutsourcing(timeslot)) {
+            return;
+        }
+        remainingCapacity.put(capacityKey(maintenance), remaining(remainingCapacity, maintenance) - timeslot.getDuration());
+    }
+
+    private static void recordEnd(Map<String, Integer> procedureEnd, Timeslot timeslot) {
+        String procedureId = procedureId(timeslot);
+        if (procedureId != null && timeslot.getEndMinute() != NO_MINUTE) {
+            procedureEnd.merge(procedureId, timeslot.getEndMinute(), Math::max);
+        }
+    }
+
+    private static String procedureId(Timeslot timeslot) {
+        Procedure procedure = timeslot.getProcedure();
+        return procedure != null ? procedure.getId() : null;
+    }
+
+    private static int planStartMinute(Timeslot timeslot) {
+        Procedure procedure = timeslot.getProcedure();
+        Task task = procedure != null ? procedure.getTask() : null;
+        return task != null && task.getPlanStartMinute() != NO_MINUTE ? task.getPlanStartMinute() : Integer.MAX_VALUE;
+    }
+}
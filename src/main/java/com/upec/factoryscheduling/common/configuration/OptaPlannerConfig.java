@@ -2,13 +2,25 @@ package com.upec.factoryscheduling.common.configuration;
 
 import com.upec.factoryscheduling.aps.entity.Timeslot;
 import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolutionPartitioner;
 import com.upec.factoryscheduling.aps.solver.FactorySchedulingConstraintProvider;
+import com.upec.factoryscheduling.aps.solver.FactorySchedulingIncrementalScoreCalculator;
+import com.upec.factoryscheduling.aps.solver.ProcedureShiftMoveIteratorFactory;
+import com.upec.factoryscheduling.aps.solver.SameWorkCenterSwapMoveIteratorFactory;
+import com.upec.factoryscheduling.aps.solver.SolverManagerRegistry;
+import com.upec.factoryscheduling.aps.solver.TopologicalConstructionPhaseCommand;
 import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
 import org.optaplanner.core.api.solver.SolutionManager;
-import org.optaplanner.core.api.solver.SolverManager;
+import org.optaplanner.core.api.solver.SolverFactory;
 import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicPhaseConfig;
+import org.optaplanner.core.config.heuristic.selector.move.composite.UnionMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.factory.MoveIteratorFactoryConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.ChangeMoveSelectorConfig;
 import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.partitionedsearch.PartitionedSearchPhaseConfig;
 import org.optaplanner.core.config.phase.PhaseConfig;
+import org.optaplanner.core.config.phase.custom.CustomPhaseConfig;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
 import org.optaplanner.core.config.solver.EnvironmentMode;
 import org.optaplanner.core.config.solver.SolverConfig;
 import org.optaplanner.core.config.solver.termination.TerminationConfig;
@@ -16,65 +28,191 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Configuration
 public class OptaPlannerConfig {
 
+    /**
+     * 评分引擎：约束流(默认)
+     */
+    public static final String SCORE_ENGINE_CONSTRAINT_STREAMS = "constraint-streams";
+
+    /**
+     * 评分引擎：手写增量评分计算器
+     */
+    public static final String SCORE_ENGINE_INCREMENTAL = "incremental";
+
+    /**
+     * 阶段：构造启发式
+     */
+    public static final String PHASE_CONSTRUCTION_HEURISTIC = "construction-heuristic";
+
+    /**
+     * 阶段：局部搜索
+     */
+    public static final String PHASE_LOCAL_SEARCH = "local-search";
+
+    /**
+     * 阶段：按工序拓扑层级把时间槽依次排到最早有剩余容量的日历上，代替默认构造启发式
+     */
+    public static final String PHASE_TOPOLOGICAL_CONSTRUCTION = "topological-construction";
+
+    /**
+     * 阶段：按互不相关的任务/工作中心分量分区，各分区在独立线程中依次执行拓扑构造和局部搜索
+     */
+    public static final String PHASE_PARTITIONED_SEARCH = "partitioned-search";
+
+    private final SolverProperties solverProperties;
+
+    public OptaPlannerConfig(SolverProperties solverProperties) {
+        this.solverProperties = solverProperties;
+    }
+
+    /**
+     * 默认求解配置，由aps.solver.profile指定
+     */
     @Bean
     public SolverConfig solverConfig() {
+        return buildSolverConfig(solverProperties.getProfile());
+    }
+
+    /**
+     * 求解管理器注册表 - 每个求解配置一个SolverManager，求解请求可以指定使用的配置
+     */
+    @Bean
+    public SolverManagerRegistry solverManagerRegistry() {
+        return new SolverManagerRegistry(solverProperties.getProfile(), this::buildSolverConfig,
+                solverProperties::resolveProfile);
+    }
+
+    @Bean
+    public SolutionManager<FactorySchedulingSolution, HardMediumSoftScore> solutionManager(SolverConfig solverConfig) {
+        // 分数解释需要约束匹配明细，始终使用约束流，与求解所用的评分引擎无关
+        SolverConfig explainConfig = solverConfig.copyConfig()
+                .withScoreDirectorFactory(constraintStreamsConfig());
+        return SolutionManager.create(SolverFactory.create(explainConfig));
+    }
+
+    /**
+     * 按求解配置构建SolverConfig
+     *
+     * @param profileName 求解配置名称，为空时取默认配置
+     * @return 求解器配置
+     * @throws IllegalArgumentException 配置不存在或阶段名称无法识别
+     */
+    public SolverConfig buildSolverConfig(String profileName) {
+        SolverProperties.Profile profile = solverProperties.resolveProfile(profileName);
         SolverConfig solverConfig = new SolverConfig();
 
         // 设置解决方案和实体类
         solverConfig.withSolutionClass(FactorySchedulingSolution.class)
-                .withEntityClasses(Timeslot.class)
-                .withConstraintProviderClass(FactorySchedulingConstraintProvider.class);
+                .withEntityClasses(Timeslot.class);
 
-        // 设置终止条件 - 优化以适应多线程环境
-        solverConfig.withTerminationConfig(new TerminationConfig()
-                .withSecondsSpentLimit(180L)  // 增加总体时间限制以利用多线程优势
-                .withBestScoreLimit("0hard/0medium/10000soft")
-                .withUnimprovedSecondsSpentLimit(60L));  // 添加未改进时间限制，避免无效计算
+        // 设置终止条件 - spent-limit是硬上限，开启adaptive-termination时由SolveMonitor按问题规模提前结束
+        TerminationConfig terminationConfig = new TerminationConfig();
+        if (profile.getSpentLimit() != null) {
+            terminationConfig.withSpentLimit(profile.getSpentLimit());
+        }
+        if (profile.getUnimprovedSpentLimit() != null) {
+            terminationConfig.withUnimprovedSpentLimit(profile.getUnimprovedSpentLimit());
+        }
+        if (profile.getBestScoreLimit() != null && !profile.getBestScoreLimit().isEmpty()) {
+            terminationConfig.withBestScoreLimit(profile.getBestScoreLimit());
+        }
+        solverConfig.withTerminationConfig(terminationConfig);
 
-        // 配置阶段 - 使用更简单的配置
+        // 配置阶段
         List<PhaseConfig> phaseConfigList = new ArrayList<>();
-        
-        // 1. 构造启发式阶段
-        phaseConfigList.add(new ConstructionHeuristicPhaseConfig());
-        
-        // 2. 局部搜索阶段 - 简化配置
-        phaseConfigList.add(new LocalSearchPhaseConfig());
-        
+        for (String phase : profile.getPhases()) {
+            phaseConfigList.add(buildPhaseConfig(phase, profile));
+        }
         solverConfig.setPhaseConfigList(phaseConfigList);
 
-        // 设置环境模式 - 在多线程环境中使用REPRODUCIBLE确保结果可重现
-        // 注意：在生产环境中可考虑使用FASTEST，但会牺牲结果可重现性
-        solverConfig.setEnvironmentMode(EnvironmentMode.FULL_ASSERT);
-        
-        // 多线程配置 - 启用并行移动生成和评估
-        // 使用自动设置以充分利用多核CPU
-//        solverConfig.setMoveThreadCount(MOVE_THREAD_COUNT_AUTO);
-        
-        // 增加移动线程缓冲区大小以减少线程间竞争
-        solverConfig.setMoveThreadBufferSize(1024);
-        
-        // 设置随机数种子以提高多线程环境下的稳定性
-        solverConfig.setRandomSeed(42L);
+        // 设置环境模式 - FULL_ASSERT每一步都会重算分数，只应在debug配置中使用
+        solverConfig.setEnvironmentMode(profile.getEnvironmentMode());
+        if (profile.getRandomSeed() != null) {
+            solverConfig.setRandomSeed(profile.getRandomSeed());
+        }
 
+        // 设置评分引擎 - 需要在环境模式之后设置，断言模式下增量评分会与约束流逐步核对
+        solverConfig.withScoreDirectorFactory(
+                scoreDirectorFactoryConfig(solverProperties.getScoreEngine(), solverConfig.getEnvironmentMode()));
+
+        // 多线程配置 - 移动线程数及缓冲区大小
+        solverConfig.setMoveThreadCount(profile.getMoveThreadCount());
+        if (profile.getMoveThreadBufferSize() != null) {
+            solverConfig.setMoveThreadBufferSize(profile.getMoveThreadBufferSize());
+        }
         return solverConfig;
     }
 
-    @Bean
-    public SolverManager<FactorySchedulingSolution, Long> solverManager(SolverConfig solverConfig) {
-        // 创建SolverManager，使用版本兼容的方式
-        // 注意：当前OptaPlanner版本可能不支持SolverManagerConfig，使用基本创建方式
-        return SolverManager.create(solverConfig);
+    /**
+     * 按名称构建阶段配置
+     */
+    private PhaseConfig<?> buildPhaseConfig(String phase, SolverProperties.Profile profile) {
+        switch (phase) {
+            case PHASE_CONSTRUCTION_HEURISTIC:
+                return new ConstructionHeuristicPhaseConfig();
+            case PHASE_LOCAL_SEARCH:
+                return localSearchConfig();
+            case PHASE_TOPOLOGICAL_CONSTRUCTION:
+                return topologicalConstructionConfig();
+            case PHASE_PARTITIONED_SEARCH:
+                PartitionedSearchPhaseConfig partitionedSearchConfig = new PartitionedSearchPhaseConfig()
+                        .withSolutionPartitionerClass(FactorySchedulingSolutionPartitioner.class)
+                        .withPhaseConfigs(topologicalConstructionConfig(), localSearchConfig())
+                        .withRunnablePartThreadLimit(profile.getPartThreadLimit());
+                if (profile.getPartCount() != null) {
+                    partitionedSearchConfig.setSolutionPartitionerCustomProperties(
+                            Collections.singletonMap("partCount", String.valueOf(profile.getPartCount())));
+                }
+                return partitionedSearchConfig;
+            default:
+                throw new IllegalArgumentException("Unknown solver phase: " + phase);
+        }
     }
 
-    @Bean
-    public SolutionManager<FactorySchedulingSolution, HardMediumSoftScore> solutionManager(SolverManager<FactorySchedulingSolution,
-            Long> solverManager) {
-        // 使用SolverManager创建SolutionManager
-        return SolutionManager.create(solverManager);
+    /**
+     * 局部搜索：单个时间槽改变、同一工作中心内的时间槽交换，以及整体平移工序分片的移动
+     */
+    private static LocalSearchPhaseConfig localSearchConfig() {
+        return new LocalSearchPhaseConfig()
+                .withMoveSelectorConfig(new UnionMoveSelectorConfig().withMoveSelectors(
+                        new ChangeMoveSelectorConfig(),
+                        new MoveIteratorFactoryConfig().withMoveIteratorFactoryClass(SameWorkCenterSwapMoveIteratorFactory.class),
+                        new MoveIteratorFactoryConfig().withMoveIteratorFactoryClass(ProcedureShiftMoveIteratorFactory.class)));
+    }
+
+    private static CustomPhaseConfig topologicalConstructionConfig() {
+        return new CustomPhaseConfig()
+                .withCustomPhaseCommandClassList(Collections.singletonList(TopologicalConstructionPhaseCommand.class));
+    }
+
+    /**
+     * 根据配置选择评分引擎
+     * <p>incremental使用{@link FactorySchedulingIncrementalScoreCalculator}，其余取值使用约束流。
+     * 断言类环境模式下，增量评分以约束流作为断言评分，每一步都会校验两者分数一致。</p>
+     *
+     * @param scoreEngine     评分引擎
+     * @param environmentMode 环境模式
+     * @return 评分配置
+     */
+    static ScoreDirectorFactoryConfig scoreDirectorFactoryConfig(String scoreEngine, EnvironmentMode environmentMode) {
+        if (!SCORE_ENGINE_INCREMENTAL.equalsIgnoreCase(scoreEngine)) {
+            return constraintStreamsConfig();
+        }
+        ScoreDirectorFactoryConfig config = new ScoreDirectorFactoryConfig()
+                .withIncrementalScoreCalculatorClass(FactorySchedulingIncrementalScoreCalculator.class);
+        if (environmentMode != null && environmentMode.isAsserted()) {
+            config.setAssertionScoreDirectorFactory(constraintStreamsConfig());
+        }
+        return config;
+    }
+
+    private static ScoreDirectorFactoryConfig constraintStreamsConfig() {
+        return new ScoreDirectorFactoryConfig()
+                .withConstraintProviderClass(FactorySchedulingConstraintProvider.class);
     }
 }
@@ -0,0 +1,256 @@
+package com.upec.factoryscheduling.common.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.optaplanner.core.config.partitionedsearch.PartitionedSearchPhaseConfig;
+import org.optaplanner.core.config.solver.EnvironmentMode;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 排程求解配置 - 绑定application.yaml中的aps.solver
+ * <p>求解参数按命名的求解配置(profile)组织，例如production/reproducible/debug，
+ * 每个配置有自己的环境模式、终止条件、移动线程数和阶段列表。
+ * 未指定配置的求解请求使用{@link #profile}。</p>
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "aps.solver")
+public class SolverProperties {
+
+    /**
+     * 评分引擎: constraint-streams | incremental
+     */
+    private String scoreEngine = OptaPlannerConfig.SCORE_ENGINE_CONSTRAINT_STREAMS;
+
+    /**
+     * 默认求解配置名称
+     */
+    private String profile = "production";
+
+    /**
+     * 命名的求解配置
+     */
+    private Map<String, Profile> profiles = new LinkedHashMap<>();
+
+    /**
+     * 求解作业队列
+     */
+    private Queue queue = new Queue();
+
+    /**
+     * 最佳解事件发布
+     */
+    private Events events = new Events();
+
+    /**
+     * 求解检查点
+     */
+    private Checkpoint checkpoint = new Checkpoint();
+
+    /**
+     * 按名称获取求解配置
+     *
+     * @param name 配置名称，为空时取默认配置
+     * @return 求解配置
+     * @throws IllegalArgumentException 配置不存在
+     */
+    public Profile resolveProfile(String name) {
+        String profileName = name == null || name.isEmpty() ? profile : name;
+        Profile solverProfile = profiles.get(profileName);
+        if (solverProfile == null) {
+            throw new IllegalArgumentException("Unknown solver profile: " + profileName + ", available: " + profiles.keySet());
+        }
+        return solverProfile;
+    }
+
+    /**
+     * 单个求解配置
+     */
+    @Getter
+    @Setter
+    public static class Profile {
+
+        /**
+         * 环境模式，生产环境使用NON_REPRODUCIBLE或REPRODUCIBLE，FULL_ASSERT仅用于排查分数问题
+         */
+        private EnvironmentMode environmentMode = EnvironmentMode.REPRODUCIBLE;
+
+        /**
+         * 随机数种子，为空时使用求解器默认值
+         */
+        private Long randomSeed;
+
+        /**
+         * 总体时间限制
+         */
+        private Duration spentLimit = Duration.ofMinutes(3);
+
+        /**
+         * 无改进时间限制
+         */
+        private Duration unimprovedSpentLimit = Duration.ofMinutes(1);
+
+        /**
+         * 最佳分数限制，达到后立即结束
+         */
+        private String bestScoreLimit;
+
+        /**
+         * 移动线程数: NONE | AUTO | 具体线程数
+         */
+        private String moveThreadCount = SolverConfig.MOVE_THREAD_COUNT_NONE;
+
+        /**
+         * 移动线程缓冲区大小
+         */
+        private Integer moveThreadBufferSize;
+
+        /**
+         * 分区搜索同时运行的分区线程数: AUTO | UNLIMITED | 具体线程数，仅partitioned-search阶段使用
+         */
+        private String partThreadLimit = PartitionedSearchPhaseConfig.ACTIVE_THREAD_COUNT_AUTO;
+
+        /**
+         * 分区数，为空时取分区线程数，仅partitioned-search阶段使用
+         */
+        private Integer partCount;
+
+        /**
+         * 热启动：保留上次保存在aps_timeslot中的日历分配，只为新增或未分配的时间槽做构造，再继续局部搜索；
+         * 关闭时除手动时间槽外全部清空重新构造
+         */
+        private boolean warmStart;
+
+        /**
+         * 按问题规模调整的时间预算和平台期检测
+         */
+        private AdaptiveTermination adaptiveTermination = new AdaptiveTermination();
+
+        /**
+         * 阶段列表，按顺序执行: topological-construction | construction-heuristic | local-search | partitioned-search
+         */
+        private List<String> phases = new ArrayList<>(List.of(
+                OptaPlannerConfig.PHASE_TOPOLOGICAL_CONSTRUCTION, OptaPlannerConfig.PHASE_LOCAL_SEARCH));
+    }
+
+    /**
+     * 自适应终止配置
+     * <p>时间预算 = base-spent-limit + 时间槽数 × spent-limit-per-timeslot + 日历数 × spent-limit-per-maintenance，
+     * 不超过求解配置的spent-limit(仍作为硬上限)。进入局部搜索后，若最近plateau-window内最佳分数在每个分数级别上的提升
+     * 都小于plateau-threshold对应级别(阈值为0的级别有任何提升都算)，视为进入平台期并提前结束。</p>
+     * <p>两个限制都在每一步结束时检查，另有定时检查在步与步之间生效：分区搜索的父阶段只在分区改进时才走一步，
+     * 定时检查保证预算照常生效，并在整个plateau-window内没有任何改进时结束。预算从第一次开始求解起计时，
+     * 问题变更(ProblemChange)导致求解器重新开始时不重新计算。</p>
+     */
+    @Getter
+    @Setter
+    public static class AdaptiveTermination {
+
+        /**
+         * 是否启用，关闭时只使用spent-limit等固定终止条件
+         */
+        private boolean enabled;
+
+        /**
+         * 基础时间预算，同时是预算的下限
+         */
+        private Duration baseSpentLimit = Duration.ofSeconds(10);
+
+        /**
+         * 每个时间槽增加的时间预算
+         */
+        private Duration spentLimitPerTimeslot = Duration.ofMillis(100);
+
+        /**
+         * 每个工作中心日历增加的时间预算
+         */
+        private Duration spentLimitPerMaintenance = Duration.ofMillis(10);
+
+        /**
+         * 平台期检测窗口，为空时不做平台期检测
+         */
+        private Duration plateauWindow;
+
+        /**
+         * 平台期阈值，窗口内各级别的分数提升都低于该值时结束，例如0hard/10000medium/100soft
+         */
+        private String plateauThreshold = "0hard/0medium/0soft";
+    }
+
+    /**
+     * 求解作业队列配置
+     */
+    @Getter
+    @Setter
+    public static class Queue {
+
+        /**
+         * 同时运行的求解作业数，所有求解配置共用
+         */
+        private int parallelSolverCount = 2;
+
+        /**
+         * 排队作业数上限，超出时拒绝新的求解请求
+         */
+        private int capacity = 20;
+
+        /**
+         * 同一问题ID已在排队时的处理方式
+         */
+        private DuplicatePolicy duplicatePolicy = DuplicatePolicy.COALESCE;
+    }
+
+    /**
+     * 最佳解事件发布配置
+     */
+    @Getter
+    @Setter
+    public static class Events {
+
+        /**
+         * 发布间隔，间隔内找到的多个最佳解只发布最新的一个
+         */
+        private Duration publishInterval = Duration.ofSeconds(1);
+    }
+
+    /**
+     * 求解检查点配置
+     */
+    @Getter
+    @Setter
+    public static class Checkpoint {
+
+        /**
+         * 是否在求解过程中保存检查点
+         */
+        private boolean enabled = true;
+
+        /**
+         * 保存间隔，按发布的最佳解快照保存，间隔内的快照跳过；最终解总是保存
+         */
+        private Duration interval = Duration.ofSeconds(30);
+    }
+
+    /**
+     * 重复求解请求的处理方式
+     */
+    public enum DuplicatePolicy {
+        /**
+         * 合并到已排队的作业，使用最新的订单列表、求解配置和优先级
+         */
+        COALESCE,
+        /**
+         * 拒绝新的请求
+         */
+        REJECT
+    }
+}
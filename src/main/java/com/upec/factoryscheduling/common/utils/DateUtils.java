@@ -5,9 +5,15 @@ import org.springframework.util.StringUtils;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 
 public class DateUtils {
 
+    /**
+     * 规划分钟数的空值 - 对应的LocalDateTime为null
+     */
+    public static final int NO_MINUTE = Integer.MIN_VALUE;
+
     public static LocalDateTime parseDateTime(String date) {
         if (!StringUtils.hasLength(date)) {
             return null;
@@ -31,4 +37,19 @@ public class DateUtils {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         return LocalDate.parse(date.substring(0, 10), formatter);
     }
+
+    /**
+     * 计算时间点相对规划基准时间的分钟数
+     * <p>约束计算只使用整数分钟，避免在评分热路径上创建Duration/LocalDateTime对象</p>
+     *
+     * @param epoch    规划基准时间
+     * @param dateTime 时间点
+     * @return 相对基准时间的分钟数，时间点为null时返回{@link #NO_MINUTE}
+     */
+    public static int toEpochMinute(LocalDateTime epoch, LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return NO_MINUTE;
+        }
+        return (int) ChronoUnit.MINUTES.between(epoch, dateTime);
+    }
 }
@@ -3,32 +3,81 @@ package com.upec.factoryscheduling.mes.entity;
 import lombok.Getter;
 import lombok.Setter;
 
+import javax.persistence.Basic;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.Lob;
 import javax.persistence.Table;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 
+/**
+ * 排程求解作业，每个问题ID一条记录
+ * <p>求解过程中定期保存最佳解的日历分配检查点(时间槽ID→日历ID)，JVM重启后可从最近的检查点热启动继续求解。</p>
+ */
 @Getter
 @Setter
 @Entity
 @Table(name = "APS_SCHEDULING_WORK")
 public class ApsSchedulingWork implements Serializable {
+
+    public static final String STATUS_SOLVING = "SOLVING";
+    public static final String STATUS_FINISHED = "FINISHED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 问题ID
+     */
     @Id
     @Column(name = "ID", nullable = false, length = 30)
     private String id;
 
+    /**
+     * 本次求解的标识，每次开始求解时重新生成
+     */
     @Column(name = "SOLVE_ID", length = 30)
     private String solveId;
 
     @Column(name = "CREATE_TIME", length = 20)
     private LocalDateTime createTime;
 
+    /**
+     * SOLVING | FINISHED | FAILED
+     */
     @Column(name = "SOLVE_STATUS", length = 50)
     private String solveStatus;
 
+    /**
+     * 检查点序号，本次求解内递增
+     */
     @Column(name = "VERSION", length = 20)
     private String version;
 
+    @Column(name = "PROFILE", length = 50)
+    private String profile;
+
+    /**
+     * 参与求解的任务编号，逗号分隔
+     */
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "TASK_NOS")
+    private String taskNos;
+
+    @Column(name = "SCORE", length = 100)
+    private String score;
+
+    /**
+     * 检查点：已分配时间槽的日历，每行一个"时间槽ID=日历ID"
+     */
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "ASSIGNMENTS")
+    private String assignments;
+
+    @Column(name = "CHECKPOINT_TIME", length = 20)
+    private LocalDateTime checkpointTime;
+
 }
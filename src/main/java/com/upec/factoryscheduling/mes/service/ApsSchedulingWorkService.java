@@ -1,7 +1,182 @@
 package com.upec.factoryscheduling.mes.service;
 
+import com.upec.factoryscheduling.aps.response.BestSolutionSnapshot;
+import com.upec.factoryscheduling.common.configuration.SolverProperties;
+import com.upec.factoryscheduling.common.utils.RandomFun;
+import com.upec.factoryscheduling.mes.entity.ApsSchedulingWork;
+import com.upec.factoryscheduling.mes.repository.ApsSchedulingWorkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 排程求解作业与检查点
+ * <p>开始求解时登记作业(求解配置、任务编号)；求解过程中监听{@link BestSolutionSnapshot}，
+ * 每隔aps.solver.checkpoint.interval把最佳解的日历分配和分数保存为检查点，最终解总是保存。
+ * 检查点只有一行文本，不写aps_timeslot，保存代价与时间槽数成正比且不受求解频率影响。</p>
+ */
+@Slf4j
 @Service
 public class ApsSchedulingWorkService {
+
+    private ApsSchedulingWorkRepository repository;
+
+    private SolverProperties solverProperties;
+
+    /**
+     * 每个问题上次保存检查点的时刻(System.nanoTime)
+     */
+    private final Map<Long, Long> lastCheckpointNanos = new ConcurrentHashMap<>();
+
+    @Autowired
+    public void setRepository(ApsSchedulingWorkRepository repository) {
+        this.repository = repository;
+    }
+
+    @Autowired
+    public void setSolverProperties(SolverProperties solverProperties) {
+        this.solverProperties = solverProperties;
+    }
+
+    /**
+     * 登记开始求解，保留已有的检查点，求解在第一个检查点之前中断时仍可从上次的检查点恢复
+     *
+     * @param problemId 问题ID
+     * @param profile   求解配置名称
+     * @param taskNos   任务编号列表
+     */
+    @Transactional("oracleTransactionManager")
+    public void start(Long problemId, String profile, List<String> taskNos) {
+        ApsSchedulingWork work = repository.findById(problemId.toString()).orElseGet(ApsSchedulingWork::new);
+        work.setId(problemId.toString());
+        work.setSolveId(RandomFun.getInstance().getRandom());
+        work.setCreateTime(LocalDateTime.now());
+        work.setSolveStatus(ApsSchedulingWork.STATUS_SOLVING);
+        work.setVersion("0");
+        work.setProfile(profile);
+        work.setTaskNos(taskNos == null ? null : String.join(",", taskNos));
+        repository.save(work);
+        lastCheckpointNanos.put(problemId, System.nanoTime());
+    }
+
+    /**
+     * 求解出错，保留最近的检查点
+     *
+     * @param problemId 问题ID
+     */
+    @Transactional("oracleTransactionManager")
+    public void fail(Long problemId) {
+        lastCheckpointNanos.remove(problemId);
+        repository.findById(problemId.toString()).ifPresent(work -> {
+            work.setSolveStatus(ApsSchedulingWork.STATUS_FAILED);
+            repository.save(work);
+        });
+    }
+
+    /**
+     * 按间隔保存最佳解检查点，在最佳解发布线程上执行
+     *
+     * @param snapshot 最佳解快照
+     */
+    @EventListener
+    @Transactional("oracleTransactionManager")
+    public void onBestSolution(BestSolutionSnapshot snapshot) {
+        if (!solverProperties.getCheckpoint().isEnabled() || snapshot.getAssignments() == null) {
+            return;
+        }
+        Long problemId = snapshot.getProblemId();
+        long now = System.nanoTime();
+        Long last = lastCheckpointNanos.get(problemId);
+        if (!snapshot.isFinished() && last != null
+                && now - last < solverProperties.getCheckpoint().getInterval().toNanos()) {
+            return;
+        }
+        ApsSchedulingWork work = repository.findById(problemId.toString()).orElseGet(() -> {
+            ApsSchedulingWork created = new ApsSchedulingWork();
+            created.setId(problemId.toString());
+            created.setCreateTime(LocalDateTime.now());
+            created.setVersion("0");
+            return created;
+        });
+        work.setSolveStatus(snapshot.isFinished() ? ApsSchedulingWork.STATUS_FINISHED : ApsSchedulingWork.STATUS_SOLVING);
+        work.setVersion(String.valueOf(Long.parseLong(Optional.ofNullable(work.getVersion()).orElse("0")) + 1));
+        work.setScore(snapshot.getScore());
+        work.setAssignments(encode(snapshot.getAssignments()));
+        work.setCheckpointTime(LocalDateTime.now());
+        repository.save(work);
+        if (snapshot.isFinished()) {
+            lastCheckpointNanos.remove(problemId);
+        } else {
+            lastCheckpointNanos.put(problemId, now);
+        }
+        log.debug("Checkpoint {} of problem {} saved: {} assignments, score {}",
+                work.getVersion(), problemId, snapshot.getAssignments().size(), snapshot.getScore());
+    }
+
+    /**
+     * 获取问题的求解作业
+     *
+     * @param problemId 问题ID
+     * @return 求解作业，不存在时为空
+     */
+    public Optional<ApsSchedulingWork> findByProblemId(Long problemId) {
+        return repository.findById(problemId.toString());
+    }
+
+    /**
+     * 获取问题最近检查点的日历分配
+     *
+     * @param problemId 问题ID
+     * @return 时间槽ID→日历ID，没有检查点时为空
+     */
+    public Optional<Map<String, String>> findCheckpointAssignments(Long problemId) {
+        return repository.findById(problemId.toString())
+                .map(ApsSchedulingWork::getAssignments)
+                .filter(StringUtils::hasText)
+                .map(ApsSchedulingWorkService::decode);
+    }
+
+    /**
+     * 求解作业登记的任务编号
+     *
+     * @param work 求解作业
+     * @return 任务编号列表
+     */
+    public static List<String> taskNos(ApsSchedulingWork work) {
+        if (!StringUtils.hasText(work.getTaskNos())) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(work.getTaskNos().split(",")).collect(Collectors.toList());
+    }
+
+    private static String encode(Map<String, String> assignments) {
+        StringBuilder builder = new StringBuilder(assignments.size() * 32);
+        assignments.forEach((timeslotId, maintenanceId) ->
+                builder.append(timeslotId).append('=').append(maintenanceId).append('\n'));
+        return builder.toString();
+    }
+
+    private static Map<String, String> decode(String assignments) {
+        Map<String, String> decoded = new HashMap<>();
+        for (String line : assignments.split("\n")) {
+            int separator = line.indexOf('=');
+            if (separator > 0) {
+                decoded.put(line.substring(0, separator), line.substring(separator + 1));
+            }
+        }
+        return decoded;
+    }
 }
@@ -0,0 +1,188 @@
+package com.upec.factoryscheduling.aps.solution;
+
+import com.upec.factoryscheduling.aps.entity.Procedure;
+import com.upec.factoryscheduling.aps.entity.Task;
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenter;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分区拆分的校验
+ * <p>互不相关的任务/工作中心分量拆到不同分区；共用工作中心编码、或通过固定在其他工作中心日历上的时间槽
+ * 关联的分量必须留在同一分区，否则容量和工序顺序约束会跨分区失效。每个分区只带本分区的日历和前后序关系。</p>
+ */
+class FactorySchedulingSolutionPartitionerTest {
+
+    private final WorkCenter machine1 = workCenter("WC1", "C1");
+    private final WorkCenter machine2 = workCenter("WC2", "C2");
+    private final WorkCenterMaintenance maintenance1 = maintenance("M1", machine1);
+    private final WorkCenterMaintenance maintenance2 = maintenance("M2", machine2);
+
+    @Test
+    void independentComponentsBecomeSeparateParts() {
+        Procedure first = procedure("P1", task("T1"), machine1);
+        Procedure second = procedure("P2", first.getTask(), machine1);
+        Procedure other = procedure("P3", task("T2"), machine2);
+        FactorySchedulingSolution solution = solution(
+                Arrays.asList(slice("S1", first, null), slice("S2", second, null), slice("S3", other, null)),
+                Arrays.asList(maintenance1, maintenance2));
+        solution.setProcedureLinks(Collections.singletonList(new ProcedureLink("P1", "P2")));
+
+        List<FactorySchedulingSolution> parts = split(solution, 2);
+
+        assertEquals(2, parts.size());
+        FactorySchedulingSolution part1 = parts.get(0);
+        FactorySchedulingSolution part2 = parts.get(1);
+        assertEquals(Arrays.asList("S1", "S2"), timeslotIds(part1));
+        assertEquals(Collections.singletonList(maintenance1), part1.getMaintenances());
+        assertEquals(solution.getProcedureLinks(), part1.getProcedureLinks());
+        assertEquals(Collections.singletonList("S3"), timeslotIds(part2));
+        assertEquals(Collections.singletonList(maintenance2), part2.getMaintenances());
+        assertEquals(Collections.emptyList(), part2.getProcedureLinks());
+        // 分区中的时间槽是克隆对象
+        assertNotSame(solution.getTimeslots().get(0), part1.getTimeslots().get(0));
+    }
+
+    @Test
+    void workCentersSharingACodeStayTogether() {
+        WorkCenter sameCode = workCenter("WC1B", "C1");
+        WorkCenterMaintenance sameCodeMaintenance = maintenance("M1B", sameCode);
+        FactorySchedulingSolution solution = solution(
+                Arrays.asList(slice("S1", procedure("P1", task("T1"), machine1), null),
+                        slice("S2", procedure("P2", task("T2"), sameCode), null),
+                        slice("S3", procedure("P3", task("T3"), machine2), null)),
+                Arrays.asList(maintenance1, sameCodeMaintenance, maintenance2));
+
+        List<FactorySchedulingSolution> parts = split(solution, 3);
+
+        assertEquals(2, parts.size());
+        assertEquals(Arrays.asList("S1", "S2"), timeslotIds(parts.get(0)));
+        assertEquals(Arrays.asList(maintenance1, sameCodeMaintenance), parts.get(0).getMaintenances());
+        assertEquals(Collections.singletonList("S3"), timeslotIds(parts.get(1)));
+        assertEquals(Collections.singletonList(maintenance2), parts.get(1).getMaintenances());
+    }
+
+    @Test
+    void pinnedSliceOnAnotherWorkCenterJoinsBothComponents() {
+        Timeslot pinned = slice("S1", procedure("P1", task("T1"), machine1), maintenance2);
+        pinned.setManual(true);
+        FactorySchedulingSolution solution = solution(
+                Arrays.asList(pinned, slice("S2", procedure("P2", task("T2"), machine2), null)),
+                Arrays.asList(maintenance1, maintenance2));
+
+        List<FactorySchedulingSolution> parts = split(solution, 2);
+
+        assertEquals(1, parts.size());
+        assertEquals(Arrays.asList("S1", "S2"), timeslotIds(parts.get(0)));
+        assertEquals(Arrays.asList(maintenance1, maintenance2), parts.get(0).getMaintenances());
+    }
+
+    @Test
+    void largestComponentsArePackedFirstWithoutSplittingThem() {
+        WorkCenter machine3 = workCenter("WC3", "C3");
+        List<Timeslot> timeslots = new ArrayList<>();
+        timeslots.addAll(component("T1", machine1, 3));
+        timeslots.addAll(component("T2", machine2, 2));
+        timeslots.addAll(component("T3", machine3, 2));
+        FactorySchedulingSolution solution = solution(timeslots,
+                Arrays.asList(maintenance1, maintenance2, maintenance("M3", machine3)));
+
+        List<FactorySchedulingSolution> parts = split(solution, 2);
+
+        // 3个时间槽的分量先装入，两个2个时间槽的分量依次装入当前最小的分区
+        assertEquals(2, parts.size());
+        assertEquals(Collections.singleton("T1"), taskNos(parts.get(0)));
+        assertEquals(new HashSet<>(Arrays.asList("T2", "T3")), taskNos(parts.get(1)));
+        assertEquals(2, parts.get(1).getMaintenances().size());
+    }
+
+    private static List<FactorySchedulingSolution> split(FactorySchedulingSolution solution, int partCount) {
+        @SuppressWarnings("unchecked")
+        ScoreDirector<FactorySchedulingSolution> scoreDirector = mock(ScoreDirector.class);
+        when(scoreDirector.getWorkingSolution()).thenReturn(solution);
+        FactorySchedulingSolutionPartitioner partitioner = new FactorySchedulingSolutionPartitioner();
+        partitioner.setPartCount(partCount);
+        List<FactorySchedulingSolution> parts = partitioner.splitWorkingSolution(scoreDirector, null);
+        // 分区顺序取决于分量大小和哈希顺序，按第一个时间槽排序后比较
+        parts.sort((left, right) -> timeslotIds(left).get(0).compareTo(timeslotIds(right).get(0)));
+        return parts;
+    }
+
+    private static List<Timeslot> component(String taskNo, WorkCenter workCenter, int size) {
+        Procedure procedure = procedure(taskNo + "-P", task(taskNo), workCenter);
+        List<Timeslot> timeslots = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            timeslots.add(slice(taskNo + "-S" + i, procedure, null));
+        }
+        return timeslots;
+    }
+
+    private static List<String> timeslotIds(FactorySchedulingSolution part) {
+        return part.getTimeslots().stream().map(Timeslot::getId).sorted().collect(Collectors.toList());
+    }
+
+    private static Set<String> taskNos(FactorySchedulingSolution part) {
+        return part.getTimeslots().stream().map(timeslot -> timeslot.getProcedure().getTask().getTaskNo())
+                .collect(Collectors.toSet());
+    }
+
+    private static FactorySchedulingSolution solution(List<Timeslot> timeslots, List<WorkCenterMaintenance> maintenances) {
+        FactorySchedulingSolution solution = new FactorySchedulingSolution(timeslots, maintenances);
+        solution.setProblemId(1L);
+        return solution;
+    }
+
+    private static WorkCenter workCenter(String id, String code) {
+        WorkCenter workCenter = new WorkCenter();
+        workCenter.setId(id);
+        workCenter.setWorkCenterCode(code);
+        return workCenter;
+    }
+
+    private static WorkCenterMaintenance maintenance(String id, WorkCenter workCenter) {
+        WorkCenterMaintenance maintenance = new WorkCenterMaintenance(workCenter, LocalDate.of(2025, 1, 6), 480, null);
+        maintenance.setId(id);
+        return maintenance;
+    }
+
+    private static Task task(String taskNo) {
+        Task task = new Task();
+        task.setTaskNo(taskNo);
+        return task;
+    }
+
+    private static Procedure procedure(String id, Task task, WorkCenter workCenter) {
+        Procedure procedure = new Procedure();
+        procedure.setId(id);
+        procedure.setTask(task);
+        procedure.setWorkCenter(workCenter);
+        return procedure;
+    }
+
+    private static Timeslot slice(String id, Procedure procedure, WorkCenterMaintenance maintenance) {
+        Timeslot timeslot = new Timeslot();
+        timeslot.setId(id);
+        timeslot.setProcedure(procedure);
+        timeslot.setIndex(1);
+        timeslot.setTotal(1);
+        timeslot.setDuration(60);
+        timeslot.setMaintenance(maintenance);
+        return timeslot;
+    }
+}
@@ -0,0 +1,119 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Order;
+import com.upec.factoryscheduling.aps.entity.Procedure;
+import com.upec.factoryscheduling.aps.entity.Task;
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenter;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.PlanningClock;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试用调度问题生成器
+ * <p>按时间槽数量生成已初始化的解决方案：每个任务4~6道工序，工序按顺序连接并带少量跨工序分支，
+ * 每道工序1~3个分片，第一个工作中心为外协(PM10W200)。时间槽随机分配到本工作中心的日历上，
+ * 保证所有约束都有匹配。相同参数生成的数据完全相同。</p>
+ * <p>供评分速度基准(jmh配置)和增量评分一致性测试使用；求解器基准和规模测试的未初始化数据集见{@link SyntheticProblemGenerator}。</p>
+ */
+public final class BenchmarkSolutions {
+
+    private static final LocalDate EPOCH = LocalDate.of(2025, 1, 1);
+    private static final int HORIZON_DAYS = 60;
+    private static final int TIMESLOTS_PER_WORK_CENTER = 2000;
+
+    private BenchmarkSolutions() {
+    }
+
+    public static FactorySchedulingSolution generate(int timeslotCount, long seed) {
+        Random random = new Random(seed);
+        List<WorkCenter> workCenters = new ArrayList<>();
+        int workCenterCount = Math.max(4, timeslotCount / TIMESLOTS_PER_WORK_CENTER);
+        for (int i = 0; i < workCenterCount; i++) {
+            WorkCenter workCenter = new WorkCenter();
+            workCenter.setId("WC" + i);
+            workCenter.setWorkCenterCode(i == 0 ? "PM10W200" : "WC" + i);
+            workCenters.add(workCenter);
+        }
+        List<WorkCenterMaintenance> maintenances = new ArrayList<>();
+        Map<String, List<WorkCenterMaintenance>> maintenancesByWorkCenter = new HashMap<>();
+        for (WorkCenter workCenter : workCenters) {
+            for (int day = 0; day < HORIZON_DAYS; day++) {
+                WorkCenterMaintenance maintenance = new WorkCenterMaintenance(workCenter, EPOCH.plusDays(day), 480, null);
+                maintenance.setId(workCenter.getId() + "_" + day);
+                maintenance.setStartTime(LocalTime.of(8, 0));
+                maintenance.setEndTime(LocalTime.of(16, 0));
+                maintenance.setUsageTime(random.nextInt(4) == 0 ? 120 : 0);
+                maintenance.setStatus("Active");
+                maintenances.add(maintenance);
+                maintenancesByWorkCenter.computeIfAbsent(workCenter.getId(), k -> new ArrayList<>()).add(maintenance);
+            }
+        }
+        Order order = new Order();
+        order.setOrderNo("BENCH");
+        order.setPlanStartDate(EPOCH);
+        order.setPlanEndDate(EPOCH.plusDays(HORIZON_DAYS));
+        List<Timeslot> timeslots = new ArrayList<>(timeslotCount);
+        for (int t = 0; timeslots.size() < timeslotCount; t++) {
+            Task task = new Task();
+            task.setTaskNo("T" + t);
+            task.setPriority(1 + random.nextInt(5));
+            task.setPlanStartDate(EPOCH.plusDays(random.nextInt(HORIZON_DAYS / 2)));
+            if (random.nextInt(3) == 0) {
+                task.setFactStartDate(task.getPlanStartDate().atTime(8, 0));
+            }
+            List<Procedure> procedures = new ArrayList<>();
+            int procedureCount = 4 + random.nextInt(3);
+            for (int p = 0; p < procedureCount; p++) {
+                Procedure procedure = new Procedure();
+                procedure.setId(task.getTaskNo() + "_" + (p + 1));
+                procedure.setTask(task);
+                procedure.setOrder(order);
+                procedure.setProcedureNo((p + 1) * 10);
+                procedure.setIndex(p + 1);
+                procedure.setWorkCenter(workCenters.get(random.nextInt(workCenters.size())));
+                procedure.setPlanEndDate(task.getPlanStartDate().plusDays(5 + random.nextInt(20)));
+                procedure.setNextProcedureNo(new ArrayList<>());
+                procedures.add(procedure);
+            }
+            for (int p = 0; p < procedureCount - 1; p++) {
+                link(procedures.get(p), procedures.get(p + 1));
+                if (p + 2 < procedureCount && random.nextInt(4) == 0) {
+                    link(procedures.get(p), procedures.get(p + 2));
+                }
+            }
+            for (Procedure procedure : procedures) {
+                int total = 1 + random.nextInt(3);
+                for (int index = 1; index <= total && timeslots.size() < timeslotCount; index++) {
+                    Timeslot timeslot = new Timeslot();
+                    timeslot.setId(procedure.getId() + "_" + index);
+                    timeslot.setProcedure(procedure);
+                    timeslot.setIndex(index);
+                    timeslot.setTotal(total);
+                    timeslot.setProcedureIndex(procedure.getIndex());
+                    timeslot.setDuration(60 + random.nextInt(240));
+                    timeslot.setPriority(task.getPriority());
+                    List<WorkCenterMaintenance> range = maintenancesByWorkCenter.get(procedure.getWorkCenter().getId());
+                    timeslot.setMaintenance(range.get(random.nextInt(range.size())));
+                    timeslots.add(timeslot);
+                }
+            }
+        }
+        FactorySchedulingSolution solution = new FactorySchedulingSolution(timeslots, maintenances);
+        solution.initializeProblemFacts(new PlanningClock(EPOCH.atStartOfDay(), EPOCH.plusDays(3).atTime(10, 0)));
+        return solution;
+    }
+
+    private static void link(Procedure procedure, Procedure next) {
+        procedure.addNextProcedure(next);
+        procedure.getNextProcedureNo().add(next.getProcedureNo());
+    }
+}
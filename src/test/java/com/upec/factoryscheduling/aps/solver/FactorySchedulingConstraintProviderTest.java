@@ -0,0 +1,319 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Procedure;
+import com.upec.factoryscheduling.aps.entity.Task;
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenter;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.PlanningClock;
+import com.upec.factoryscheduling.aps.solution.ProcedureLink;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.test.api.score.stream.ConstraintVerifier;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static com.upec.factoryscheduling.aps.solver.FactorySchedulingConstraintProvider.NO_MINUTE;
+
+/**
+ * 各约束的单独校验
+ * <p>每个约束在手工构造的小数据上校验匹配权重，分钟数字段直接设置，不经过规划时钟换算。
+ * 包括未分配(NO_MINUTE)的时间槽、没有实际开始时间的任务、外协前后序和分片序号不连续等边界情况。</p>
+ */
+class FactorySchedulingConstraintProviderTest {
+
+    private static final int DAY = 24 * 60;
+
+    private final ConstraintVerifier<FactorySchedulingConstraintProvider, FactorySchedulingSolution> constraintVerifier =
+            ConstraintVerifier.build(new FactorySchedulingConstraintProvider(), FactorySchedulingSolution.class, Timeslot.class);
+
+    private final WorkCenter machine = workCenter("WC1", "WC1");
+    private final WorkCenter otherMachine = workCenter("WC2", "WC2");
+    private final WorkCenter outsourcing = workCenter("OUT", CapacityBucketCollector.OUTSOURCING_WORK_CENTER_CODE);
+    private final Task task = task("T1", NO_MINUTE, NO_MINUTE);
+
+    // ============ 硬约束 ============
+
+    @Test
+    void workCenterMismatchIsPenalized() {
+        Procedure procedure = procedure("P1", task, machine, 10, 1);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::hardWorkCenterMatch)
+                .given(slice("S1", procedure, 1, 1, 60, maintenance("M2", otherMachine, 480, 0), 0))
+                .penalizesBy(10000);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::hardWorkCenterMatch)
+                .given(slice("S1", procedure, 1, 1, 60, maintenance("M1", machine, 480, 0), 0),
+                        unassigned("S2", procedure, 2, 2, 60))
+                .penalizesBy(0);
+    }
+
+    @Test
+    void capacityExceededIsPenalizedWithoutOutsourcing() {
+        WorkCenterMaintenance maintenance = maintenance("M1", machine, 480, 60);
+        Procedure procedure = procedure("P1", task, machine, 10, 1);
+        // 300 + 200 + 已占用60 - 容量480 = 超出80分钟
+        constraintVerifier.verifyThat((provider, factory) -> provider.hardCapacityExceeded(provider.capacityBuckets(factory)))
+                .given(maintenance,
+                        slice("S1", procedure, 1, 2, 300, maintenance, 0),
+                        slice("S2", procedure, 2, 2, 200, maintenance, 300))
+                .penalizesBy(80 * 1000);
+        // 外协分片不计入容量
+        WorkCenterMaintenance outsourcingMaintenance = maintenance("M2", outsourcing, 480, 0);
+        Procedure outsourcingProcedure = procedure("P2", task, outsourcing, 20, 2);
+        constraintVerifier.verifyThat((provider, factory) -> provider.hardCapacityExceeded(provider.capacityBuckets(factory)))
+                .given(outsourcingMaintenance, slice("S3", outsourcingProcedure, 1, 1, 600, outsourcingMaintenance, 0))
+                .penalizesBy(0);
+    }
+
+    @Test
+    void outsourcingMustStartWhenPreviousProcedureEnds() {
+        Procedure previous = procedure("P1", task, machine, 10, 1);
+        Procedure outsourcingProcedure = procedure("P2", task, outsourcing, 20, 2);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::hardOutsourcingProcedurePreviousTimeConstraint)
+                .given(slice("S1", previous, 1, 1, 500, null, 0),
+                        slice("S2", outsourcingProcedure, 1, 1, 60, null, 600))
+                .penalizesBy(10000);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::hardOutsourcingProcedurePreviousTimeConstraint)
+                .given(slice("S1", previous, 1, 1, 500, null, 100),
+                        slice("S2", outsourcingProcedure, 1, 1, 60, null, 600))
+                .penalizesBy(0);
+        // 前序日历不在规划时钟内
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::hardOutsourcingProcedurePreviousTimeConstraint)
+                .given(slice("S1", previous, 1, 1, 500, null, NO_MINUTE),
+                        slice("S2", outsourcingProcedure, 1, 1, 60, null, 600))
+                .penalizesBy(0);
+    }
+
+    @Test
+    void outsourcingMustEndWhenNextProcedureStarts() {
+        Procedure outsourcingProcedure = procedure("P1", task, outsourcing, 10, 1);
+        Procedure next = procedure("P2", task, machine, 20, 2);
+        ProcedureLink link = new ProcedureLink("P1", "P2");
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::hardOutsourcingProcedureNextTimeConstraint)
+                .given(link, slice("S1", outsourcingProcedure, 1, 1, 600, null, 0),
+                        slice("S2", next, 1, 1, 60, null, 700))
+                .penalizesBy(10000);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::hardOutsourcingProcedureNextTimeConstraint)
+                .given(link, slice("S1", outsourcingProcedure, 1, 1, 600, null, 0),
+                        slice("S2", next, 1, 1, 60, null, 600))
+                .penalizesBy(0);
+        // 后序日历不在规划时钟内；没有前后序关系
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::hardOutsourcingProcedureNextTimeConstraint)
+                .given(link, slice("S1", outsourcingProcedure, 1, 1, 600, null, 0),
+                        slice("S2", next, 1, 1, 60, null, NO_MINUTE))
+                .penalizesBy(0);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::hardOutsourcingProcedureNextTimeConstraint)
+                .given(slice("S1", outsourcingProcedure, 1, 1, 600, null, 0),
+                        slice("S2", next, 1, 1, 60, null, 700))
+                .penalizesBy(0);
+    }
+
+    // ============ 中等约束 ============
+
+    @Test
+    void successorStartingBeforePredecessorEndsIsPenalized() {
+        Procedure first = procedure("P1", task, machine, 10, 1);
+        Procedure second = procedure("P2", task, machine, 20, 2);
+        ProcedureLink link = new ProcedureLink("P1", "P2");
+        // 前序结束600，后序开始500：提前100分钟
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::mediumProcedureSequence)
+                .given(link, slice("S1", first, 1, 1, 600, null, 0), slice("S2", second, 1, 1, 60, null, 500))
+                .penalizesBy(100 * 100);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::mediumProcedureSequence)
+                .given(link, slice("S1", first, 1, 1, 600, null, 0), slice("S2", second, 1, 1, 60, null, 700))
+                .penalizesBy(0);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::mediumProcedureSequence)
+                .given(link, slice("S1", first, 1, 1, 600, null, 0), slice("S2", second, 1, 1, 60, null, NO_MINUTE))
+                .penalizesBy(0);
+    }
+
+    @Test
+    void slicesOutOfOrderArePenalized() {
+        Procedure procedure = procedure("P1", task, machine, 10, 1);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::mediumProcedureSliceSequence)
+                .given(slice("S1", procedure, 1, 3, 600, null, 0), slice("S2", procedure, 2, 3, 60, null, 500))
+                .penalizesBy(500);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::mediumProcedureSliceSequence)
+                .given(slice("S1", procedure, 1, 3, 600, null, 0), slice("S2", procedure, 2, 3, 60, null, 600))
+                .penalizesBy(500);
+        // 分片序号不连续时不比较
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::mediumProcedureSliceSequence)
+                .given(slice("S1", procedure, 1, 4, 600, null, 0), slice("S3", procedure, 3, 4, 60, null, 500))
+                .penalizesBy(0);
+    }
+
+    @Test
+    void startBeforeFactStartIsPenalizedPerDay() {
+        Task started = task("T2", 3 * DAY, NO_MINUTE);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::mediumOrderDateConstraint)
+                .given(slice("S1", procedure("P1", started, machine, 10, 1), 1, 1, 60, null, 0))
+                .penalizesBy(3 * 100);
+        // 任务没有实际开始时间
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::mediumOrderDateConstraint)
+                .given(slice("S1", procedure("P1", task, machine, 10, 1), 1, 1, 60, null, 0))
+                .penalizesBy(0);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::mediumOrderDateConstraint)
+                .given(slice("S1", procedure("P1", started, machine, 10, 1), 1, 1, 60, null, NO_MINUTE))
+                .penalizesBy(0);
+    }
+
+    // ============ 软约束 ============
+
+    @Test
+    void earlyCompletionIsRewardedPerDay() {
+        Procedure procedure = procedure("P1", task, machine, 10, 1);
+        procedure.setPlanEndMinute(5 * DAY);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::softEarlyCompletion)
+                .given(slice("S1", procedure, 1, 1, 60, null, 2 * DAY - 60))
+                .rewardsWith(3 * 10);
+        Procedure withoutPlanEnd = procedure("P2", task, machine, 20, 2);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::softEarlyCompletion)
+                .given(slice("S2", withoutPlanEnd, 1, 1, 60, null, 0))
+                .rewardsWith(0);
+    }
+
+    @Test
+    void onTimeStartOfFirstProcedureIsRewarded() {
+        Task planned = task("T2", NO_MINUTE, 480);
+        Procedure first = procedure("P1", planned, machine, 10, 1);
+        Procedure second = procedure("P2", planned, machine, 20, 2);
+        // 晚2小时开始
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::softOnTimeStart)
+                .given(slice("S1", first, 1, 1, 60, null, 600), slice("S2", second, 1, 1, 60, null, 480))
+                .rewardsWith(10 * 3);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::softOnTimeStart)
+                .given(slice("S1", first, 1, 1, 60, null, 480 + 6 * 60))
+                .rewardsWith(0);
+    }
+
+    @Test
+    void highPriorityFinishingWithinAWeekIsRewarded() {
+        PlanningClock clock = new PlanningClock(LocalDate.of(2025, 1, 6).atStartOfDay(),
+                LocalDateTime.of(2025, 1, 6, 0, 0));
+        Procedure procedure = procedure("P1", task, machine, 10, 1);
+        Timeslot urgent = slice("S1", procedure, 1, 2, 60, null, 2 * DAY);
+        urgent.setPriority(1);
+        Timeslot normal = slice("S2", procedure, 2, 2, 60, null, 2 * DAY);
+        normal.setPriority(4);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::softHighPriorityFirst)
+                .given(clock, urgent, normal)
+                .rewardsWith(3 * 10 * 2);
+        Timeslot late = slice("S3", procedure, 1, 1, 60, null, 9 * DAY);
+        late.setPriority(1);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::softHighPriorityFirst)
+                .given(clock, late)
+                .rewardsWith(0);
+    }
+
+    @Test
+    void loadCloseToAverageIsRewarded() {
+        Procedure procedure = procedure("P1", task, machine, 10, 1);
+        // 偏差1000分钟，允许偏差3600分钟
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::softBalancedLoad)
+                .given(slice("S1", procedure, 1, 1, FactorySchedulingConstraintProvider.AVERAGE_DAILY_LOAD - 1000, null, NO_MINUTE))
+                .rewardsWith((3600 - 1000) / 100);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::softBalancedLoad)
+                .given(slice("S1", procedure, 1, 1, 60, null, NO_MINUTE))
+                .rewardsWith(0);
+    }
+
+    @Test
+    void continuousSlicesAreRewarded() {
+        Procedure procedure = procedure("P1", task, machine, 10, 1);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::softContinuousSlices)
+                .given(slice("S1", procedure, 1, 3, 600, null, 0), slice("S2", procedure, 2, 3, 60, null, 620))
+                .rewardsWith(10 * 3);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::softContinuousSlices)
+                .given(slice("S1", procedure, 1, 3, 600, null, 0), slice("S2", procedure, 2, 3, 60, null, 650))
+                .rewardsWith(10);
+        // 分片序号不连续；后一分片未分配日历
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::softContinuousSlices)
+                .given(slice("S1", procedure, 1, 4, 600, null, 0), slice("S3", procedure, 3, 4, 60, null, 600))
+                .rewardsWith(0);
+        constraintVerifier.verifyThat(FactorySchedulingConstraintProvider::softContinuousSlices)
+                .given(slice("S1", procedure, 1, 3, 600, null, 0), unassigned("S2", procedure, 2, 3, 60))
+                .rewardsWith(0);
+    }
+
+    @Test
+    void capacityUtilizationIsRewarded() {
+        WorkCenterMaintenance maintenance = maintenance("M1", machine, 480, 100);
+        Procedure procedure = procedure("P1", task, machine, 10, 1);
+        // 已用300 + 已占用100 = 400，在80%~90%之间
+        constraintVerifier.verifyThat((provider, factory) -> provider.softCapacityUtilization(provider.capacityBuckets(factory)))
+                .given(maintenance, slice("S1", procedure, 1, 1, 300, maintenance, 0))
+                .rewardsWith(10 * 5);
+        // 外协分片计入利用率
+        WorkCenterMaintenance outsourcingMaintenance = maintenance("M2", outsourcing, 480, 0);
+        constraintVerifier.verifyThat((provider, factory) -> provider.softCapacityUtilization(provider.capacityBuckets(factory)))
+                .given(outsourcingMaintenance,
+                        slice("S2", procedure("P2", task, outsourcing, 20, 2), 1, 1, 400, outsourcingMaintenance, 0))
+                .rewardsWith(10 * 5);
+        constraintVerifier.verifyThat((provider, factory) -> provider.softCapacityUtilization(provider.capacityBuckets(factory)))
+                .given(maintenance, slice("S1", procedure, 1, 1, 30, maintenance, 0))
+                .rewardsWith(0);
+    }
+
+    private static WorkCenter workCenter(String id, String code) {
+        WorkCenter workCenter = new WorkCenter();
+        workCenter.setId(id);
+        workCenter.setWorkCenterCode(code);
+        return workCenter;
+    }
+
+    private static WorkCenterMaintenance maintenance(String id, WorkCenter workCenter, int capacity, int usageTime) {
+        WorkCenterMaintenance maintenance = new WorkCenterMaintenance(workCenter, LocalDate.of(2025, 1, 6), capacity, null);
+        maintenance.setId(id);
+        maintenance.setUsageTime(usageTime);
+        return maintenance;
+    }
+
+    private static Task task(String taskNo, int factStartMinute, int planStartMinute) {
+        Task task = new Task();
+        task.setTaskNo(taskNo);
+        task.setFactStartMinute(factStartMinute);
+        task.setPlanStartMinute(planStartMinute);
+        return task;
+    }
+
+    private static Procedure procedure(String id, Task task, WorkCenter workCenter, int procedureNo, int index) {
+        Procedure procedure = new Procedure();
+        procedure.setId(id);
+        procedure.setTask(task);
+        procedure.setWorkCenter(workCenter);
+        procedure.setProcedureNo(procedureNo);
+        procedure.setIndex(index);
+        return procedure;
+    }
+
+    /**
+     * 已分配日历的分片：未指定日历时分配到工序工作中心上与开始分钟数一致的日历，
+     * 开始分钟数为NO_MINUTE时表示日历在规划时钟之外，结束分钟数同为NO_MINUTE
+     */
+    private static Timeslot slice(String id, Procedure procedure, int index, int total, int duration,
+                                  WorkCenterMaintenance maintenance, int startMinute) {
+        Timeslot timeslot = unassigned(id, procedure, index, total, duration);
+        if (maintenance == null) {
+            maintenance = maintenance("M-" + id, procedure.getWorkCenter(), 480, 0);
+            maintenance.setStartMinute(startMinute);
+        }
+        timeslot.setMaintenance(maintenance);
+        timeslot.setStartMinute(startMinute);
+        timeslot.setEndMinute(startMinute == NO_MINUTE ? NO_MINUTE : startMinute + duration);
+        return timeslot;
+    }
+
+    /**
+     * 未分配日历的分片，约束流不匹配未初始化的实体
+     */
+    private static Timeslot unassigned(String id, Procedure procedure, int index, int total, int duration) {
+        Timeslot timeslot = new Timeslot();
+        timeslot.setId(id);
+        timeslot.setProcedure(procedure);
+        timeslot.setIndex(index);
+        timeslot.setTotal(total);
+        timeslot.setProcedureIndex(procedure.getIndex());
+        timeslot.setDuration(duration);
+        return timeslot;
+    }
+}
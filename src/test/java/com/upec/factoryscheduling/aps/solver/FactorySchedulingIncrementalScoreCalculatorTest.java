@@ -0,0 +1,165 @@
+package com.upec.factoryscheduling.aps.solver;
+
+import com.upec.factoryscheduling.aps.entity.Timeslot;
+import com.upec.factoryscheduling.aps.entity.WorkCenterMaintenance;
+import com.upec.factoryscheduling.aps.resquest.SyntheticDataRequest;
+import com.upec.factoryscheduling.aps.solution.FactorySchedulingSolution;
+import com.upec.factoryscheduling.aps.solution.TimeslotPinningFilter;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+import org.optaplanner.core.api.solver.SolutionManager;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.solver.DefaultSolverFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 增量评分与约束流的一致性
+ * <p>在随机数据集上比较两种评分引擎：先比较完整计算的分数，再对两边施加相同的随机改变/交换移动，
+ * 每步比较增量分数，并与从头计算的分数核对。数据集覆盖已开工任务、手动分片、外协工序链和未分配的时间槽。</p>
+ */
+class FactorySchedulingIncrementalScoreCalculatorTest {
+
+    private static final String MAINTENANCE = "maintenance";
+
+    private static final int MOVE_COUNT = 500;
+
+    private static final TimeslotPinningFilter PINNING_FILTER = new TimeslotPinningFilter();
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, 7L, 42L})
+    void syntheticDatasetParity(long seed) {
+        assertParity(seed, () -> syntheticSolution(seed));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {3L, 11L})
+    void benchmarkDatasetParity(long seed) {
+        assertParity(seed, () -> {
+            FactorySchedulingSolution solution = BenchmarkSolutions.generate(300, seed);
+            // 部分时间槽退回未分配
+            Random random = new Random(seed);
+            for (Timeslot timeslot : solution.getTimeslots()) {
+                if (random.nextInt(5) == 0) {
+                    timeslot.setMaintenance(null);
+                }
+            }
+            return solution;
+        });
+    }
+
+    private static FactorySchedulingSolution syntheticSolution(long seed) {
+        SyntheticDataRequest request = new SyntheticDataRequest();
+        request.setSeed(seed);
+        request.setTimeslotCount(300);
+        request.setStartDate(LocalDate.of(2025, 1, 6));
+        request.setHorizonDays(30);
+        request.setFactStartProbability(0.5);
+        request.setManualProbability(0.05);
+        request.setOutsourcingProbability(0.3);
+        request.setBranchProbability(0.3);
+        FactorySchedulingSolution solution = SyntheticProblemGenerator.generate(request).toSolution();
+        // 约七成未固定的时间槽随机分配日历，其余保持未分配
+        Random random = new Random(seed);
+        for (Timeslot timeslot : solution.getTimeslots()) {
+            if (!PINNING_FILTER.accept(solution, timeslot) && random.nextInt(10) < 7) {
+                List<WorkCenterMaintenance> range = timeslot.getMaintenanceRange();
+                timeslot.setMaintenance(range.get(random.nextInt(range.size())));
+            }
+        }
+        return solution;
+    }
+
+    private static void assertParity(long seed, Supplier<FactorySchedulingSolution> dataset) {
+        ScoreDirectorFactoryConfig incrementalConfig = new ScoreDirectorFactoryConfig()
+                .withIncrementalScoreCalculatorClass(FactorySchedulingIncrementalScoreCalculator.class);
+        ScoreDirectorFactoryConfig constraintStreamsConfig = new ScoreDirectorFactoryConfig()
+                .withConstraintProviderClass(FactorySchedulingConstraintProvider.class);
+        try (InnerScoreDirector<FactorySchedulingSolution, HardMediumSoftScore> incremental =
+                     buildScoreDirector(incrementalConfig, dataset.get());
+             InnerScoreDirector<FactorySchedulingSolution, HardMediumSoftScore> constraintStreams =
+                     buildScoreDirector(constraintStreamsConfig, dataset.get())) {
+            assertEquals(constraintStreams.calculateScore(), incremental.calculateScore(), "from scratch");
+
+            List<Timeslot> incrementalTimeslots = movable(incremental.getWorkingSolution());
+            List<Timeslot> constraintStreamsTimeslots = movable(constraintStreams.getWorkingSolution());
+            Random random = new Random(seed);
+            for (int step = 0; step < MOVE_COUNT; step++) {
+                int left = random.nextInt(incrementalTimeslots.size());
+                String move;
+                if (random.nextBoolean()) {
+                    List<WorkCenterMaintenance> range = incrementalTimeslots.get(left).getMaintenanceRange();
+                    // 少量改变移动把时间槽退回未分配
+                    int value = random.nextInt(10) == 0 ? -1 : random.nextInt(range.size());
+                    change(incremental, incrementalTimeslots.get(left), value);
+                    change(constraintStreams, constraintStreamsTimeslots.get(left), value);
+                    move = "change " + incrementalTimeslots.get(left).getId() + " to " + value;
+                } else {
+                    int right = random.nextInt(incrementalTimeslots.size());
+                    if (incrementalTimeslots.get(left).getMaintenanceRange()
+                            != incrementalTimeslots.get(right).getMaintenanceRange()) {
+                        continue;
+                    }
+                    swap(incremental, incrementalTimeslots.get(left), incrementalTimeslots.get(right));
+                    swap(constraintStreams, constraintStreamsTimeslots.get(left), constraintStreamsTimeslots.get(right));
+                    move = "swap " + incrementalTimeslots.get(left).getId() + " and " + incrementalTimeslots.get(right).getId();
+                }
+                HardMediumSoftScore incrementalScore = incremental.calculateScore();
+                assertEquals(constraintStreams.calculateScore(), incrementalScore, "step " + step + ": " + move);
+                incremental.assertWorkingScoreFromScratch(incrementalScore, move);
+            }
+        }
+    }
+
+    private static InnerScoreDirector<FactorySchedulingSolution, HardMediumSoftScore> buildScoreDirector(
+            ScoreDirectorFactoryConfig scoreDirectorFactoryConfig, FactorySchedulingSolution solution) {
+        SolverConfig solverConfig = new SolverConfig()
+                .withSolutionClass(FactorySchedulingSolution.class)
+                .withEntityClasses(Timeslot.class)
+                .withScoreDirectorFactory(scoreDirectorFactoryConfig);
+        DefaultSolverFactory<FactorySchedulingSolution> solverFactory =
+                (DefaultSolverFactory<FactorySchedulingSolution>) SolverFactory.<FactorySchedulingSolution>create(solverConfig);
+        // 按已分配的日历计算影子变量(开始/结束时间)
+        SolutionManager.<FactorySchedulingSolution, HardMediumSoftScore>create(solverFactory).update(solution);
+        InnerScoreDirector<FactorySchedulingSolution, HardMediumSoftScore> scoreDirector =
+                solverFactory.<HardMediumSoftScore>getScoreDirectorFactory().buildScoreDirector();
+        scoreDirector.setWorkingSolution(solution);
+        return scoreDirector;
+    }
+
+    private static List<Timeslot> movable(FactorySchedulingSolution solution) {
+        return solution.getTimeslots().stream()
+                .filter(timeslot -> !PINNING_FILTER.accept(solution, timeslot))
+                .collect(Collectors.toList());
+    }
+
+    private static void change(InnerScoreDirector<FactorySchedulingSolution, HardMediumSoftScore> scoreDirector,
+                               Timeslot timeslot, int value) {
+        scoreDirector.beforeVariableChanged(timeslot, MAINTENANCE);
+        timeslot.setMaintenance(value < 0 ? null : timeslot.getMaintenanceRange().get(value));
+        scoreDirector.afterVariableChanged(timeslot, MAINTENANCE);
+        scoreDirector.triggerVariableListeners();
+    }
+
+    private static void swap(InnerScoreDirector<FactorySchedulingSolution, HardMediumSoftScore> scoreDirector,
+                             Timeslot left, Timeslot right) {
+        WorkCenterMaintenance leftMaintenance = left.getMaintenance();
+        scoreDirector.beforeVariableChanged(left, MAINTENANCE);
+        left.setMaintenance(right.getMaintenance());
+        scoreDirector.afterVariableChanged(left, MAINTENANCE);
+        scoreDirector.beforeVariableChanged(right, MAINTENANCE);
+        right.setMaintenance(leftMaintenance);
+        scoreDirector.afterVariableChanged(right, MAINTENANCE);
+        scoreDirector.triggerVariableListeners();
+    }
+}